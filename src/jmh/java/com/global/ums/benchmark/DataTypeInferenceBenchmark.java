@@ -0,0 +1,117 @@
+package com.global.ums.benchmark;
+
+import com.global.ums.enums.DataType;
+import com.global.ums.utils.DataTypeUtils;
+import com.global.ums.utils.LegacyDataTypeInference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataTypeUtils.inferDataType 基准测试：字节扫描实现与原先基于字符串/正则/JSON解析的实现对比
+ * 运行：mvn -Pbenchmark test-compile exec:exec（加 -Djmh.args="-prof gc" 可查看分配量）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTypeInferenceBenchmark {
+
+    /**
+     * 大负载的字节数
+     */
+    private static final int LARGE_SIZE = 1024 * 1024;
+
+    @Param({"integer", "datetime", "smallText", "smallJson", "largeText", "largeJson", "largeBinary"})
+    private String payload;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        switch (payload) {
+            case "integer":
+                data = bytes("1234567890123");
+                break;
+            case "datetime":
+                data = bytes("2024-05-01 12:30:00");
+                break;
+            case "smallText":
+                data = bytes("上海市浦东新区 Century Avenue 100");
+                break;
+            case "smallJson":
+                data = bytes("{\"inviterId\":10086,\"channel\":\"miniapp\",\"tags\":[\"a\",\"b\"]}");
+                break;
+            case "largeText":
+                data = largeText();
+                break;
+            case "largeJson":
+                data = largeJson();
+                break;
+            case "largeBinary":
+                data = largeBinary();
+                break;
+            default:
+                throw new IllegalArgumentException("未知的负载类型: " + payload);
+        }
+    }
+
+    @Benchmark
+    public DataType scanner() {
+        return DataTypeUtils.inferDataType(data);
+    }
+
+    @Benchmark
+    public DataType legacy() {
+        return LegacyDataTypeInference.inferDataType(data);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] largeText() {
+        StringBuilder builder = new StringBuilder(LARGE_SIZE);
+        while (builder.length() < LARGE_SIZE) {
+            builder.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        return bytes(builder.toString());
+    }
+
+    private static byte[] largeJson() {
+        StringBuilder builder = new StringBuilder(LARGE_SIZE + 64).append('[');
+        for (int i = 0; builder.length() < LARGE_SIZE; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i).append(",\"name\":\"user-").append(i)
+                    .append("\",\"roles\":[\"member\",\"viewer\"]}");
+        }
+        return bytes(builder.append(']').toString());
+    }
+
+    private static byte[] largeBinary() {
+        byte[] bytes = new byte[LARGE_SIZE];
+        new Random(42).nextBytes(bytes);
+        // PNG 文件头
+        bytes[0] = (byte) 0x89;
+        bytes[1] = 0x50;
+        bytes[2] = 0x4E;
+        bytes[3] = 0x47;
+        return bytes;
+    }
+}
@@ -0,0 +1,61 @@
+package com.global.ums.config;
+
+import com.global.ums.entity.UserProperties;
+import com.global.ums.service.BlobStoreService;
+import com.global.ums.utils.CompressionUtils;
+import com.global.ums.utils.SpringUtils;
+import com.global.ums.utils.StringUtils;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 属性值外部存储结果拦截器
+ * 查询结果中带有 blob_ref 的 UserProperties 只挂载延迟加载器，访问 value 时才读取外部存储，
+ * 压缩保存的值同样在访问 value 时才解压，因此只关心键、用户等元数据的查询不会加载或解压大属性值
+ */
+@Component
+@Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}))
+public class BlobValueInterceptor implements Interceptor {
+
+    private BlobStoreService blobStoreService;
+
+    /**
+     * 懒加载BlobStoreService，拦截器在 SqlSessionFactory 初始化时创建
+     */
+    private BlobStoreService getBlobStoreService() {
+        if (blobStoreService == null) {
+            blobStoreService = SpringUtils.getBean(BlobStoreService.class);
+        }
+        return blobStoreService;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (result instanceof List) {
+            for (Object row : (List<?>) result) {
+                if (row instanceof UserProperties) {
+                    attachLoader((UserProperties) row);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void attachLoader(UserProperties property) {
+        String ref = property.getBlobRef();
+        if (StringUtils.isNotEmpty(ref)) {
+            property.setValueLoader(() -> getBlobStoreService().get(ref));
+        } else if (Boolean.TRUE.equals(property.getCompressed()) && property.getValue() != null) {
+            byte[] encoded = property.getValue();
+            property.setValueLoader(() -> CompressionUtils.decompress(encoded));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.global.ums.config;
+
+import com.global.ums.graph.HierarchyGraph;
+import com.global.ums.service.EffectivePropertiesService;
+import com.global.ums.service.PropertyKeysService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub 订阅（层级关系增量、有效属性缓存失效、属性键配置失效）
+ * 所有频道共用一个订阅连接，并由单个线程按接收顺序依次处理：
+ * 其他节点在同一事务提交后先发布层级关系增量、再发布缓存失效，本节点也按此顺序应用，
+ * 避免缓存失效后重新加载时读到尚未更新的内存图；
+ * 通知丢失（Redis 不可用、订阅重连期间）时由各自的定时重建、版本检查或缓存过期兜底
+ */
+@Slf4j
+@Configuration
+public class RedisMessageListenerConfig {
+
+    @Value("${user.group.graph.notify.redis-enabled:true}")
+    private boolean hierarchyNotifyEnabled;
+
+    @Value("${property.effective.cache.notify.redis-enabled:true}")
+    private boolean effectivePropertiesNotifyEnabled;
+
+    @Value("${property.keys.notify.redis-enabled:true}")
+    private boolean propertyKeysNotifyEnabled;
+
+    /**
+     * 消息处理线程，只有一个线程以保证处理顺序与接收顺序一致
+     */
+    @Bean
+    public ThreadPoolTaskExecutor redisMessageListenerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("redis-listener-");
+        return executor;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       ThreadPoolTaskExecutor redisMessageListenerExecutor,
+                                                                       HierarchyGraph hierarchyGraph,
+                                                                       EffectivePropertiesService effectivePropertiesService,
+                                                                       PropertyKeysService propertyKeysService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(redisMessageListenerExecutor);
+        // 订阅任务会一直占用所在线程，不能与消息处理共用单线程执行器
+        container.setSubscriptionExecutor(new SimpleAsyncTaskExecutor("redis-subscription-"));
+        if (hierarchyNotifyEnabled) {
+            container.addMessageListener(listener("处理层级关系广播失败", hierarchyGraph::applyRemote),
+                    new ChannelTopic(HierarchyGraph.CHANGE_CHANNEL));
+        }
+        if (effectivePropertiesNotifyEnabled) {
+            container.addMessageListener(listener("处理有效属性缓存失效广播失败", effectivePropertiesService::applyRemoteEviction),
+                    new ChannelTopic(EffectivePropertiesService.EVICTION_CHANNEL));
+        }
+        if (propertyKeysNotifyEnabled) {
+            container.addMessageListener(listener("处理属性键配置失效通知失败", version -> {
+                if (propertyKeysService.refreshIfStale()) {
+                    log.debug("收到属性键配置失效通知，已重新加载: version={}", version);
+                }
+            }), new ChannelTopic(PropertyKeysService.INVALIDATION_CHANNEL));
+        }
+        return container;
+    }
+
+    private static MessageListener listener(String errorMessage, Consumer<String> handler) {
+        return (message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                handler.accept(body);
+            } catch (Exception e) {
+                log.error("{}: {}", errorMessage, body, e);
+            }
+        };
+    }
+}
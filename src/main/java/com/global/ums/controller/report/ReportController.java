@@ -5,14 +5,11 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
 import com.global.ums.constant.UserPropertiesConstant;
 import com.global.ums.dto.AlarmPushDTO;
-import com.global.ums.entity.User;
-import com.global.ums.entity.UserGroup;
 import com.global.ums.entity.UserProperties;
 import com.global.ums.enums.UserType;
+import com.global.ums.graph.HierarchyGraph;
 import com.global.ums.result.AjaxResult;
-import com.global.ums.service.UserGroupService;
 import com.global.ums.service.UserPropertiesService;
-import com.global.ums.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import me.chanjar.weixin.common.error.WxErrorException;
@@ -23,6 +20,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * 报告控制器
@@ -35,8 +33,7 @@ public class ReportController {
 
     private final WxMpService wxMpService;
     private final WxMaService wxMaService;
-    private final UserService userService;
-    private final UserGroupService userGroupService;
+    private final HierarchyGraph hierarchyGraph;
     private final UserPropertiesService userPropertiesService;
 
     /**
@@ -120,59 +117,38 @@ public class ReportController {
 
     /**
      * 根据用户组ID获取所有需要推送的用户openId列表
-     * 递归遍历所有子节点，筛选type=1且有mp_openid属性的用户
+     * 从内存图获取经由用户组可达的后代节点，筛选type=1且有mp_openid属性的用户
      *
      * @param groupId 用户组ID
      * @return openId列表
      */
     private List<String> getOpenIdListByGroupId(Long groupId) {
         List<String> openIdList = new ArrayList<>();
-        Set<Long> visitedIds = new HashSet<>();
-        collectOpenIds(groupId, openIdList, visitedIds);
-        return openIdList;
-    }
-
-    /**
-     * 递归收集用户openId
-     *
-     * @param parentId 父节点ID
-     * @param openIdList openId列表
-     * @param visitedIds 已访问的ID集合（防止循环引用）
-     */
-    private void collectOpenIds(Long parentId, List<String> openIdList, Set<Long> visitedIds) {
-        if (parentId == null || visitedIds.contains(parentId)) {
-            return;
+        if (groupId == null) {
+            return openIdList;
         }
-        visitedIds.add(parentId);
 
-        // 获取该节点的所有子节点
-        List<UserGroup> children = userGroupService.getByParentUserId(parentId);
-
-        for (UserGroup child : children) {
-            Long userId = child.getUserId();
-            if (userId == null || visitedIds.contains(userId)) {
-                continue;
-            }
+        // 从内存图获取经由用户组(type=2)可达的所有普通用户(type=1)，普通用户的下级不再展开，只推送普通用户
+        long[] userIds = hierarchyGraph.descendantsThrough(groupId, UserType.USER_GROUP.getValue(), UserType.USER.getValue());
+        if (userIds.length == 0) {
+            return openIdList;
+        }
 
-            User user = userService.getById(userId);
-            if (user == null) {
+        // 一次查询获取这些用户的mp_openid属性
+        List<UserProperties> mpOpenIdProps = userPropertiesService.listValuesByKeys(
+                Arrays.stream(userIds).boxed().collect(Collectors.toList()),
+                Collections.singletonList(UserPropertiesConstant.KEY_MP_OPENID));
+        Set<String> openIds = new LinkedHashSet<>();
+        for (UserProperties mpOpenIdProp : mpOpenIdProps) {
+            if (mpOpenIdProp.getValue() == null) {
                 continue;
             }
-
-            // 如果是普通用户(type=1)，检查是否有mp_openid属性
-            if (UserType.USER.getValue() == user.getType()) {
-                UserProperties mpOpenIdProp = userPropertiesService.getByUserIdAndKey(userId, UserPropertiesConstant.KEY_MP_OPENID);
-                if (mpOpenIdProp != null && mpOpenIdProp.getValue() != null) {
-                    String openId = new String(mpOpenIdProp.getValue());
-                    if (StrUtil.isNotBlank(openId)) {
-                        openIdList.add(openId);
-                    }
-                }
-                visitedIds.add(userId);
-            } else if (UserType.USER_GROUP.getValue() == user.getType()) {
-                // 如果是用户组(type=2)，递归处理
-                collectOpenIds(userId, openIdList, visitedIds);
+            String openId = new String(mpOpenIdProp.getValue());
+            if (StrUtil.isNotBlank(openId)) {
+                openIds.add(openId);
             }
         }
+        openIdList.addAll(openIds);
+        return openIdList;
     }
 }
@@ -0,0 +1,55 @@
+package com.global.ums.controller.system;
+
+import com.global.ums.annotation.RequireAuth;
+import com.global.ums.result.AjaxResult;
+import com.global.ums.service.ChangeEventService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * 变更事件控制器
+ * 下游系统按游标增量消费用户、属性、用户组关系和模板的变更，无需定时全量拉取
+ */
+@RestController
+@RequestMapping("/changes")
+@RequireAuth
+public class ChangeFeedController {
+
+    /**
+     * 每次最多返回的事件数
+     */
+    private static final int MAX_LIMIT = 1000;
+
+    /**
+     * 长轮询最长等待时间（秒）
+     */
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    @Autowired
+    private ChangeEventService changeEventService;
+
+    /**
+     * 按游标读取变更事件
+     *
+     * @param cursor 上次返回的 cursor，首次为空（从保留期内最早的事件开始）
+     * @param limit 每次最多返回条数，最大 1000
+     * @param wait 没有新事件时的等待时间（秒），0 表示立即返回，最大 60
+     */
+    @GetMapping
+    public DeferredResult<AjaxResult> changes(@RequestParam(required = false) Long cursor,
+                                              @RequestParam(defaultValue = "100") Integer limit,
+                                              @RequestParam(defaultValue = "30") Integer wait) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        int waitSeconds = Math.max(0, Math.min(wait, MAX_WAIT_SECONDS));
+        if (waitSeconds == 0) {
+            DeferredResult<AjaxResult> result = new DeferredResult<>();
+            result.setResult(AjaxResult.success(changeEventService.read(cursor, size)));
+            return result;
+        }
+        return changeEventService.poll(cursor, size, waitSeconds * 1000L);
+    }
+}
@@ -2,6 +2,7 @@ package com.global.ums.controller.system;
 
 import com.global.ums.annotation.RequireAuth;
 import com.global.ums.properties.AppVersionProperties;
+import com.global.ums.registry.KeyDescriptor;
 import com.global.ums.result.AjaxResult;
 import com.global.ums.utils.KeyValidationUtils;
 import com.global.ums.utils.MessageUtils;
@@ -70,13 +71,13 @@ public class ConfigController {
     public AjaxResult getKeyConfig() {
         try {
             Map<String, Object> result = new HashMap<>();
-            Map<String, KeyValidationUtils.KeyConfig> allowedKeys = KeyValidationUtils.getAllowedKeys();
+            Map<String, KeyDescriptor> allowedKeys = KeyValidationUtils.getAllowedKeys();
             
             // 为返回的key配置添加国际化描述
             Map<String, Object> i18nKeys = new HashMap<>();
-            for (Map.Entry<String, KeyValidationUtils.KeyConfig> entry : allowedKeys.entrySet()) {
+            for (Map.Entry<String, KeyDescriptor> entry : allowedKeys.entrySet()) {
                 String keyName = entry.getKey();
-                KeyValidationUtils.KeyConfig config = entry.getValue();
+                KeyDescriptor config = entry.getValue();
                 
                 Map<String, Object> configInfo = new HashMap<>();
                 configInfo.put("scope", config.getScope());
@@ -107,7 +108,7 @@ public class ConfigController {
             result.put("allowed", allowed);
             
             if (allowed) {
-                KeyValidationUtils.KeyConfig config = KeyValidationUtils.getKeyConfig(key);
+                KeyDescriptor config = KeyValidationUtils.getKeyConfig(key);
                 
                 // 构造包含国际化信息的配置对象
                 Map<String, Object> configInfo = new HashMap<>();
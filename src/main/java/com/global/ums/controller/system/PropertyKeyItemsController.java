@@ -5,7 +5,9 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.global.ums.annotation.RequireAuth;
 import com.global.ums.entity.PropertyKeyItems;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.EffectivePropertiesService;
 import com.global.ums.service.PropertyKeyItemsService;
+import com.global.ums.service.PropertyKeysService;
 import com.global.ums.utils.MessageUtils;
 import com.global.ums.utils.SpringUtils;
 import io.swagger.annotations.Api;
@@ -29,6 +31,12 @@ public class PropertyKeyItemsController {
     @Autowired
     private PropertyKeyItemsService propertyKeyItemsService;
 
+    @Autowired
+    private EffectivePropertiesService effectivePropertiesService;
+
+    @Autowired
+    private PropertyKeysService propertyKeysService;
+
     /**
      * 分页查询枚举项
      */
@@ -135,6 +143,10 @@ public class PropertyKeyItemsController {
 
             boolean success = propertyKeyItemsService.save(propertyKeyItems);
             if (success) {
+                // 重新加载属性键注册表中的枚举项和优先级表，并通知其他节点
+                propertyKeysService.publishChange();
+                // 优先级变化影响所有用户的有效属性
+                effectivePropertiesService.evictAll();
                 return AjaxResult.success("添加枚举项成功");
             } else {
                 return AjaxResult.error("添加枚举项失败");
@@ -171,6 +183,10 @@ public class PropertyKeyItemsController {
 
             boolean success = propertyKeyItemsService.updateById(propertyKeyItems);
             if (success) {
+                // 重新加载属性键注册表中的枚举项和优先级表，并通知其他节点
+                propertyKeysService.publishChange();
+                // 优先级变化影响所有用户的有效属性
+                effectivePropertiesService.evictAll();
                 return AjaxResult.success("更新枚举项成功");
             } else {
                 return AjaxResult.error("更新枚举项失败");
@@ -195,6 +211,10 @@ public class PropertyKeyItemsController {
 
             boolean success = propertyKeyItemsService.removeById(id);
             if (success) {
+                // 重新加载属性键注册表中的枚举项和优先级表，并通知其他节点
+                propertyKeysService.publishChange();
+                // 优先级变化影响所有用户的有效属性
+                effectivePropertiesService.evictAll();
                 return AjaxResult.success("删除枚举项成功");
             } else {
                 return AjaxResult.error("删除枚举项失败");
@@ -213,6 +233,10 @@ public class PropertyKeyItemsController {
         try {
             boolean success = propertyKeyItemsService.removeByIds(ids);
             if (success) {
+                // 重新加载属性键注册表中的枚举项和优先级表，并通知其他节点
+                propertyKeysService.publishChange();
+                // 优先级变化影响所有用户的有效属性
+                effectivePropertiesService.evictAll();
                 return AjaxResult.success("批量删除枚举项成功");
             } else {
                 return AjaxResult.error("批量删除枚举项失败");
@@ -5,10 +5,12 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.global.ums.annotation.RequireAuth;
 import com.global.ums.dto.PropertyKeysVO;
 import com.global.ums.entity.PropertyKeys;
+import com.global.ums.enums.CompressionCodec;
 import com.global.ums.enums.DataType;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.EffectivePropertiesService;
 import com.global.ums.service.PropertyKeysService;
-import com.global.ums.utils.KeyValidationUtils;
+import com.global.ums.service.UserPropertiesService;
 import com.global.ums.utils.MessageUtils;
 import com.global.ums.utils.SpringUtils;
 import io.swagger.annotations.Api;
@@ -22,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +39,12 @@ public class PropertyKeysController {
     @Autowired
     private PropertyKeysService propertyKeysService;
 
+    @Autowired
+    private EffectivePropertiesService effectivePropertiesService;
+
+    @Autowired
+    private UserPropertiesService userPropertiesService;
+
     /**
      * 获取所有属性键配置（分页）
      */
@@ -140,13 +149,14 @@ public class PropertyKeysController {
             if (existing != null) {
                 return AjaxResult.error(SpringUtils.getBean(MessageUtils.class).getMessage("property.keys.key.exists"));
             }
+            if (!isValidCompression(propertyKeys.getCompression())) {
+                return AjaxResult.error("不支持的压缩算法: " + propertyKeys.getCompression());
+            }
 
             boolean success = propertyKeysService.save(propertyKeys);
             if (success) {
-                // 刷新缓存
-                propertyKeysService.refreshCache();
-                // 重新加载 KeyValidationUtils
-                KeyValidationUtils.reloadConfig();
+                // 递增注册表版本，刷新本节点缓存并通知其他节点
+                propertyKeysService.publishChange();
                 return AjaxResult.successI18n("property.keys.add.success");
             } else {
                 return AjaxResult.error(SpringUtils.getBean(MessageUtils.class).getMessage("property.keys.add.error"));
@@ -177,13 +187,20 @@ public class PropertyKeysController {
             if (!existing.getKey().equals(propertyKeys.getKey())) {
                 return AjaxResult.error("不允许修改属性键名称");
             }
+            if (!isValidCompression(propertyKeys.getCompression())) {
+                return AjaxResult.error("不支持的压缩算法: " + propertyKeys.getCompression());
+            }
 
             boolean success = propertyKeysService.updateById(propertyKeys);
             if (success) {
-                // 刷新缓存
-                propertyKeysService.refreshCache();
-                // 重新加载 KeyValidationUtils
-                KeyValidationUtils.reloadConfig();
+                // 递增注册表版本，刷新本节点缓存并通知其他节点
+                propertyKeysService.publishChange();
+                // 隐藏、数据类型等配置会出现在有效属性中
+                effectivePropertiesService.evictAll();
+                if (propertyKeys.getDataType() != null && !Objects.equals(propertyKeys.getDataType(), existing.getDataType())) {
+                    // 影子列按声明类型计算，类型变更后在后台重新计算已有属性（完成前按值过滤可能漏掉尚未重新计算的行）
+                    userPropertiesService.refreshTypedColumnsAsync(existing.getKey());
+                }
                 return AjaxResult.successI18n("property.keys.update.success");
             } else {
                 return AjaxResult.error(SpringUtils.getBean(MessageUtils.class).getMessage("property.keys.update.error"));
@@ -213,10 +230,8 @@ public class PropertyKeysController {
 
             boolean success = propertyKeysService.removeById(id);
             if (success) {
-                // 刷新缓存
-                propertyKeysService.refreshCache();
-                // 重新加载 KeyValidationUtils
-                KeyValidationUtils.reloadConfig();
+                // 递增注册表版本，刷新本节点缓存并通知其他节点
+                propertyKeysService.publishChange();
                 return AjaxResult.successI18n("property.keys.delete.success");
             } else {
                 return AjaxResult.error(SpringUtils.getBean(MessageUtils.class).getMessage("property.keys.delete.error"));
@@ -251,10 +266,8 @@ public class PropertyKeysController {
             // 删除未被使用的 key
             if (!toDelete.isEmpty()) {
                 propertyKeysService.removeByIds(toDelete);
-                // 刷新缓存
-                propertyKeysService.refreshCache();
-                // 重新加载 KeyValidationUtils
-                KeyValidationUtils.reloadConfig();
+                // 递增注册表版本，刷新本节点缓存并通知其他节点
+                propertyKeysService.publishChange();
             }
 
             if (!cannotDelete.isEmpty()) {
@@ -270,12 +283,12 @@ public class PropertyKeysController {
     /**
      * 刷新缓存
      */
-    @ApiOperation(value = "刷新属性键配置缓存", notes = "手动刷新属性键配置缓存和验证工具")
+    @ApiOperation(value = "刷新属性键配置缓存", notes = "手动刷新属性键配置缓存和验证工具，并通知其他节点重新加载")
     @PostMapping("/refresh")
     public AjaxResult refresh() {
         try {
-            propertyKeysService.refreshCache();
-            KeyValidationUtils.reloadConfig();
+            propertyKeysService.publishChange();
+            effectivePropertiesService.evictAll();
             return AjaxResult.successI18n("property.keys.refresh.success");
         } catch (Exception e) {
             return AjaxResult.error(SpringUtils.getBean(MessageUtils.class).getMessage("property.keys.refresh.error", e.getMessage()));
@@ -309,4 +322,11 @@ public class PropertyKeysController {
             return AjaxResult.error("获取数据类型失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 压缩算法为空（不修改/默认不压缩）或为 CompressionCodec 中的取值
+     */
+    private boolean isValidCompression(Integer compression) {
+        return compression == null || CompressionCodec.fromValue(compression) != null;
+    }
 }
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.global.ums.annotation.BrotliCompress;
 import com.global.ums.annotation.RequireAuth;
 import com.global.ums.entity.User;
+import com.global.ums.dto.UserIdPageDTO;
+import com.global.ums.dto.UserSearchRequestDTO;
 import com.global.ums.dto.UserTreeNodeDTO;
 import com.global.ums.enums.UserType;
 import com.global.ums.result.AjaxResult;
@@ -30,6 +32,11 @@ import java.util.Map;
 @RequireAuth
 public class UserController {
 
+    /**
+     * 属性条件搜索每页最大条数
+     */
+    private static final int MAX_SEARCH_PAGE_SIZE = 1000;
+
     @Autowired
     private UserService userService;
 
@@ -108,6 +115,23 @@ public class UserController {
         return AjaxResult.success(userPage);
     }
 
+    /**
+     * 按属性条件游标分页搜索用户ID
+     * 条件之间为 AND 关系，op 支持 eq / in / range / prefix / exists
+     */
+    @ApiOperation(value = "按属性条件搜索用户", notes = "返回按用户ID升序的游标分页结果，下一页以 nextLastId 作为 lastId 请求")
+    @PostMapping("/search")
+    public AjaxResult search(@RequestBody UserSearchRequestDTO request) {
+        int pageSize = request.getPageSize() == null ? 100 : request.getPageSize();
+        int size = Math.max(1, Math.min(pageSize, MAX_SEARCH_PAGE_SIZE));
+        try {
+            UserIdPageDTO page = userService.searchUserIds(request.getPredicates(), request.getType(), request.getLastId(), size);
+            return AjaxResult.success(page);
+        } catch (IllegalArgumentException e) {
+            return AjaxResult.error(400, e.getMessage());
+        }
+    }
+
     /**
      * 获取所有用户类型枚举
      */
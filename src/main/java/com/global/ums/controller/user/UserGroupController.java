@@ -3,8 +3,10 @@ package com.global.ums.controller.user;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.global.ums.annotation.RequireAuth;
+import com.global.ums.dto.DescendantPageDTO;
 import com.global.ums.entity.UserGroup;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.UserGroupClosureService;
 import com.global.ums.service.UserGroupService;
 import com.global.ums.utils.LoginUserContextHolder;
 import com.global.ums.utils.MessageUtils;
@@ -22,9 +24,17 @@ import java.util.List;
 @RequireAuth
 public class UserGroupController {
 
+    /**
+     * 后代查询每页最大条数
+     */
+    private static final int MAX_DESCENDANT_PAGE_SIZE = 1000;
+
     @Autowired
     private UserGroupService userGroupService;
 
+    @Autowired
+    private UserGroupClosureService userGroupClosureService;
+
     /**
      * 添加用户组关系
      */
@@ -36,7 +46,7 @@ public class UserGroupController {
             return AjaxResult.errorI18n("user.group.add.error");
         }
         
-        boolean result = userGroupService.save(userGroup);
+        boolean result = userGroupService.saveUserGroup(userGroup);
         if (result) {
             return AjaxResult.success(SpringUtils.getBean(MessageUtils.class).getMessage("user.group.add.success"), userGroup);
         } else {
@@ -49,7 +59,7 @@ public class UserGroupController {
      */
     @DeleteMapping("/delete/{id}")
     public AjaxResult delete(@PathVariable Long id) {
-        boolean result = userGroupService.removeById(id);
+        boolean result = userGroupService.removeUserGroup(id);
         if (result) {
             return AjaxResult.successI18n("user.group.delete.success");
         } else {
@@ -70,7 +80,7 @@ public class UserGroupController {
      */
     @PutMapping("/update")
     public AjaxResult update(@RequestBody UserGroup userGroup) {
-        boolean result = userGroupService.updateById(userGroup);
+        boolean result = userGroupService.updateUserGroup(userGroup);
         if (result) {
             return AjaxResult.successI18n("user.group.update.success");
         } else {
@@ -127,6 +137,26 @@ public class UserGroupController {
         return AjaxResult.success(userGroups);
     }
 
+    /**
+     * 游标分页查询所有后代用户（不限于直接下级）
+     *
+     * @param userId 用户ID
+     * @param maxDepth 最大层级距离，为空时不限制
+     * @param type 用户类型，为空时不过滤
+     * @param lastId 上一页返回的 nextLastId，首页为空
+     * @param pageSize 每页条数，最大 1000
+     */
+    @GetMapping("/descendants/{userId}")
+    public AjaxResult descendants(@PathVariable Long userId,
+                                  @RequestParam(required = false) Integer maxDepth,
+                                  @RequestParam(required = false) Integer type,
+                                  @RequestParam(required = false) Long lastId,
+                                  @RequestParam(defaultValue = "100") Integer pageSize) {
+        int size = Math.max(1, Math.min(pageSize, MAX_DESCENDANT_PAGE_SIZE));
+        DescendantPageDTO page = userGroupClosureService.getDescendantPage(userId, maxDepth, type, lastId, size);
+        return AjaxResult.success(page);
+    }
+
     /**
      * 分页查询用户组
      */
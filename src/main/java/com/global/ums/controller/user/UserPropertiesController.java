@@ -4,25 +4,40 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.global.ums.annotation.BrotliCompress;
 import com.global.ums.annotation.RequireAuth;
 import com.global.ums.dto.BatchGetKeysRequestDTO;
+import com.global.ums.dto.BlobIngestDTO;
+import com.global.ums.dto.PropertyDeltaDTO;
 import com.global.ums.dto.PropertyTreeDTO;
 import com.global.ums.entity.User;
 import com.global.ums.entity.UserProperties;
+import com.global.ums.registry.KeyDescriptor;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.BlobStoreService;
 import com.global.ums.service.UserPropertiesService;
 import com.global.ums.service.UserService;
-import com.global.ums.utils.DataTypeUtils;
 import com.global.ums.utils.KeyValidationUtils;
 import com.global.ums.utils.LoginUserContextHolder;
 import com.global.ums.utils.StringUtils;
+import com.global.ums.utils.ValueHashUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
@@ -33,12 +48,23 @@ import javax.servlet.http.HttpServletResponse;
 @RequireAuth
 public class UserPropertiesController {
 
+    /**
+     * Tomcat sendfile 请求属性
+     */
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private UserPropertiesService userPropertiesService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BlobStoreService blobStoreService;
+
     /**
      * 添加/更新用户属性（文件上传）
      */
@@ -56,13 +82,8 @@ public class UserPropertiesController {
         if (user == null) {
             return AjaxResult.error(400, "用户不存在");
         }
-        byte[] bytes = new byte[0];
-        Long dataSize = 0l;
-        if (data != null) {
-            dataSize = data.getSize();
-            bytes = data.getBytes();
-        }
-        // 验证key是否被允许
+        // 先按声明的大小校验key，读取过程中再按实际读取的字节数校验
+        long dataSize = data == null ? 0L : data.getSize();
         KeyValidationUtils.ValidationResult validationResult = KeyValidationUtils.validateKey(key, dataSize);
         if (!validationResult.isValid()) {
             return AjaxResult.error(400, validationResult.getErrorMessage());
@@ -76,13 +97,24 @@ public class UserPropertiesController {
         }
 
         // 获取key配置
-        KeyValidationUtils.KeyConfig keyConfig = KeyValidationUtils.getKeyConfig(key);
+        KeyDescriptor keyConfig = KeyValidationUtils.getKeyConfig(key);
+        // 流式读取上传内容，不在内存中缓存完整文件
+        BlobIngestDTO ingest;
+        try (InputStream inputStream = data.getInputStream()) {
+            ingest = blobStoreService.ingest(inputStream, keyConfig.getMaxSize());
+        }
+        if (ingest.isExceeded()) {
+            return AjaxResult.errorI18n(400, "key.validation.size.exceeded", ingest.getLimit());
+        }
+
         UserProperties userProperties = new UserProperties();
         userProperties.setUserId(userId);
         userProperties.setKey(key);
-        userProperties.setValue(bytes);
+        userProperties.setValue(ingest.getValue() != null ? ingest.getValue() : new byte[0]);
+        userProperties.setBlobRef(ingest.getBlobRef());
+        userProperties.setValueHash(ingest.getValueHash());
         // 自动推断数据类型
-        userProperties.setDataType(DataTypeUtils.inferDataType(bytes).getValue());
+        userProperties.setDataType(ingest.getDataType());
         userProperties.setScope(keyConfig.getScope()); // 使用配置中的scope
         userProperties.setHidden(keyConfig.getHidden()); // 使用配置中的hidden
 
@@ -90,7 +122,8 @@ public class UserPropertiesController {
     }
 
     /**
-     * 添加/更新用户属性（文件上传）
+     * 批量添加/更新用户属性
+     * 全部校验通过后在一个事务内按 (user_id, key) 批量写入
      */
     @PostMapping("/updateBatch")
     public AjaxResult updateBatch(@RequestBody List<UserProperties> properties) throws IOException {
@@ -99,6 +132,7 @@ public class UserPropertiesController {
         if (user == null) {
             return AjaxResult.error(400, "用户不存在");
         }
+        List<UserProperties> rows = new ArrayList<>(properties.size());
         for (UserProperties property : properties) {
             String key = property.getKey();
             if (StringUtils.isEmpty(key)) {
@@ -106,25 +140,20 @@ public class UserPropertiesController {
             }
 
             byte[] bytes = property.getValue();
-            int dataSize = bytes.length;
+            int dataSize = bytes == null ? 0 : bytes.length;
             // 验证key是否被允许
             KeyValidationUtils.ValidationResult validationResult = KeyValidationUtils.validateKey(key, dataSize);
             if (!validationResult.isValid()) {
                 return AjaxResult.error(400, validationResult.getErrorMessage());
             }
 
-            // 获取key配置
-            KeyValidationUtils.KeyConfig keyConfig = KeyValidationUtils.getKeyConfig(key);
             UserProperties userProperties = new UserProperties();
             userProperties.setUserId(userId);
             userProperties.setKey(key);
-            userProperties.setValue(bytes);
-            // 自动推断数据类型
-            userProperties.setDataType(DataTypeUtils.inferDataType(bytes).getValue());
-            userProperties.setScope(keyConfig.getScope()); // 使用配置中的scope
-            userProperties.setHidden(keyConfig.getHidden()); // 使用配置中的hidden
-            userPropertiesService.saveUserProperties(userProperties);
+            userProperties.setValue(bytes == null ? new byte[0] : bytes);
+            rows.add(userProperties);
         }
+        userPropertiesService.upsertBatch(rows);
         return AjaxResult.successI18n("user.properties.update.success");
     }
 
@@ -155,32 +184,178 @@ public class UserPropertiesController {
     }
 
     /**
-     * 根据用户ID和键获取属性
+     * 根据用户ID和键获取属性值（原始字节）
+     * 支持 Range 断点续传、ETag/If-None-Match 与 Last-Modified/If-Modified-Since 条件请求，
+     * 外部存储的值直接从文件输出（Tomcat sendfile 或 FileChannel.transferTo），不经过堆内存
      */
     @GetMapping("/getReturnByte")
-    @BrotliCompress(quality = 4, threshold = 512)
-    public void getByUserIdAndKeyReturnByte(@RequestParam String key, HttpServletResponse response) throws IOException {
+    public void getByUserIdAndKeyReturnByte(@RequestParam String key, HttpServletRequest request,
+                                            HttpServletResponse response) throws IOException {
         Long userId = LoginUserContextHolder.getUserId();
         UserProperties userProperties = userPropertiesService.getByUserIdAndKey(userId, key);
-        if (userProperties != null && userProperties.getValue() != null) {
-            byte[] value = userProperties.getValue();
-            response.setContentType("application/octet-stream");
-            response.setHeader("Content-Disposition", "attachment;");
-            response.setContentLength(value.length);
-            // 写入响应流
-            try (OutputStream outputStream = response.getOutputStream()) {
-                outputStream.write(value);
-                outputStream.flush();
+        Path file = null;
+        byte[] value = null;
+        if (userProperties != null) {
+            if (StringUtils.isNotEmpty(userProperties.getBlobRef())) {
+                file = blobStoreService.locate(userProperties.getBlobRef());
+            } else {
+                value = userProperties.getValue();
             }
-        } else {
+        }
+        if (file == null && value == null) {
             // 设置错误状态码
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             response.setContentType("application/json;charset=UTF-8");
             // 返回JSON格式的错误信息
             response.getWriter().write("{\"code\":404,\"msg\":\"未找到用户属性或属性值为空\",\"data\":null}");
+            return;
+        }
+
+        String etag = buildETag(userProperties, value);
+        long lastModified = userProperties.getUpdateTime() != null
+                ? userProperties.getUpdateTime().getTime() / 1000 * 1000 : -1;
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (lastModified > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = file != null ? Files.size(file) : value.length;
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = resolveRange(request, etag, lastModified);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = end + 1;
+            }
+            // 起始位置超出内容长度或后缀长度为0，范围无法满足
+            if (start > end) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentType("application/octet-stream");
+        response.setHeader("Content-Disposition", "attachment;");
+        response.setContentLengthLong(count);
+        if (count <= 0) {
+            return;
+        }
+
+        if (value != null) {
+            try (OutputStream outputStream = response.getOutputStream()) {
+                outputStream.write(value, (int) start, (int) count);
+                outputStream.flush();
+            }
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // 交由 Tomcat 在请求处理结束后通过 sendfile 输出
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                 WritableByteChannel target = Channels.newChannel(response.getOutputStream())) {
+                long position = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
         }
     }
 
+    /**
+     * 生成强 ETag：外部存储的值使用内容 SHA-256，数据库中的值使用 value_hash
+     */
+    private String buildETag(UserProperties userProperties, byte[] value) {
+        if (StringUtils.isNotEmpty(userProperties.getBlobRef())) {
+            return "\"" + userProperties.getBlobRef() + "\"";
+        }
+        Long hash = userProperties.getValueHash() != null ? userProperties.getValueHash() : ValueHashUtils.hash(value);
+        return "\"" + String.format("%016x", hash) + "\"";
+    }
+
+    /**
+     * 条件请求判断，If-None-Match 优先于 If-Modified-Since
+     */
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, etag);
+        }
+        if (lastModified > 0) {
+            try {
+                long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+                return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析 Range 请求头，只支持单个范围；格式不合法、多个范围或 If-Range 不匹配时返回null（返回完整内容）
+     * If-Range 为日期时只有与 Last-Modified 完全相同才视为匹配
+     */
+    private HttpRange resolveRange(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean matched;
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                matched = ifRange.equals(etag);
+            } else {
+                try {
+                    matched = lastModified > 0 && lastModified == request.getDateHeader(HttpHeaders.IF_RANGE);
+                } catch (IllegalArgumentException e) {
+                    matched = false;
+                }
+            }
+            if (!matched) {
+                return null;
+            }
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // 无法解析的 Range 请求头按未携带处理
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private boolean matchesETag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 根据用户ID和键获取属性
      */
@@ -193,6 +368,18 @@ public class UserPropertiesController {
         return AjaxResult.success(list);
     }
 
+    /**
+     * 增量同步当前用户的属性
+     * 返回 since 之后新增/修改的属性和删除的属性键，客户端以返回的 version 作为下次请求的 since
+     */
+    @GetMapping("/delta")
+    @BrotliCompress(quality = 4, threshold = 512)
+    public AjaxResult delta(@RequestParam(required = false) Long since) {
+        Long userId = LoginUserContextHolder.getUserId();
+        PropertyDeltaDTO delta = userPropertiesService.getDelta(userId, since);
+        return AjaxResult.success(delta);
+    }
+
     /**
      * 批量根据键列表获取属性
      */
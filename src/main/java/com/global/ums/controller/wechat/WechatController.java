@@ -3,6 +3,7 @@ package com.global.ums.controller.wechat;
 import cn.hutool.core.util.StrUtil;
 import com.global.ums.constant.UserPropertiesConstant;
 import com.global.ums.entity.UserProperties;
+import com.global.ums.service.UserIdentityService;
 import com.global.ums.service.UserPropertiesService;
 import com.global.ums.utils.MessageUtils;
 import com.global.ums.utils.SpringUtils;
@@ -33,6 +34,9 @@ public class WechatController {
     @Autowired
     private UserPropertiesService userPropertiesService;
 
+    @Autowired
+    private UserIdentityService userIdentityService;
+
     /**
      * 微信服务器验证URL
      */
@@ -199,11 +203,9 @@ public class WechatController {
             
             if (StrUtil.isNotBlank(unionId)) {
                 // 通过 unionId 查询用户
-                UserProperties unionIdProperty = userPropertiesService.getKeyisExist(
-                        UserPropertiesConstant.KEY_UNIONID, unionId.getBytes());
+                Long userId = userIdentityService.getUserId(UserPropertiesConstant.KEY_UNIONID, unionId);
                 
-                if (unionIdProperty != null) {
-                    Long userId = unionIdProperty.getUserId();
+                if (userId != null) {
                     log.info("找到用户: userId={}, unionId={}", userId, unionId);
                     
                     // 检查是否已经绑定了公众号 openId
@@ -0,0 +1,45 @@
+package com.global.ums.dto;
+
+import lombok.Data;
+
+/**
+ * 流式写入属性值的结果
+ */
+@Data
+public class BlobIngestDTO {
+
+    /**
+     * 已读取的字节数（超出限制时为限制值+1，读取随即停止）
+     */
+    private long size;
+
+    /**
+     * 实际生效的大小限制（属性键最大字节数与数据库容量中较小者，无限制时为 Long.MAX_VALUE）
+     */
+    private long limit;
+
+    /**
+     * 是否超出大小限制（超出时不保存任何数据）
+     */
+    private boolean exceeded;
+
+    /**
+     * 外部存储引用，值保存在数据库中时为null
+     */
+    private String blobRef;
+
+    /**
+     * 需要保存在数据库中的值，外部存储时为null
+     */
+    private byte[] value;
+
+    /**
+     * 属性值哈希（与 ValueHashUtils.hash 一致）
+     */
+    private Long valueHash;
+
+    /**
+     * 推断的数据类型
+     */
+    private Integer dataType;
+}
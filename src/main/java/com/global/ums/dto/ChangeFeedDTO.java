@@ -0,0 +1,23 @@
+package com.global.ums.dto;
+
+import com.global.ums.entity.ChangeEvent;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 变更事件游标分页结果
+ */
+@Data
+public class ChangeFeedDTO {
+
+    /**
+     * 本次返回的事件（按ID升序）
+     */
+    private List<ChangeEvent> events;
+
+    /**
+     * 下次请求的游标（本次最后一个事件ID，没有事件时为请求的游标）
+     */
+    private Long cursor;
+}
@@ -0,0 +1,30 @@
+package com.global.ums.dto;
+
+import lombok.Data;
+
+/**
+ * 后代用户（仅包含标识信息）
+ */
+@Data
+public class DescendantDTO {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 用户唯一标识
+     */
+    private String uniqueId;
+
+    /**
+     * 用户类型
+     */
+    private Integer type;
+
+    /**
+     * 与查询节点之间的层级距离
+     */
+    private Integer depth;
+}
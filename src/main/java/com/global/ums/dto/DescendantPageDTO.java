@@ -0,0 +1,24 @@
+package com.global.ums.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 后代用户游标分页结果
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DescendantPageDTO {
+
+    /**
+     * 当前页记录（按用户ID升序）
+     */
+    private List<DescendantDTO> records;
+
+    /**
+     * 下一页游标，作为下次请求的 lastId；没有更多数据时为null
+     */
+    private Long nextLastId;
+}
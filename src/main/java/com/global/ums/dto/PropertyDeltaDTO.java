@@ -0,0 +1,35 @@
+package com.global.ums.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.global.ums.entity.UserProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户属性增量同步结果
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PropertyDeltaDTO {
+
+    /**
+     * 本次同步到的版本号，作为下次请求的 since
+     */
+    private Long version;
+
+    /**
+     * 是否为全量结果（客户端应以 changed 替换本地全部属性）
+     */
+    private Boolean full;
+
+    /**
+     * since 之后新增或修改的属性
+     */
+    private List<UserProperties> changed;
+
+    /**
+     * since 之后删除的属性键
+     */
+    private List<String> deleted;
+}
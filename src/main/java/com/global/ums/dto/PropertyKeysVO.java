@@ -62,6 +62,12 @@ public class PropertyKeysVO {
     @ApiModelProperty(value = "是否隐藏（0:否 1:是）", example = "0")
     private Integer hidden;
 
+    /**
+     * 属性值压缩算法
+     */
+    @ApiModelProperty(value = "属性值压缩算法（0:不压缩 1:deflate 2:brotli）", example = "0")
+    private Integer compression;
+
     /**
      * 枚举项列表
      */
@@ -0,0 +1,24 @@
+package com.global.ums.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户ID游标分页结果
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserIdPageDTO {
+
+    /**
+     * 当前页用户ID（升序）
+     */
+    private List<Long> userIds;
+
+    /**
+     * 下一页游标，作为下次请求的 lastId；没有更多数据时为null
+     */
+    private Long nextLastId;
+}
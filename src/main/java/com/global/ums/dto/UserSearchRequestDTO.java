@@ -0,0 +1,33 @@
+package com.global.ums.dto;
+
+import com.global.ums.query.PropertyPredicate;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 按属性条件搜索用户请求DTO
+ */
+@Data
+public class UserSearchRequestDTO {
+
+    /**
+     * 属性过滤条件（AND 关系），为空时只按用户类型过滤
+     */
+    private List<PropertyPredicate> predicates;
+
+    /**
+     * 用户类型，为空时不过滤
+     */
+    private Integer type;
+
+    /**
+     * 上一页返回的 nextLastId，首页为空
+     */
+    private Long lastId;
+
+    /**
+     * 每页条数
+     */
+    private Integer pageSize;
+}
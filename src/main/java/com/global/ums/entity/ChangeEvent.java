@@ -0,0 +1,70 @@
+package com.global.ums.entity;
+
+import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 变更事件实体类（事务性 outbox），与业务写入在同一事务中记录
+ */
+@Data
+@TableName("ums_change_outbox")
+public class ChangeEvent {
+
+    public static final String TYPE_USER = "user";
+    public static final String TYPE_PROPERTY = "property";
+    public static final String TYPE_USER_GROUP = "user_group";
+    public static final String TYPE_TEMPLATE = "template";
+
+    public static final String OP_CREATE = "create";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_UPSERT = "upsert";
+    public static final String OP_DELETE = "delete";
+
+    /**
+     * 事件ID，单调递增，作为消费游标
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 对象类型：user / property / user_group / template
+     */
+    private String aggregateType;
+
+    /**
+     * 对象ID（属性与用户组关系为所属用户ID）
+     */
+    private Long aggregateId;
+
+    /**
+     * 操作：create / update / upsert / delete
+     */
+    private String op;
+
+    /**
+     * 事件内容（JSON）
+     */
+    private String payload;
+
+    /**
+     * 创建时间（由数据库维护）
+     */
+    @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private Date createTime;
+
+    public static ChangeEvent of(String aggregateType, Long aggregateId, String op, Object payload) {
+        ChangeEvent event = new ChangeEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setOp(op);
+        event.setPayload(payload == null ? null : JSON.toJSONString(payload));
+        return event;
+    }
+}
@@ -0,0 +1,25 @@
+package com.global.ums.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 配置注册表版本实体类，每个注册表一行，配置变更时递增版本号，各节点据此判断本地缓存是否过期
+ */
+@Data
+@TableName("ums_registry_version")
+public class RegistryVersion {
+
+    /**
+     * 注册表名称
+     */
+    @TableId(type = IdType.INPUT)
+    private String name;
+
+    /**
+     * 当前版本号
+     */
+    private Long version;
+}
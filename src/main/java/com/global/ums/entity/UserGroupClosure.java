@@ -0,0 +1,44 @@
+package com.global.ums.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 用户组闭包实体类（祖先 -> 后代）
+ */
+@Data
+@TableName("ums_user_group_closure")
+public class UserGroupClosure {
+
+    /**
+     * ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 祖先用户ID
+     */
+    private Long ancestorId;
+
+    /**
+     * 后代用户ID
+     */
+    private Long descendantId;
+
+    /**
+     * 层级距离（直接上级为1）
+     */
+    private Integer depth;
+
+    public UserGroupClosure() {
+    }
+
+    public UserGroupClosure(Long ancestorId, Long descendantId, Integer depth) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+        this.depth = depth;
+    }
+}
@@ -0,0 +1,35 @@
+package com.global.ums.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 用户外部身份索引实体类（provider + externalId -> userId）
+ */
+@Data
+@TableName("ums_user_identity")
+public class UserIdentity {
+
+    /**
+     * ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 身份类型，与属性键一致（username/ma_openid/mp_openid/unionid）
+     */
+    private String provider;
+
+    /**
+     * 外部身份标识
+     */
+    private String externalId;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+}
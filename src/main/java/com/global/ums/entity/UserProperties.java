@@ -1,5 +1,7 @@
 package com.global.ums.entity;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
@@ -8,7 +10,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
+import java.util.Date;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 用户属性实体类
@@ -37,10 +41,70 @@ public class UserProperties {
     private String key;
 
     /**
-     * 属性值
+     * 属性值（外部存储的值在首次访问时加载，压缩的值在首次访问时解压）
      */
     private byte[] value;
 
+    /**
+     * 外部存储引用（SHA-256），为空表示值保存在 value 列中
+     */
+    @JsonIgnore
+    private String blobRef;
+
+    /**
+     * value 列是否为压缩格式（首字节为算法标记），读取时在首次访问 value 时解压
+     */
+    @JsonIgnore
+    private Boolean compressed;
+
+    /**
+     * 外部存储或压缩值的延迟加载器（非数据库字段）
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @JSONField(serialize = false, deserialize = false)
+    private transient Supplier<byte[]> valueLoader;
+
+    /**
+     * 属性值哈希（SHA-256 前8字节），写入时自动计算，用于按值反查
+     */
+    @JsonIgnore
+    private Long valueHash;
+
+    /**
+     * 整数值影子列（属性键数据类型为整数时写入，用于索引过滤）
+     * 更新时总是写入该列，未携带属性值的更新会先回填原值
+     */
+    @JsonIgnore
+    @TableField(updateStrategy = FieldStrategy.IGNORED)
+    private Long valueLong;
+
+    /**
+     * 字符串前缀影子列（前191个字符，区分大小写，用于索引过滤）
+     */
+    @JsonIgnore
+    @TableField(updateStrategy = FieldStrategy.IGNORED)
+    private String valueStrPrefix;
+
+    /**
+     * 布尔值影子列（属性键数据类型为布尔时写入，用于索引过滤）
+     */
+    @JsonIgnore
+    @TableField(updateStrategy = FieldStrategy.IGNORED)
+    private Boolean valueBool;
+
+    /**
+     * 版本号，取自所属用户的属性版本序列，每次写入递增，用于客户端增量同步
+     */
+    private Long version;
+
+    /**
+     * 最后修改时间（由数据库维护）
+     */
+    @JsonIgnore
+    @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private Date updateTime;
+
     /**
      * 数据类型（从 ums_property_keys 表查询获得，非数据库字段）
      */
@@ -71,6 +135,13 @@ public class UserProperties {
     @TableField(exist = false)
     private Integer userType;
 
+    /**
+     * 属性所属用户与查询用户之间的层级距离（0为自身，非数据库字段）
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    private Integer depth;
+
     /**
      * 所有父级用户的同key属性列表（非数据库字段）
      */
@@ -78,4 +149,17 @@ public class UserProperties {
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<UserProperties> parentProperties;
 
+    public byte[] getValue() {
+        if (valueLoader != null) {
+            value = valueLoader.get();
+            valueLoader = null;
+        }
+        return value;
+    }
+
+    public void setValue(byte[] value) {
+        this.value = value;
+        this.valueLoader = null;
+    }
+
 }
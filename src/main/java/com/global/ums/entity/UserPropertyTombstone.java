@@ -0,0 +1,37 @@
+package com.global.ums.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 用户属性删除标记实体类，记录属性被删除时分配的版本号，供客户端增量同步删除
+ */
+@Data
+@TableName("ums_user_property_tombstone")
+public class UserPropertyTombstone {
+
+    /**
+     * ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 被删除的属性键
+     */
+    @TableField("`key`")
+    private String key;
+
+    /**
+     * 删除时分配的版本号
+     */
+    private Long version;
+}
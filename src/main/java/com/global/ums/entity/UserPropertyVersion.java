@@ -0,0 +1,25 @@
+package com.global.ums.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 用户属性版本序列实体类，每个用户一行，记录已分配的最大版本号
+ */
+@Data
+@TableName("ums_user_property_version")
+public class UserPropertyVersion {
+
+    /**
+     * 用户ID
+     */
+    @TableId(type = IdType.INPUT)
+    private Long userId;
+
+    /**
+     * 已分配的最大版本号
+     */
+    private Long version;
+}
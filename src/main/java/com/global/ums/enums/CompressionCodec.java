@@ -0,0 +1,60 @@
+package com.global.ums.enums;
+
+/**
+ * 属性值压缩算法枚举
+ * 在 ums_property_keys.compression 中按属性键配置，value 同时作为压缩后属性值的首字节（算法标记）
+ */
+public enum CompressionCodec {
+
+    /**
+     * 不压缩
+     */
+    NONE(0, "none", "不压缩"),
+
+    /**
+     * Deflate（JDK 内置，无本地库依赖）
+     */
+    DEFLATE(1, "deflate", "Deflate"),
+
+    /**
+     * Brotli（压缩率更高，依赖 brotli4j 本地库）
+     */
+    BROTLI(2, "brotli", "Brotli");
+
+    private final int value;
+    private final String code;
+    private final String description;
+
+    CompressionCodec(int value, String code, String description) {
+        this.value = value;
+        this.code = code;
+        this.description = description;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据数值获取压缩算法，未知数值返回null
+     */
+    public static CompressionCodec fromValue(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        for (CompressionCodec codec : values()) {
+            if (codec.value == value) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,518 @@
+package com.global.ums.graph;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.global.ums.entity.User;
+import com.global.ums.entity.UserGroup;
+import com.global.ums.mapper.UserGroupMapper;
+import com.global.ums.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 用户层级关系内存图
+ * 启动时加载 ums_user_group 全部边，节点下标与邻接表均使用基本类型数组存储
+ * 由 UserGroupServiceImpl 在事务提交后增量维护，并通过 Redis 频道把增量广播给其他节点（RedisMessageListenerConfig 订阅）；
+ * 定时全量重建兜底通知丢失的情况
+ *
+ * 方向约定：parent 为上级（ums_user_group.parent_user_id），child 为下级（ums_user_group.user_id）
+ */
+@Slf4j
+@Component
+public class HierarchyGraph {
+
+    /**
+     * 层级关系增量广播频道，消息格式：节点标识 add|remove|type 参数...
+     */
+    public static final String CHANGE_CHANNEL = "ums:hierarchy:changes";
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 节点类型未知
+     */
+    private static final int UNKNOWN_TYPE = 0;
+
+    /**
+     * 全量重建时检测到并发增量修改的最大重试次数
+     */
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    @Autowired
+    private UserGroupMapper userGroupMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${user.group.graph.notify.redis-enabled:true}")
+    private boolean notifyEnabled;
+
+    /**
+     * 本节点标识，收到自己发布的广播时忽略
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Topology topology = new Topology(16);
+
+    /**
+     * 增量修改计数，用于全量重建时检测并发修改
+     */
+    private long modCount;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 定时全量重建
+     * 配置项: user.group.graph.reload-interval (单位：毫秒)
+     */
+    @Scheduled(initialDelayString = "${user.group.graph.reload-interval:300000}",
+            fixedDelayString = "${user.group.graph.reload-interval:300000}")
+    public void reload() {
+        for (int attempt = 1; attempt <= MAX_RELOAD_ATTEMPTS; attempt++) {
+            long expectedModCount;
+            lock.readLock().lock();
+            try {
+                expectedModCount = modCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            Topology loaded = load();
+
+            lock.writeLock().lock();
+            try {
+                if (modCount == expectedModCount || attempt == MAX_RELOAD_ATTEMPTS) {
+                    topology = loaded;
+                    log.info("用户层级关系图加载完成，共 {} 个节点", loaded.size);
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("用户层级关系图加载期间发生增量修改，重新加载");
+        }
+    }
+
+    private Topology load() {
+        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getType));
+        List<UserGroup> edges = userGroupMapper.selectList(new LambdaQueryWrapper<UserGroup>()
+                .select(UserGroup::getUserId, UserGroup::getParentUserId));
+
+        Topology loaded = new Topology(users.size());
+        for (User user : users) {
+            loaded.node(user.getId(), user.getType() == null ? UNKNOWN_TYPE : user.getType());
+        }
+        for (UserGroup edge : edges) {
+            if (edge.getUserId() != null && edge.getParentUserId() != null) {
+                loaded.link(loaded.node(edge.getUserId(), UNKNOWN_TYPE), loaded.node(edge.getParentUserId(), UNKNOWN_TYPE));
+            }
+        }
+        return loaded;
+    }
+
+    // ==================== 增量维护（事务提交后调用） ====================
+
+    /**
+     * 新增 userId -> parentUserId 边，并广播给其他节点
+     */
+    public void addEdge(long userId, long parentUserId) {
+        applyAddEdge(userId, parentUserId);
+        publish("add " + userId + " " + parentUserId);
+    }
+
+    /**
+     * 删除 userId -> parentUserId 边，并广播给其他节点
+     *
+     * @param allCopies true-删除该用户对之间的全部边，false-只删除一条
+     */
+    public void removeEdge(long userId, long parentUserId, boolean allCopies) {
+        applyRemoveEdge(userId, parentUserId, allCopies);
+        publish("remove " + userId + " " + parentUserId + " " + allCopies);
+    }
+
+    /**
+     * 更新节点的用户类型，并广播给其他节点
+     */
+    public void updateType(long userId, int type) {
+        applyUpdateType(userId, type);
+        publish("type " + userId + " " + type);
+    }
+
+    /**
+     * 应用其他节点广播的增量，忽略本节点发布的消息
+     */
+    public void applyRemote(String message) {
+        String[] parts = message.split(" ");
+        if (parts.length < 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        switch (parts[1]) {
+            case "add":
+                applyAddEdge(Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                break;
+            case "remove":
+                applyRemoveEdge(Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+                        parts.length > 4 && Boolean.parseBoolean(parts[4]));
+                break;
+            case "type":
+                applyUpdateType(Long.parseLong(parts[2]), Integer.parseInt(parts[3]));
+                break;
+            default:
+                log.warn("未知的层级关系广播: {}", message);
+        }
+    }
+
+    private void publish(String change) {
+        if (!notifyEnabled) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(CHANGE_CHANNEL, nodeId + " " + change);
+        } catch (Exception e) {
+            log.warn("广播层级关系变更失败，其他节点将在定时重建时同步: {}", change, e);
+        }
+    }
+
+    private void applyAddEdge(long userId, long parentUserId) {
+        int childType = typeOfUnknownNode(userId);
+        int parentType = typeOfUnknownNode(parentUserId);
+        lock.writeLock().lock();
+        try {
+            topology.link(topology.node(userId, childType), topology.node(parentUserId, parentType));
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyRemoveEdge(long userId, long parentUserId, boolean allCopies) {
+        lock.writeLock().lock();
+        try {
+            int child = topology.index.get(userId);
+            int parent = topology.index.get(parentUserId);
+            if (child >= 0 && parent >= 0) {
+                topology.unlink(child, parent, allCopies);
+            }
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyUpdateType(long userId, int type) {
+        lock.writeLock().lock();
+        try {
+            topology.node(userId, type);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 直接上级
+     */
+    public long[] parents(long userId) {
+        lock.readLock().lock();
+        try {
+            int node = topology.index.get(userId);
+            return node < 0 ? EMPTY : topology.toIds(topology.parents[node], topology.parentCount[node]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 直接下级
+     */
+    public long[] children(long userId) {
+        lock.readLock().lock();
+        try {
+            int node = topology.index.get(userId);
+            return node < 0 ? EMPTY : topology.toIds(topology.children[node], topology.childCount[node]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有祖先，按层级距离由近到远排序（不含自身）
+     */
+    public long[] ancestors(long userId) {
+        lock.readLock().lock();
+        try {
+            return topology.traverse(userId, true, null, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有后代，按层级距离由近到远排序（不含自身）
+     *
+     * @param typeFilter 只返回该用户类型的后代，为null时返回全部
+     */
+    public long[] descendants(long userId, Integer typeFilter) {
+        lock.readLock().lock();
+        try {
+            return topology.traverse(userId, false, typeFilter, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 经由指定类型节点可达的后代：只继续展开 expandType 类型节点（及起点）的下级，按层级距离由近到远排序（不含自身）
+     *
+     * @param expandType 只展开该用户类型节点的下级
+     * @param typeFilter 只返回该用户类型的后代，为null时返回全部
+     */
+    public long[] descendantsThrough(long userId, int expandType, Integer typeFilter) {
+        lock.readLock().lock();
+        try {
+            return topology.traverse(userId, false, typeFilter, expandType);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 判断从 fromUserId 沿上级方向能否到达 toUserId，即 toUserId 是否为 fromUserId 的祖先（或自身）
+     */
+    public boolean isReachable(long fromUserId, long toUserId) {
+        if (fromUserId == toUserId) {
+            return true;
+        }
+        lock.readLock().lock();
+        try {
+            int from = topology.index.get(fromUserId);
+            int to = topology.index.get(toUserId);
+            if (from < 0 || to < 0) {
+                return false;
+            }
+            BitSet visited = new BitSet(topology.size);
+            int[] queue = new int[topology.size];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = from;
+            visited.set(from);
+            while (head < tail) {
+                int current = queue[head++];
+                int[] adjacent = topology.parents[current];
+                for (int i = 0; i < topology.parentCount[current]; i++) {
+                    int next = adjacent[i];
+                    if (next == to) {
+                        return true;
+                    }
+                    if (!visited.get(next)) {
+                        visited.set(next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 是否存在直接上级
+     */
+    public boolean hasParents(long userId) {
+        lock.readLock().lock();
+        try {
+            int node = topology.index.get(userId);
+            return node >= 0 && topology.parentCount[node] > 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 图中尚不存在的节点需要查询用户类型（在锁外查询）
+     */
+    private int typeOfUnknownNode(long userId) {
+        lock.readLock().lock();
+        try {
+            int node = topology.index.get(userId);
+            if (node >= 0 && topology.types[node] != UNKNOWN_TYPE) {
+                return topology.types[node];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        User user = userMapper.selectById(userId);
+        return user == null || user.getType() == null ? UNKNOWN_TYPE : user.getType();
+    }
+
+    /**
+     * 图的存储结构，节点以连续下标表示，邻接表为 int 数组（允许重复边，与 ums_user_group 行一一对应）
+     */
+    private static final class Topology {
+
+        private final LongIntHashMap index;
+        private long[] ids;
+        private int[] types;
+        private int[][] parents;
+        private int[] parentCount;
+        private int[][] children;
+        private int[] childCount;
+        private int size;
+
+        private Topology(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            index = new LongIntHashMap(capacity);
+            ids = new long[capacity];
+            types = new int[capacity];
+            parents = new int[capacity][];
+            parentCount = new int[capacity];
+            children = new int[capacity][];
+            childCount = new int[capacity];
+        }
+
+        /**
+         * 获取节点下标，不存在时创建；type 非 UNKNOWN_TYPE 时更新节点类型
+         */
+        private int node(long id, int type) {
+            int node = index.get(id);
+            if (node < 0) {
+                if (size == ids.length) {
+                    grow();
+                }
+                node = size++;
+                ids[node] = id;
+                index.put(id, node);
+            }
+            if (type != UNKNOWN_TYPE) {
+                types[node] = type;
+            }
+            return node;
+        }
+
+        private void grow() {
+            int capacity = ids.length << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            parentCount = Arrays.copyOf(parentCount, capacity);
+            children = Arrays.copyOf(children, capacity);
+            childCount = Arrays.copyOf(childCount, capacity);
+        }
+
+        private void link(int child, int parent) {
+            parents[child] = append(parents[child], parentCount[child]++, parent);
+            children[parent] = append(children[parent], childCount[parent]++, child);
+        }
+
+        private void unlink(int child, int parent, boolean allCopies) {
+            int removed = remove(parents[child], parentCount[child], parent, allCopies);
+            parentCount[child] -= removed;
+            childCount[parent] -= remove(children[parent], childCount[parent], child, allCopies);
+        }
+
+        private static int[] append(int[] array, int count, int value) {
+            if (array == null) {
+                array = new int[2];
+            } else if (count == array.length) {
+                array = Arrays.copyOf(array, count << 1);
+            }
+            array[count] = value;
+            return array;
+        }
+
+        /**
+         * 从数组前 count 个元素中删除 value（与末尾元素交换），返回删除的个数
+         */
+        private static int remove(int[] array, int count, int value, boolean all) {
+            int removed = 0;
+            for (int i = 0; i < count - removed; ) {
+                if (array[i] == value) {
+                    array[i] = array[count - removed - 1];
+                    removed++;
+                    if (!all) {
+                        break;
+                    }
+                } else {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        private long[] toIds(int[] nodes, int count) {
+            long[] result = new long[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = ids[nodes[i]];
+            }
+            return result;
+        }
+
+        /**
+         * 广度优先遍历，结果按层级距离由近到远排序
+         *
+         * @param upward     true-沿上级方向，false-沿下级方向
+         * @param expandType 只展开该类型节点（起点除外）的相邻节点，为null时展开全部
+         */
+        private long[] traverse(long id, boolean upward, Integer typeFilter, Integer expandType) {
+            int start = index.get(id);
+            if (start < 0) {
+                return EMPTY;
+            }
+            int[][] adjacency = upward ? parents : children;
+            int[] counts = upward ? parentCount : childCount;
+
+            BitSet visited = new BitSet(size);
+            int[] queue = new int[size];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            visited.set(start);
+            while (head < tail) {
+                int current = queue[head++];
+                if (expandType != null && current != start && types[current] != expandType) {
+                    continue;
+                }
+                int[] adjacent = adjacency[current];
+                for (int i = 0; i < counts[current]; i++) {
+                    int next = adjacent[i];
+                    if (!visited.get(next)) {
+                        visited.set(next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            long[] result = new long[tail - 1];
+            int count = 0;
+            for (int i = 1; i < tail; i++) {
+                int node = queue[i];
+                if (typeFilter == null || types[node] == typeFilter) {
+                    result[count++] = ids[node];
+                }
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }
+    }
+}
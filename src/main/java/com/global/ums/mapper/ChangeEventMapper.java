@@ -0,0 +1,56 @@
+package com.global.ums.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.global.ums.entity.ChangeEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 变更事件Mapper接口
+ */
+@Mapper
+public interface ChangeEventMapper extends BaseMapper<ChangeEvent> {
+
+    /**
+     * 批量写入变更事件
+     *
+     * @param list 变更事件
+     * @return 影响行数
+     */
+    int batchInsert(@Param("list") List<ChangeEvent> list);
+
+    /**
+     * 查询指定游标之后的事件（按ID升序）
+     *
+     * @param afterId 游标（不含）
+     * @param limit 最多返回条数
+     */
+    List<ChangeEvent> selectAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 以加锁读（FOR SHARE NOWAIT）查询ID区间内的事件，用于确认事件ID空洞
+     * 区间内有未提交事务写入的行时立即失败（CannotAcquireLockException），否则返回区间内已提交的事件
+     *
+     * @param fromId 起始ID（含）
+     * @param toId 结束ID（不含）
+     */
+    List<ChangeEvent> selectRangeLocked(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 查询最大事件ID
+     *
+     * @return 最大事件ID，没有事件时返回null
+     */
+    Long selectMaxId();
+
+    /**
+     * 删除超过保留期的事件
+     *
+     * @param retentionDays 保留天数
+     * @param limit 单次最多删除条数
+     * @return 删除行数
+     */
+    int deleteExpired(@Param("retentionDays") int retentionDays, @Param("limit") int limit);
+}
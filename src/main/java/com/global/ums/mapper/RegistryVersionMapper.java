@@ -0,0 +1,21 @@
+package com.global.ums.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.global.ums.entity.RegistryVersion;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 配置注册表版本Mapper接口
+ */
+@Mapper
+public interface RegistryVersionMapper extends BaseMapper<RegistryVersion> {
+
+    /**
+     * 递增注册表版本号，版本行不存在时以1创建
+     *
+     * @param name 注册表名称
+     * @return 影响行数
+     */
+    int bump(@Param("name") String name);
+}
@@ -0,0 +1,40 @@
+package com.global.ums.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.global.ums.dto.DescendantDTO;
+import com.global.ums.entity.UserGroupClosure;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 用户组闭包Mapper接口
+ */
+@Mapper
+public interface UserGroupClosureMapper extends BaseMapper<UserGroupClosure> {
+
+    /**
+     * 批量写入闭包记录，已存在时保留较小的层级距离
+     *
+     * @param list 闭包记录
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("list") List<UserGroupClosure> list);
+
+    /**
+     * 按用户ID游标分页查询后代
+     *
+     * @param ancestorId 祖先用户ID
+     * @param maxDepth 最大层级距离，为null时不限制
+     * @param type 用户类型，为null时不过滤
+     * @param lastId 上一页最后一个用户ID，为null时从头开始
+     * @param limit 最大返回条数
+     * @return 后代列表（按用户ID升序）
+     */
+    List<DescendantDTO> selectDescendantPage(@Param("ancestorId") Long ancestorId,
+                                             @Param("maxDepth") Integer maxDepth,
+                                             @Param("type") Integer type,
+                                             @Param("lastId") Long lastId,
+                                             @Param("limit") int limit);
+}
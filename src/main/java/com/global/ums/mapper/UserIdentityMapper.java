@@ -0,0 +1,23 @@
+package com.global.ums.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.global.ums.entity.UserIdentity;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 用户外部身份索引Mapper接口
+ */
+@Mapper
+public interface UserIdentityMapper extends BaseMapper<UserIdentity> {
+
+    /**
+     * 批量写入身份索引，身份标识已存在时改为指向新用户（后写入者生效）
+     *
+     * @param list 身份索引记录
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("list") List<UserIdentity> list);
+}
@@ -1,12 +1,33 @@
 package com.global.ums.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.global.ums.entity.User;
+import com.global.ums.query.PlannedPredicate;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 用户Mapper接口
  */
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
-} 
\ No newline at end of file
+
+    /**
+     * 按用户字段和属性条件分页查询用户
+     *
+     * @param page 分页参数
+     * @param type 用户类型，为null时不过滤
+     * @param uniqueId 唯一标识（模糊匹配），为空时不过滤
+     * @param userIds 限定的用户ID范围，为null时不限定
+     * @param predicates 规划后的属性条件，第一个为驱动条件
+     */
+    IPage<User> selectPageByPredicates(IPage<User> page,
+                                       @Param("type") Integer type,
+                                       @Param("uniqueId") String uniqueId,
+                                       @Param("userIds") Collection<Long> userIds,
+                                       @Param("predicates") List<PlannedPredicate> predicates);
+}
@@ -1,12 +1,71 @@
 package com.global.ums.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.global.ums.entity.UserProperties;
+import com.global.ums.query.PlannedPredicate;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 用户属性Mapper接口
  */
 @Mapper
 public interface UserPropertiesMapper extends BaseMapper<UserProperties> {
-} 
\ No newline at end of file
+
+    /**
+     * 查询用户自身及所有祖先用户的属性（按层级距离由近到远排序）
+     *
+     * @param userId 用户ID
+     * @return 属性列表（填充 userType 和 depth）
+     */
+    List<UserProperties> selectSelfAndAncestorProperties(@Param("userId") Long userId);
+
+    /**
+     * 按条件只查询属性的 id、userId、key，不读取属性值
+     *
+     * @param queryWrapper 查询条件
+     * @return 属性列表
+     */
+    List<UserProperties> selectKeysByWrapper(@Param(Constants.WRAPPER) Wrapper<UserProperties> queryWrapper);
+
+    /**
+     * 按 (user_id, key) 批量插入或覆盖属性
+     *
+     * @param list 已计算派生列的属性列表
+     * @return 受影响行数
+     */
+    int batchUpsert(@Param("list") List<UserProperties> list);
+
+    /**
+     * 按ID批量更新影子列（value_long / value_bool / value_str_prefix），只更新 value_hash 未变化的行
+     *
+     * @param list 已计算影子列的属性，需包含 id 和读取时的 valueHash
+     * @return 更新的行数
+     */
+    int batchUpdateTypedColumns(@Param("list") List<UserProperties> list);
+
+    /**
+     * 估算单个属性条件的匹配行数
+     *
+     * @param pred 规划后的属性条件
+     * @param cap 最多计数的行数
+     */
+    long countPredicateMatches(@Param("pred") PlannedPredicate pred, @Param("cap") int cap);
+
+    /**
+     * 按属性条件游标分页查询用户ID（升序）
+     *
+     * @param predicates 规划后的属性条件，第一个为驱动条件
+     * @param type 用户类型，为null时不过滤
+     * @param lastId 上一页最后一个用户ID，为null时从头开始
+     * @param limit 最多返回条数
+     */
+    List<Long> selectUserIdsByPredicates(@Param("predicates") List<PlannedPredicate> predicates,
+                                         @Param("type") Integer type,
+                                         @Param("lastId") Long lastId,
+                                         @Param("limit") int limit);
+}
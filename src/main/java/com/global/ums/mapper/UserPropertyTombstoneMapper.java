@@ -0,0 +1,32 @@
+package com.global.ums.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.global.ums.entity.UserPropertyTombstone;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 用户属性删除标记Mapper接口
+ */
+@Mapper
+public interface UserPropertyTombstoneMapper extends BaseMapper<UserPropertyTombstone> {
+
+    /**
+     * 批量写入删除标记，同一 (user_id, key) 已存在时更新版本号
+     *
+     * @param list 删除标记
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("list") List<UserPropertyTombstone> list);
+
+    /**
+     * 查询用户在指定版本之后删除且当前未重新创建的属性
+     *
+     * @param userId 用户ID
+     * @param since 起始版本（不含）
+     * @return 删除标记，按版本号升序
+     */
+    List<UserPropertyTombstone> selectSince(@Param("userId") Long userId, @Param("since") long since);
+}
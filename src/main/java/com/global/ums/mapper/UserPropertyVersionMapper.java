@@ -0,0 +1,23 @@
+package com.global.ums.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.global.ums.entity.UserPropertyVersion;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 用户属性版本序列Mapper接口
+ */
+@Mapper
+public interface UserPropertyVersionMapper extends BaseMapper<UserPropertyVersion> {
+
+    /**
+     * 为用户分配一段连续的版本号，分配后的最大版本号回填到 sequence.version
+     * 序列行的行锁持有到事务提交，同一用户的写入按版本号顺序提交
+     *
+     * @param sequence 用户序列（userId 必填）
+     * @param count 分配的版本号个数
+     * @return 影响行数
+     */
+    int allocate(@Param("sequence") UserPropertyVersion sequence, @Param("count") int count);
+}
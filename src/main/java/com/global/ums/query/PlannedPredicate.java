@@ -0,0 +1,84 @@
+package com.global.ums.query;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 规划后的属性过滤条件：已确定匹配的影子列和参数类型，由 UserPropertiesMapper.predicateCondition 片段渲染
+ */
+@Data
+public class PlannedPredicate {
+
+    public static final String KIND_EXISTS = "exists";
+    public static final String KIND_MATCH = "match";
+    public static final String KIND_RANGE = "range";
+    public static final String KIND_PREFIX = "prefix";
+
+    public static final String COLUMN_LONG = "value_long";
+    public static final String COLUMN_BOOL = "value_bool";
+    public static final String COLUMN_STR_PREFIX = "value_str_prefix";
+    public static final String COLUMN_HASH = "value_hash";
+
+    /**
+     * 属性键
+     */
+    private String key;
+
+    /**
+     * 条件类型：exists / match（EQ 与 IN）/ range / prefix
+     */
+    private String kind;
+
+    /**
+     * 匹配的影子列，exists 时为空
+     */
+    private String column;
+
+    /**
+     * match 的取值（已转换为列对应的类型）
+     */
+    private List<Object> values;
+
+    /**
+     * match 中无法按声明类型解析的取值所匹配的列（value_str_prefix / value_hash），没有时为空
+     * 这些值写入时同样无法解析，保存在文本影子列中，与 column 上的匹配为 OR 关系
+     */
+    private String textColumn;
+
+    /**
+     * textColumn 的取值
+     */
+    private List<Object> textValues;
+
+    /**
+     * range 下界（含）
+     */
+    private Object from;
+
+    /**
+     * range 上界（含）
+     */
+    private Object to;
+
+    /**
+     * prefix 对 value_str_prefix 的 LIKE 模式
+     */
+    private String pattern;
+
+    /**
+     * prefix 超出前缀长度时对完整值的 LIKE 模式
+     */
+    private String valuePattern;
+
+    /**
+     * 估算的匹配行数（上限为 PropertyQueryEngine.ESTIMATE_CAP）
+     */
+    private long estimate;
+
+    /**
+     * 作为驱动条件时是否沿 (key, user_id) 索引按用户ID顺序读取、逐行校验取值
+     * 范围、前缀条件在取值索引上无法按用户ID有序读取，匹配行数达到估算上限时逐行校验比排序全部匹配行代价更低
+     */
+    private boolean scanByUser;
+}
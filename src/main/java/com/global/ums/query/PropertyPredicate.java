@@ -0,0 +1,120 @@
+package com.global.ums.query;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户属性过滤条件，对单个属性键的取值约束，多个条件之间为 AND 关系
+ * 取值统一以字符串传入，按 ums_property_keys.data_type 解析后匹配对应的影子列
+ */
+@Data
+public class PropertyPredicate {
+
+    /**
+     * 属性键
+     */
+    private String key;
+
+    /**
+     * 操作符
+     */
+    private Op op;
+
+    /**
+     * EQ / PREFIX 的取值
+     */
+    private String value;
+
+    /**
+     * IN 的取值列表
+     */
+    private List<String> values;
+
+    /**
+     * RANGE 下界（含），为空时不限
+     */
+    private String from;
+
+    /**
+     * RANGE 上界（含），为空时不限
+     */
+    private String to;
+
+    public static PropertyPredicate eq(String key, String value) {
+        PropertyPredicate predicate = of(key, Op.EQ);
+        predicate.setValue(value);
+        return predicate;
+    }
+
+    public static PropertyPredicate in(String key, List<String> values) {
+        PropertyPredicate predicate = of(key, Op.IN);
+        predicate.setValues(new ArrayList<>(values));
+        return predicate;
+    }
+
+    public static PropertyPredicate range(String key, String from, String to) {
+        PropertyPredicate predicate = of(key, Op.RANGE);
+        predicate.setFrom(from);
+        predicate.setTo(to);
+        return predicate;
+    }
+
+    public static PropertyPredicate prefix(String key, String prefix) {
+        PropertyPredicate predicate = of(key, Op.PREFIX);
+        predicate.setValue(prefix);
+        return predicate;
+    }
+
+    public static PropertyPredicate exists(String key) {
+        return of(key, Op.EXISTS);
+    }
+
+    private static PropertyPredicate of(String key, Op op) {
+        PropertyPredicate predicate = new PropertyPredicate();
+        predicate.setKey(key);
+        predicate.setOp(op);
+        return predicate;
+    }
+
+    /**
+     * 过滤操作符
+     */
+    public enum Op {
+
+        /**
+         * 等于
+         */
+        EQ,
+
+        /**
+         * 属于取值列表
+         */
+        IN,
+
+        /**
+         * 闭区间范围（整数类型按数值比较，其余按字符串前缀的字节序比较）
+         */
+        RANGE,
+
+        /**
+         * 字符串前缀匹配
+         */
+        PREFIX,
+
+        /**
+         * 拥有该属性（不限取值）
+         */
+        EXISTS;
+
+        /**
+         * 反序列化时不区分大小写
+         */
+        @JsonCreator
+        public static Op fromName(String name) {
+            return name == null ? null : Op.valueOf(name.trim().toUpperCase());
+        }
+    }
+}
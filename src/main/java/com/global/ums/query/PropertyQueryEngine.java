@@ -0,0 +1,371 @@
+package com.global.ums.query;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.global.ums.dto.UserIdPageDTO;
+import com.global.ums.entity.PropertyKeys;
+import com.global.ums.entity.User;
+import com.global.ums.enums.DataType;
+import com.global.ums.mapper.UserMapper;
+import com.global.ums.mapper.UserPropertiesMapper;
+import com.global.ums.service.PropertyKeysService;
+import com.global.ums.utils.DataTypeUtils;
+import com.global.ums.utils.StringUtils;
+import com.global.ums.utils.ValueHashUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用户属性条件查询引擎
+ * 将 PropertyPredicate 的合取式规划到 ums_user_properties 的 (key, value_long, user_id) / (key, value_bool, user_id) /
+ * (key, value_str_prefix, user_id) / (key, value_hash, user_id) 索引上，以估算匹配行数最少的条件作为驱动条件，
+ * 其余条件按选择性由高到低以 EXISTS 校验；估算结果按条件短时间缓存
+ * 驱动条件从游标处按用户ID顺序读取（等值匹配逐个取值定位，EXISTS 以及匹配行较多的范围、前缀条件沿 (key, user_id) 扫描），
+ * 每页只读取不超过页大小的行，不对全部匹配行排序
+ */
+@Component
+public class PropertyQueryEngine {
+
+    /**
+     * 选择性估算时单个条件最多计数的行数
+     */
+    private static final int ESTIMATE_CAP = 10000;
+
+    @Autowired
+    private UserPropertiesMapper userPropertiesMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private PropertyKeysService propertyKeysService;
+
+    @Value("${property.query.estimate-cache.maximum-size:10000}")
+    private long estimateCacheSize;
+
+    @Value("${property.query.estimate-cache.expire-seconds:60}")
+    private long estimateCacheExpireSeconds;
+
+    /**
+     * 条件 -> 估算的匹配行数，只用于排序，允许短时间内不准确
+     */
+    private Cache<List<Object>, Long> estimates;
+
+    @PostConstruct
+    public void init() {
+        estimates = Caffeine.newBuilder()
+                .maximumSize(estimateCacheSize)
+                .expireAfterWrite(estimateCacheExpireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 按属性条件游标分页查询用户ID
+     *
+     * @param predicates 属性过滤条件（AND 关系），为空时只按用户类型过滤
+     * @param type 用户类型，为空时不过滤
+     * @param lastId 上一页返回的 nextLastId，为null时从头开始
+     * @param pageSize 每页条数
+     */
+    public UserIdPageDTO searchUserIds(List<PropertyPredicate> predicates, Integer type, Long lastId, int pageSize) {
+        UserIdPageDTO page = new UserIdPageDTO();
+        List<PlannedPredicate> planned = plan(predicates);
+        List<Long> userIds;
+        if (planned == null) {
+            userIds = new ArrayList<>();
+        } else if (planned.isEmpty()) {
+            // 多取一条用于判断是否还有下一页
+            userIds = userMapper.selectList(new LambdaQueryWrapper<User>()
+                            .select(User::getId)
+                            .eq(type != null, User::getType, type)
+                            .gt(lastId != null, User::getId, lastId)
+                            .orderByAsc(User::getId)
+                            .last("LIMIT " + (pageSize + 1)))
+                    .stream().map(User::getId).collect(Collectors.toList());
+        } else {
+            userIds = userPropertiesMapper.selectUserIdsByPredicates(planned, type, lastId, pageSize + 1);
+        }
+        if (userIds.size() > pageSize) {
+            userIds = new ArrayList<>(userIds.subList(0, pageSize));
+            page.setNextLastId(userIds.get(pageSize - 1));
+        }
+        page.setUserIds(userIds);
+        return page;
+    }
+
+    /**
+     * 按用户字段和属性条件分页查询用户
+     *
+     * @param userIds 限定的用户ID范围，为null时不限定
+     * @param predicates 属性过滤条件（AND 关系），可为空
+     */
+    public Page<User> pageUsers(Page<User> page, Integer type, String uniqueId, Collection<Long> userIds,
+                                List<PropertyPredicate> predicates) {
+        List<PlannedPredicate> planned = plan(predicates);
+        if (planned == null || (userIds != null && userIds.isEmpty())) {
+            return new Page<>(page.getCurrent(), page.getSize());
+        }
+        userMapper.selectPageByPredicates(page, type, uniqueId, userIds, planned);
+        return page;
+    }
+
+    /**
+     * 规划过滤条件：解析取值并选择影子列，多个条件时估算各自的匹配行数并按选择性排序，
+     * 再按驱动条件的类型和估算行数确定其读取方式
+     *
+     * @return 排好序的条件，第一个为驱动条件；任一条件不可能匹配时返回null
+     */
+    public List<PlannedPredicate> plan(List<PropertyPredicate> predicates) {
+        List<PlannedPredicate> planned = new ArrayList<>();
+        if (predicates == null || predicates.isEmpty()) {
+            return planned;
+        }
+        for (PropertyPredicate predicate : predicates) {
+            planned.add(resolve(predicate));
+        }
+        if (planned.size() > 1) {
+            for (PlannedPredicate predicate : planned) {
+                long estimate = estimate(predicate);
+                if (estimate == 0) {
+                    return null;
+                }
+                predicate.setEstimate(estimate);
+            }
+            planned.sort(Comparator.comparingLong(PlannedPredicate::getEstimate)
+                    .thenComparingInt(PropertyQueryEngine::kindRank));
+        }
+        PlannedPredicate driver = planned.get(0);
+        switch (driver.getKind()) {
+            case PlannedPredicate.KIND_EXISTS:
+                driver.setScanByUser(true);
+                break;
+            case PlannedPredicate.KIND_RANGE:
+            case PlannedPredicate.KIND_PREFIX:
+                // 单个条件时尚未估算
+                long rows = planned.size() > 1 ? driver.getEstimate() : estimate(driver);
+                if (rows == 0) {
+                    return null;
+                }
+                driver.setEstimate(rows);
+                driver.setScanByUser(rows >= ESTIMATE_CAP);
+                break;
+            default:
+                break;
+        }
+        return planned;
+    }
+
+    private PlannedPredicate resolve(PropertyPredicate predicate) {
+        if (predicate == null || StringUtils.isEmpty(predicate.getKey()) || predicate.getOp() == null) {
+            throw new IllegalArgumentException("过滤条件的 key 和 op 不能为空");
+        }
+        PlannedPredicate planned = new PlannedPredicate();
+        planned.setKey(predicate.getKey());
+        DataType dataType = getDeclaredDataType(predicate.getKey());
+        switch (predicate.getOp()) {
+            case EQ:
+                resolveMatch(planned, dataType, requireValues(predicate, singleton(predicate.getValue())));
+                break;
+            case IN:
+                resolveMatch(planned, dataType, requireValues(predicate, predicate.getValues()));
+                break;
+            case RANGE:
+                resolveRange(planned, dataType, predicate);
+                break;
+            case PREFIX:
+                resolvePrefix(planned, requireValues(predicate, singleton(predicate.getValue())).get(0));
+                break;
+            default:
+                planned.setKind(PlannedPredicate.KIND_EXISTS);
+                break;
+        }
+        return planned;
+    }
+
+    /**
+     * EQ / IN：整数、布尔类型的键匹配对应影子列；无法按声明类型解析的取值写入时同样无法解析、保存在文本影子列中，
+     * 对这些取值按文本匹配（与类型化匹配为 OR 关系）
+     */
+    private void resolveMatch(PlannedPredicate planned, DataType dataType, List<String> values) {
+        planned.setKind(PlannedPredicate.KIND_MATCH);
+        if (dataType == DataType.INTEGER || dataType == DataType.LONG) {
+            matchTyped(planned, PlannedPredicate.COLUMN_LONG, dataType, values, DataTypeUtils::parseLong);
+        } else if (dataType == DataType.BOOLEAN) {
+            matchTyped(planned, PlannedPredicate.COLUMN_BOOL, dataType, values, DataTypeUtils::parseBoolean);
+        } else {
+            planned.setColumn(textColumn(dataType, values));
+            planned.setValues(textValues(planned.getColumn(), values));
+        }
+    }
+
+    private void matchTyped(PlannedPredicate planned, String column, DataType dataType, List<String> values,
+                            Function<String, Object> parser) {
+        List<Object> parsed = new ArrayList<>();
+        List<String> unparsed = new ArrayList<>();
+        for (String value : values) {
+            Object typed = parser.apply(value);
+            if (typed == null) {
+                unparsed.add(value);
+            } else if (!parsed.contains(typed)) {
+                parsed.add(typed);
+            }
+        }
+        if (parsed.isEmpty()) {
+            planned.setColumn(textColumn(dataType, unparsed));
+            planned.setValues(textValues(planned.getColumn(), unparsed));
+            return;
+        }
+        planned.setColumn(column);
+        planned.setValues(parsed);
+        if (!unparsed.isEmpty()) {
+            planned.setTextColumn(textColumn(dataType, unparsed));
+            planned.setTextValues(textValues(planned.getTextColumn(), unparsed));
+        }
+    }
+
+    /**
+     * 文本在前缀影子列中完整保存时匹配 value_str_prefix，否则按 value_hash 匹配
+     */
+    private static String textColumn(DataType dataType, List<String> values) {
+        boolean fitsPrefix = values.stream().allMatch(DataTypeUtils::fitsStrPrefix);
+        return dataType != DataType.BINARY && fitsPrefix ? PlannedPredicate.COLUMN_STR_PREFIX : PlannedPredicate.COLUMN_HASH;
+    }
+
+    private static List<Object> textValues(String column, List<String> values) {
+        if (PlannedPredicate.COLUMN_STR_PREFIX.equals(column)) {
+            return new ArrayList<>(values);
+        }
+        return values.stream()
+                .<Object>map(value -> ValueHashUtils.hash(value.getBytes(StandardCharsets.UTF_8)))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RANGE：整数类型的键在上下界都能解析时按数值比较，否则按 value_str_prefix 的字节序比较（超出前缀长度的部分不参与比较）
+     */
+    private void resolveRange(PlannedPredicate planned, DataType dataType, PropertyPredicate predicate) {
+        String from = predicate.getFrom();
+        String to = predicate.getTo();
+        if (from == null && to == null) {
+            throw new IllegalArgumentException("范围条件至少需要指定 from 或 to: " + predicate.getKey());
+        }
+        planned.setKind(PlannedPredicate.KIND_RANGE);
+        if (dataType == DataType.INTEGER || dataType == DataType.LONG) {
+            Long fromLong = DataTypeUtils.parseLong(from);
+            Long toLong = DataTypeUtils.parseLong(to);
+            if ((from == null || fromLong != null) && (to == null || toLong != null)) {
+                planned.setColumn(PlannedPredicate.COLUMN_LONG);
+                planned.setFrom(fromLong);
+                planned.setTo(toLong);
+                return;
+            }
+        }
+        planned.setColumn(PlannedPredicate.COLUMN_STR_PREFIX);
+        planned.setFrom(from == null ? null : DataTypeUtils.toStrPrefix(from));
+        planned.setTo(to);
+    }
+
+    /**
+     * PREFIX：按 value_str_prefix 匹配；前缀超出影子列长度时影子列需完全相等，并追加对完整值的匹配
+     * （压缩保存的值无法在数据库中匹配完整值，不会被超长前缀命中）
+     */
+    private void resolvePrefix(PlannedPredicate planned, String prefix) {
+        planned.setKind(PlannedPredicate.KIND_PREFIX);
+        planned.setColumn(PlannedPredicate.COLUMN_STR_PREFIX);
+        String head = DataTypeUtils.toStrPrefix(prefix);
+        if (head.length() == prefix.length()) {
+            planned.setPattern(escapeLike(prefix) + "%");
+        } else {
+            planned.setPattern(escapeLike(head));
+            planned.setValuePattern(escapeLike(prefix) + "%");
+        }
+    }
+
+    private List<String> requireValues(PropertyPredicate predicate, List<String> values) {
+        Set<String> distinct = new LinkedHashSet<>();
+        if (values != null) {
+            values.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("过滤条件缺少取值: " + predicate.getKey());
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    private static List<String> singleton(String value) {
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        return values;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 估算条件的匹配行数；0 表示不可能匹配、会直接返回空结果，不缓存，以免新写入的行在缓存期内查不到
+     */
+    private long estimate(PlannedPredicate predicate) {
+        List<Object> key = estimateKey(predicate);
+        Long cached = estimates.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long estimate = userPropertiesMapper.countPredicateMatches(predicate, ESTIMATE_CAP);
+        if (estimate > 0) {
+            estimates.put(key, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * 估算缓存的键：决定匹配行的全部字段（不含估算结果本身）
+     */
+    private static List<Object> estimateKey(PlannedPredicate predicate) {
+        return Arrays.asList(predicate.getKey(), predicate.getKind(), predicate.getColumn(), predicate.getValues(),
+                predicate.getTextColumn(), predicate.getTextValues(), predicate.getFrom(), predicate.getTo(),
+                predicate.getPattern(), predicate.getValuePattern());
+    }
+
+    /**
+     * 估算行数相同时的次序：等值匹配优先，EXISTS 最后
+     */
+    private static int kindRank(PlannedPredicate predicate) {
+        switch (predicate.getKind()) {
+            case PlannedPredicate.KIND_MATCH:
+                return 0;
+            case PlannedPredicate.KIND_PREFIX:
+                return 1;
+            case PlannedPredicate.KIND_RANGE:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    private DataType getDeclaredDataType(String key) {
+        PropertyKeys propertyKey = propertyKeysService.getByKey(key);
+        if (propertyKey == null || propertyKey.getDataType() == null) {
+            return DataType.UNKNOWN;
+        }
+        return DataType.fromValue(propertyKey.getDataType());
+    }
+}
@@ -0,0 +1,131 @@
+package com.global.ums.registry;
+
+import com.global.ums.entity.PropertyKeyItems;
+import com.global.ums.entity.PropertyKeys;
+import com.global.ums.utils.MessageUtils;
+import com.global.ums.utils.SpringUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 属性键描述，PropertyKeyRegistry 快照中的不可变条目，包含属性键配置、枚举项及预先构建的优先级查找表
+ */
+public final class KeyDescriptor {
+
+    private final Long id;
+    private final String key;
+    private final Integer dataType;
+    private final String description;
+    private final Long maxSize;
+    private final Integer scope;
+    private final Integer hidden;
+    private final Integer compression;
+
+    /**
+     * 生成该描述的属性键配置的副本，不对外暴露，getPropertyKeys 每次返回新的副本
+     */
+    private final PropertyKeys propertyKeys;
+
+    /**
+     * 枚举项，按优先级排序（不可修改）
+     */
+    private final List<PropertyKeyItems> items;
+
+    /**
+     * 枚举值 -> 优先级查找表
+     */
+    private final PriorityTable priorities;
+
+    KeyDescriptor(PropertyKeys propertyKeys, List<PropertyKeyItems> items) {
+        this.id = propertyKeys.getId();
+        this.key = propertyKeys.getKey();
+        this.dataType = propertyKeys.getDataType();
+        this.description = propertyKeys.getDescription();
+        this.maxSize = propertyKeys.getSize();
+        this.scope = propertyKeys.getScope();
+        this.hidden = propertyKeys.getHidden();
+        this.compression = propertyKeys.getCompression();
+        this.propertyKeys = copy(propertyKeys);
+        this.items = items.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(items);
+        this.priorities = PriorityTable.of(items);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Integer getDataType() {
+        return dataType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Long getMaxSize() {
+        return maxSize;
+    }
+
+    public Integer getScope() {
+        return scope;
+    }
+
+    public Integer getHidden() {
+        return hidden;
+    }
+
+    public Integer getCompression() {
+        return compression;
+    }
+
+    /**
+     * 属性键配置的副本，调用方修改不影响快照
+     */
+    public PropertyKeys getPropertyKeys() {
+        return copy(propertyKeys);
+    }
+
+    public List<PropertyKeyItems> getItems() {
+        return items;
+    }
+
+    public PriorityTable getPriorities() {
+        return priorities;
+    }
+
+    /**
+     * 获取国际化描述
+     * 根据当前语言环境返回对应的配置描述，找不到国际化消息时返回原始描述
+     *
+     * @return 国际化的配置描述
+     */
+    public String getI18nDescription() {
+        if (key == null || key.isEmpty()) {
+            return description;
+        }
+        try {
+            MessageUtils messageUtils = SpringUtils.getBean(MessageUtils.class);
+            return messageUtils.getMessage("key.config." + key, description);
+        } catch (Exception e) {
+            return description;
+        }
+    }
+
+    private static PropertyKeys copy(PropertyKeys source) {
+        PropertyKeys copy = new PropertyKeys();
+        copy.setId(source.getId());
+        copy.setKey(source.getKey());
+        copy.setDataType(source.getDataType());
+        copy.setDescription(source.getDescription());
+        copy.setSize(source.getSize());
+        copy.setScope(source.getScope());
+        copy.setHidden(source.getHidden());
+        copy.setCompression(source.getCompression());
+        return copy;
+    }
+}
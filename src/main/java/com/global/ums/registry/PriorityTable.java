@@ -0,0 +1,98 @@
+package com.global.ums.registry;
+
+import com.global.ums.entity.PropertyKeyItems;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 单个属性键的枚举项优先级查找表（不可变）
+ * 以枚举值的 UTF-8 字节为键，开放寻址存储，查找时直接比较属性值字节，不解码字符串也不分配对象
+ */
+public final class PriorityTable {
+
+    /**
+     * 未配置枚举项时的优先级（最低）
+     */
+    public static final int LOWEST = Integer.MAX_VALUE;
+
+    /**
+     * 没有任何枚举项的空表
+     */
+    public static final PriorityTable EMPTY = new PriorityTable(new byte[1][], new int[1], 0);
+
+    private final byte[][] values;
+    private final int[] priorities;
+    private final int size;
+
+    private PriorityTable(byte[][] values, int[] priorities, int size) {
+        this.values = values;
+        this.priorities = priorities;
+        this.size = size;
+    }
+
+    /**
+     * 由枚举项构建查找表，忽略枚举值或优先级为空的项；枚举值重复时后出现的覆盖先出现的
+     */
+    public static PriorityTable of(Collection<PropertyKeyItems> items) {
+        int count = 0;
+        for (PropertyKeyItems item : items) {
+            if (item.getItemValue() != null && item.getPriority() != null) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        // 负载因子不超过 0.5
+        int capacity = Integer.highestOneBit(count * 2 - 1) << 1;
+        byte[][] values = new byte[capacity][];
+        int[] priorities = new int[capacity];
+        int size = 0;
+        for (PropertyKeyItems item : items) {
+            if (item.getItemValue() == null || item.getPriority() == null) {
+                continue;
+            }
+            byte[] value = item.getItemValue().getBytes(StandardCharsets.UTF_8);
+            int slot = slot(values, value);
+            if (values[slot] == null) {
+                values[slot] = value;
+                size++;
+            }
+            priorities[slot] = item.getPriority();
+        }
+        return new PriorityTable(values, priorities, size);
+    }
+
+    /**
+     * 获取属性值的优先级，值越小优先级越高，不是枚举值（或为null）时返回 LOWEST
+     */
+    public int priorityOf(byte[] value) {
+        if (value == null || size == 0) {
+            return LOWEST;
+        }
+        int slot = slot(values, value);
+        return values[slot] == null ? LOWEST : priorities[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 线性探测：返回 value 所在的槽位，不存在时返回应插入的空槽位
+     */
+    private static int slot(byte[][] values, byte[] value) {
+        int mask = values.length - 1;
+        int slot = mix(Arrays.hashCode(value)) & mask;
+        while (values[slot] != null && !Arrays.equals(values[slot], value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
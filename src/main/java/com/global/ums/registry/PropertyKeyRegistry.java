@@ -0,0 +1,98 @@
+package com.global.ums.registry;
+
+import com.global.ums.entity.PropertyKeyItems;
+import com.global.ums.entity.PropertyKeys;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 属性键注册表快照（属性键配置及其枚举项）
+ * 由 PropertyKeysServiceImpl 整体构建后通过 volatile 引用原子替换，创建后不再修改，
+ * 读取方（PropertyKeysService、KeyValidationUtils）无需加锁，也不会读到重建过程中的空缓存；
+ * 属性键配置在 KeyDescriptor 中保存副本，对外只返回副本
+ */
+public final class PropertyKeyRegistry {
+
+    /**
+     * 启动加载前的空注册表
+     */
+    public static final PropertyKeyRegistry EMPTY = new PropertyKeyRegistry(-1, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, KeyDescriptor> descriptors;
+
+    private PropertyKeyRegistry(long version, Map<String, KeyDescriptor> descriptors) {
+        this.version = version;
+        this.descriptors = Collections.unmodifiableMap(descriptors);
+    }
+
+    /**
+     * 由全部属性键配置及枚举项构建快照（忽略 key 为空的配置）
+     *
+     * @param version 注册表版本号（ums_registry_version）
+     * @param allItems 全部枚举项，按优先级排序
+     */
+    public static PropertyKeyRegistry of(long version, Collection<PropertyKeys> allKeys, Collection<PropertyKeyItems> allItems) {
+        Map<String, List<PropertyKeyItems>> itemsByKey = new HashMap<>();
+        for (PropertyKeyItems item : allItems) {
+            if (item.getKey() != null) {
+                itemsByKey.computeIfAbsent(item.getKey(), k -> new ArrayList<>()).add(item);
+            }
+        }
+        Map<String, KeyDescriptor> descriptors = new HashMap<>(allKeys.size() * 2);
+        for (PropertyKeys propertyKey : allKeys) {
+            if (propertyKey.getKey() != null && !propertyKey.getKey().isEmpty()) {
+                List<PropertyKeyItems> items = itemsByKey.getOrDefault(propertyKey.getKey(), Collections.emptyList());
+                descriptors.put(propertyKey.getKey(), new KeyDescriptor(propertyKey, items));
+            }
+        }
+        return new PropertyKeyRegistry(version, descriptors);
+    }
+
+    /**
+     * 复制当前快照并加入一个配置（缓存未命中时从数据库查到的新配置），版本号不变
+     * 调用方需确认查询期间快照版本未变化，否则查询结果可能已被重新加载的快照取代（例如配置已被删除）
+     *
+     * @param items 该属性键的枚举项，按优先级排序
+     */
+    public PropertyKeyRegistry with(PropertyKeys propertyKey, List<PropertyKeyItems> items) {
+        Map<String, KeyDescriptor> copy = new HashMap<>(descriptors);
+        copy.put(propertyKey.getKey(), new KeyDescriptor(propertyKey, items));
+        return new PropertyKeyRegistry(version, copy);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public KeyDescriptor get(String key) {
+        return key == null ? null : descriptors.get(key);
+    }
+
+    /**
+     * 全部属性键描述（不可修改）
+     */
+    public Map<String, KeyDescriptor> getDescriptors() {
+        return descriptors;
+    }
+
+    /**
+     * 全部属性键配置的副本（不可修改）
+     */
+    public Map<String, PropertyKeys> getPropertyKeys() {
+        Map<String, PropertyKeys> byKey = new HashMap<>(descriptors.size() * 2);
+        for (Map.Entry<String, KeyDescriptor> entry : descriptors.entrySet()) {
+            byKey.put(entry.getKey(), entry.getValue().getPropertyKeys());
+        }
+        return Collections.unmodifiableMap(byKey);
+    }
+
+    public int size() {
+        return descriptors.size();
+    }
+}
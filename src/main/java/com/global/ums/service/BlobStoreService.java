@@ -0,0 +1,59 @@
+package com.global.ums.service;
+
+import com.global.ums.dto.BlobIngestDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 属性值外部存储服务接口
+ * 大属性值与二进制属性值按 SHA-256 内容寻址存放在本地磁盘，相同内容只存一份，
+ * ums_user_properties 中只保留引用（blob_ref）
+ */
+public interface BlobStoreService {
+
+    /**
+     * 判断属性值是否需要外部存储（二进制数据或超过大小阈值）
+     *
+     * @param value 属性值
+     * @return true-需要外部存储
+     */
+    boolean shouldOffload(byte[] value);
+
+    /**
+     * 写入数据，内容已存在时直接返回引用
+     *
+     * @param value 数据
+     * @return 引用（SHA-256 十六进制字符串）
+     */
+    String put(byte[] value);
+
+    /**
+     * 读取数据
+     *
+     * @param ref 引用
+     * @return 数据，引用格式不合法时返回null
+     * @throws java.io.UncheckedIOException 文件不存在或读取失败
+     */
+    byte[] get(String ref);
+
+    /**
+     * 获取数据所在文件，用于零拷贝输出
+     *
+     * @param ref 引用
+     * @return 文件路径，不存在时返回null
+     */
+    Path locate(String ref);
+
+    /**
+     * 流式写入数据：边读取边计算摘要并检查大小，超过阈值的部分直接落盘，不在内存中缓存完整内容
+     * 小于阈值且非二进制的数据以 value 返回，由调用方保存在数据库中；
+     * 未启用外部存储时全部数据以 value 返回，大小同时受数据库容量（property.blob.max-inline-size）限制
+     *
+     * @param in 输入流（由调用方关闭）
+     * @param maxSize 最大允许字节数，为null或不大于0时不限制
+     * @return 写入结果
+     */
+    BlobIngestDTO ingest(InputStream in, Long maxSize) throws IOException;
+}
@@ -0,0 +1,52 @@
+package com.global.ums.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.global.ums.dto.ChangeFeedDTO;
+import com.global.ums.entity.ChangeEvent;
+import com.global.ums.result.AjaxResult;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+/**
+ * 变更事件服务接口（事务性 outbox）
+ * 写入方在业务事务内追加事件，事件随业务数据一起提交或回滚；消费方按事件ID游标增量拉取
+ */
+public interface ChangeEventService extends IService<ChangeEvent> {
+
+    /**
+     * 追加一条变更事件（加入调用方事务）
+     *
+     * @param aggregateType 对象类型
+     * @param aggregateId 对象ID
+     * @param op 操作
+     * @param payload 事件内容，序列化为 JSON
+     */
+    void append(String aggregateType, Long aggregateId, String op, Object payload);
+
+    /**
+     * 批量追加变更事件（加入调用方事务）
+     *
+     * @param events 变更事件
+     */
+    void appendAll(List<ChangeEvent> events);
+
+    /**
+     * 读取游标之后已提交的事件
+     * 保证：事件按ID升序返回，游标只越过已提交或已回滚的ID，提交较晚的事件不会被跳过；
+     * 事件ID出现空洞时，只返回空洞之前的事件，直到加锁读确认空洞中没有未提交的事务（长事务会推迟其后事件的返回）
+     *
+     * @param cursor 游标（不含），为null时从头读取
+     * @param limit 最多返回条数
+     */
+    ChangeFeedDTO read(Long cursor, int limit);
+
+    /**
+     * 长轮询读取：游标之后有事件时立即返回，否则等待新事件或超时（超时返回空列表）
+     *
+     * @param cursor 游标（不含），为null时从头读取
+     * @param limit 最多返回条数
+     * @param timeoutMillis 最长等待时间（毫秒）
+     */
+    DeferredResult<AjaxResult> poll(Long cursor, int limit, long timeoutMillis);
+}
@@ -0,0 +1,64 @@
+package com.global.ums.service;
+
+import com.global.ums.entity.User;
+import com.global.ums.entity.UserProperties;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 有效属性解析服务接口
+ * 合并用户自身及所有祖先用户的属性，得到最终生效的属性集合
+ * 解析结果按用户缓存（本地 + 可选 Redis），属性、层级关系或优先级配置变更时失效
+ */
+public interface EffectivePropertiesService {
+
+    /**
+     * 本地缓存失效广播频道，消息格式：节点标识 用户ID,用户ID...（* 表示全部）
+     */
+    String EVICTION_CHANNEL = "ums:effective-props:evict";
+
+    /**
+     * 解析用户的有效属性
+     * 规则：同key属性按优先级（priority值越小优先级越高）选取，优先级相同时近者优先
+     *
+     * @param userId 用户ID
+     * @return 填充了有效属性的用户，用户不存在时返回null
+     */
+    User resolve(Long userId);
+
+    /**
+     * 获取指定key在用户自身及所有祖先上的全部属性
+     * 每个key按自身在前、祖先由近到远的顺序排列
+     *
+     * @param userId 用户ID
+     * @param keys 属性键列表
+     * @return 属性列表，用户不存在时返回空列表
+     */
+    List<UserProperties> resolveAll(Long userId, List<String> keys);
+
+    /**
+     * 使用户及其所有后代的缓存失效
+     * 在事务中调用时，提交后会再次失效，避免事务期间读到的旧值被重新缓存
+     *
+     * @param userIds 发生变更的用户ID
+     */
+    void evictWithDescendants(Collection<Long> userIds);
+
+    /**
+     * 清空全部缓存（优先级或属性键配置变更时使用）
+     */
+    void evictAll();
+
+    /**
+     * 只清空本节点的本地缓存（其他节点发起的全量失效，Redis 缓存已由发起节点清理）
+     */
+    void evictLocal();
+
+    /**
+     * 应用其他节点广播的本地缓存失效（忽略本节点发布的消息）
+     *
+     * @param message 失效广播消息
+     */
+    void applyRemoteEviction(String message);
+}
@@ -3,6 +3,8 @@ package com.global.ums.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.global.ums.dto.PropertyKeysVO;
 import com.global.ums.entity.PropertyKeys;
+import com.global.ums.registry.KeyDescriptor;
+import com.global.ums.registry.PropertyKeyRegistry;
 
 import java.util.List;
 import java.util.Map;
@@ -12,26 +14,56 @@ import java.util.Map;
  */
 public interface PropertyKeysService extends IService<PropertyKeys> {
 
+    /**
+     * 当前属性键注册表快照（不可变，配置变更时整体替换）
+     */
+    PropertyKeyRegistry getRegistry();
+
+    /**
+     * 根据key获取属性键描述，快照中不存在时查询数据库
+     *
+     * @param key 属性键名
+     * @return 属性键描述，不存在时返回null
+     */
+    KeyDescriptor getDescriptor(String key);
+
     /**
      * 根据key获取配置
      *
      * @param key 属性键名
-     * @return 配置对象
+     * @return 配置对象的副本，修改不影响缓存；不存在时返回null
      */
     PropertyKeys getByKey(String key);
 
     /**
      * 获取所有配置的Map
      *
-     * @return key -> 配置对象的Map
+     * @return key -> 配置对象的Map（当前快照中配置的副本，不可修改）
      */
     Map<String, PropertyKeys> getAllKeysMap();
 
+    /**
+     * Redis 失效通知频道，消息内容为变更后的注册表版本号
+     */
+    String INVALIDATION_CHANNEL = "ums:property-keys:invalidate";
+
     /**
      * 刷新缓存
      */
     void refreshCache();
 
+    /**
+     * 属性键配置写入后调用：递增注册表版本号，重新加载本节点缓存并通知其他节点
+     */
+    void publishChange();
+
+    /**
+     * 注册表版本号与本节点已加载的版本不一致时重新加载（收到失效通知或定时检查时调用）
+     *
+     * @return 是否重新加载
+     */
+    boolean refreshIfStale();
+
     /**
      * 检查该 key 是否在 UserProperties 表中使用过
      * @param key 属性键名
@@ -0,0 +1,82 @@
+package com.global.ums.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.global.ums.dto.DescendantPageDTO;
+import com.global.ums.entity.UserGroupClosure;
+
+import java.util.List;
+
+/**
+ * 用户组闭包服务接口
+ * 维护 ums_user_group 的祖先/后代传递闭包，必须与 ums_user_group 的写操作处于同一事务
+ */
+public interface UserGroupClosureService extends IService<UserGroupClosure> {
+
+    /**
+     * 新增 userId -> parentUserId 关系后同步闭包
+     *
+     * @param userId 用户ID
+     * @param parentUserId 上级用户ID
+     */
+    void onEdgeAdded(Long userId, Long parentUserId);
+
+    /**
+     * 删除 userId -> parentUserId 关系后同步闭包（需在 ums_user_group 记录删除之后调用）
+     *
+     * @param userId 用户ID
+     * @param parentUserId 上级用户ID
+     */
+    void onEdgeRemoved(Long userId, Long parentUserId);
+
+    /**
+     * 删除与用户相关的全部闭包记录
+     *
+     * @param userId 用户ID
+     */
+    void removeUser(Long userId);
+
+    /**
+     * 获取用户的所有祖先（按层级距离由近到远排序）
+     *
+     * @param userId 用户ID
+     * @return 闭包记录列表
+     */
+    List<UserGroupClosure> getAncestors(Long userId);
+
+    /**
+     * 获取用户的所有后代（按层级距离由近到远排序）
+     *
+     * @param userId 用户ID
+     * @return 闭包记录列表
+     */
+    List<UserGroupClosure> getDescendants(Long userId);
+
+    /**
+     * 判断用户是否存在祖先（即存在上级）
+     *
+     * @param userId 用户ID
+     * @return true-存在祖先
+     */
+    boolean hasAncestors(Long userId);
+
+    /**
+     * 判断 ancestorId 是否为 descendantId 的祖先
+     *
+     * @param ancestorId 祖先用户ID
+     * @param descendantId 后代用户ID
+     * @return true-是祖先
+     */
+    boolean isAncestor(Long ancestorId, Long descendantId);
+
+    /**
+     * 按用户ID游标分页查询后代
+     *
+     * @param userId 用户ID
+     * @param maxDepth 最大层级距离，为null时不限制
+     * @param type 用户类型，为null时不过滤
+     * @param lastId 上一页返回的 nextLastId，为null时从头开始
+     * @param pageSize 每页条数
+     * @return 分页结果
+     */
+    DescendantPageDTO getDescendantPage(Long userId, Integer maxDepth, Integer type, Long lastId, int pageSize);
+}
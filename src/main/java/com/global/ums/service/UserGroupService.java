@@ -54,6 +54,37 @@ public interface UserGroupService extends IService<UserGroup> {
      * @return 是否成功
      */
     boolean addUserGroup(Long userId, Long parentUserId);
+
+    /**
+     * 保存用户组关系并同步闭包表
+     *
+     * @param userGroup 用户组关系
+     * @return 是否成功
+     */
+    boolean saveUserGroup(UserGroup userGroup);
+
+    /**
+     * 更新用户组关系并同步闭包表
+     *
+     * @param userGroup 用户组关系
+     * @return 是否成功
+     */
+    boolean updateUserGroup(UserGroup userGroup);
+
+    /**
+     * 根据ID删除用户组关系并同步闭包表
+     *
+     * @param id 用户组ID
+     * @return 是否成功
+     */
+    boolean removeUserGroup(Long id);
+
+    /**
+     * 删除用户作为子用户的所有用户组关系并同步闭包表
+     *
+     * @param userId 用户ID
+     */
+    void removeByUserId(Long userId);
     
     /**
      * 验证是否可以添加用户组关系
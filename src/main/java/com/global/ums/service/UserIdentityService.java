@@ -0,0 +1,40 @@
+package com.global.ums.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.global.ums.entity.UserIdentity;
+
+import java.util.Collection;
+
+/**
+ * 用户外部身份索引服务接口
+ * 索引由 UserPropertiesService 的写操作在同一事务内同步维护，调用方只需查询
+ */
+public interface UserIdentityService extends IService<UserIdentity> {
+
+    /**
+     * 判断属性键是否为身份标识键
+     *
+     * @param key 属性键
+     * @return true-身份标识键
+     */
+    boolean isIdentityKey(String key);
+
+    /**
+     * 根据身份标识查询用户ID
+     *
+     * @param provider 身份类型（属性键，如 username、ma_openid）
+     * @param externalId 外部身份标识
+     * @return 用户ID，不存在时返回null
+     */
+    Long getUserId(String provider, String externalId);
+
+    /**
+     * 以用户当前属性值重建该用户某一身份类型的索引
+     * 该用户不再使用的身份标识如仍是其他用户的属性值（曾被该用户接管），改为指向其中最近写入的用户
+     *
+     * @param userId 用户ID
+     * @param provider 身份类型
+     * @param values 该用户此属性键的全部当前值（为空时删除该用户此类型的全部索引）
+     */
+    void replaceIdentities(Long userId, String provider, Collection<byte[]> values);
+}
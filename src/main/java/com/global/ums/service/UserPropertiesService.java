@@ -1,10 +1,12 @@
 package com.global.ums.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.global.ums.dto.PropertyDeltaDTO;
 import com.global.ums.dto.PropertyTreeDTO;
 import com.global.ums.entity.UserProperties;
 import com.global.ums.result.AjaxResult;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -48,12 +50,100 @@ public interface UserPropertiesService extends IService<UserProperties> {
      */
     List<UserProperties> batchGetByUserIdAndKeys(Long userId, List<String> keys);
 
+    /**
+     * 一次查询获取用户自身及所有祖先用户的属性
+     * 结果填充 userType（所属用户类型）和 depth（0为自身，按由近到远排序）
+     *
+     * @param userId 用户ID
+     * @return 属性列表
+     */
+    List<UserProperties> listSelfAndAncestorProperties(Long userId);
+
     UserProperties getKeyisExist(String key,byte[] value);
 
+    /**
+     * 按 (key, value) 查询属性（走 value_hash 索引），只返回 id、userId、key
+     *
+     * @param key 属性键
+     * @param value 属性值
+     * @return 属性列表
+     */
+    List<UserProperties> listByKeyAndValue(String key, byte[] value);
+
+    /**
+     * 按属性键声明的数据类型过滤属性值（走 value_long / value_bool / value_str_prefix 影子列索引），
+     * 只返回 id、userId、key
+     *
+     * @param key 属性键
+     * @param value 属性值的字符串形式
+     * @return 属性列表
+     */
+    List<UserProperties> listByTypedValue(String key, String value);
+
+    /**
+     * 属性键声明的数据类型变更后，按新类型重新计算该键全部属性的影子列（value_long / value_bool / value_str_prefix）
+     * 按ID分批读取，每批以一条语句更新；外部存储的值不填充影子列，跳过；读取后被并发写入覆盖的行不更新
+     *
+     * @param key 属性键
+     * @return 更新的属性数
+     */
+    int refreshTypedColumns(String key);
+
+    /**
+     * 在后台线程中执行 refreshTypedColumns，立即返回；同一属性键尚未开始的重复请求只执行一次
+     * 完成前按值过滤可能漏掉尚未重新计算的行
+     *
+     * @param key 属性键
+     */
+    void refreshTypedColumnsAsync(String key);
+
+    /**
+     * 只查询属性元数据（id、userId、key），不加载属性值
+     * 需要输出属性值时对最终结果调用 attachLazyValues
+     *
+     * @param userIds 用户ID集合
+     * @return 属性列表（按ID升序）
+     */
+    List<UserProperties> listKeysByUserIds(Collection<Long> userIds);
+
+    /**
+     * 只查询指定键的属性值
+     *
+     * @param userIds 用户ID集合，为null时不限制用户
+     * @param keys 属性键集合
+     * @return 属性列表（按ID升序）
+     */
+    List<UserProperties> listValuesByKeys(Collection<Long> userIds, Collection<String> keys);
+
+    /**
+     * 为未加载属性值的属性挂载延迟加载器
+     * 首次访问其中任意一个属性值时，一次查询加载整组属性值
+     *
+     * @param properties 属性列表
+     */
+    void attachLazyValues(List<UserProperties> properties);
+
     AjaxResult saveUserProperties(UserProperties userProperties);
 
     boolean saveUserPropertiesMap(Long id, Map<String,byte[]> map);
 
+    /**
+     * 按 (user_id, key) 批量插入或覆盖属性，分块执行 INSERT ... ON DUPLICATE KEY UPDATE
+     * 同一批次中重复的 (user_id, key) 以最后一条为准
+     *
+     * @param properties 属性列表（需包含 userId、key 和 value）
+     */
+    void upsertBatch(Collection<UserProperties> properties);
+
+    /**
+     * 增量同步：返回指定版本之后新增、修改和删除的属性
+     *
+     * @param userId 用户ID
+     * @param since 客户端已同步到的版本，为空、不大于0或大于服务端版本时返回全量
+     * @return 变更的属性、删除的属性键及本次同步到的版本
+     */
+    PropertyDeltaDTO getDelta(Long userId, Long since);
+
     /**
      * 填充属性的配置信息（从 ums_property_keys 表查询）
      * 包括: dataType, hidden, scope, description
@@ -65,6 +155,12 @@ public interface UserPropertiesService extends IService<UserProperties> {
      */
     void fillUserType(UserProperties property);
 
+    /**
+     * 批量填充属性的配置信息与用户类型
+     * 配置信息来自属性键缓存，用户类型按去重后的用户ID一次查询
+     */
+    void fillPropertiesInfo(List<UserProperties> properties);
+
     /**
      * 根据模板同步关联用户属性
      *
@@ -0,0 +1,49 @@
+package com.global.ums.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.global.ums.entity.UserProperties;
+import com.global.ums.entity.UserPropertyTombstone;
+import com.global.ums.entity.UserPropertyVersion;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户属性版本服务接口
+ * 每个用户维护一个单调递增的版本序列，属性写入与删除均在所在事务内分配版本号
+ */
+public interface UserPropertyVersionService extends IService<UserPropertyVersion> {
+
+    /**
+     * 为用户分配一段连续的版本号（需在写入属性的事务内调用）
+     *
+     * @param userId 用户ID
+     * @param count 分配个数
+     * @return 分配到的最大版本号，本次分配的版本为 [返回值 - count + 1, 返回值]
+     */
+    long allocate(Long userId, int count);
+
+    /**
+     * 查询用户当前已分配的最大版本号
+     *
+     * @param userId 用户ID
+     * @return 最大版本号，从未写入时返回0
+     */
+    long getCurrentVersion(Long userId);
+
+    /**
+     * 为被删除的属性分配版本号并写入删除标记
+     *
+     * @param removed 被删除的属性（需包含 userId 和 key）
+     */
+    void recordTombstones(Collection<UserProperties> removed);
+
+    /**
+     * 查询用户在指定版本之后删除的属性
+     *
+     * @param userId 用户ID
+     * @param since 起始版本（不含）
+     * @return 删除标记，按版本号升序
+     */
+    List<UserPropertyTombstone> listTombstones(Long userId, long since);
+}
@@ -3,9 +3,11 @@ package com.global.ums.service;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.global.ums.dto.PropertyTreeDTO;
+import com.global.ums.dto.UserIdPageDTO;
 import com.global.ums.dto.UserInfoTreeDTO;
 import com.global.ums.dto.UserTreeNodeDTO;
 import com.global.ums.entity.User;
+import com.global.ums.query.PropertyPredicate;
 import com.global.ums.result.AjaxResult;
 
 import java.util.List;
@@ -45,6 +47,17 @@ public interface UserService extends IService<User> {
      */
     Page<User> getUserPage(Page<User> page, Integer type, String uniqueId, Long parentId, Integer groupType, Long templateId);
 
+    /**
+     * 按属性条件游标分页搜索用户ID
+     *
+     * @param predicates 属性过滤条件（AND 关系），为空时只按用户类型过滤
+     * @param type 用户类型，为空时不过滤
+     * @param lastId 上一页返回的 nextLastId，为null时从头开始
+     * @param pageSize 每页条数
+     * @return 用户ID（升序）及下一页游标
+     */
+    UserIdPageDTO searchUserIds(List<PropertyPredicate> predicates, Integer type, Long lastId, int pageSize);
+
     AjaxResult addUser(User user);
 
     /**
@@ -10,6 +10,7 @@ import com.global.ums.entity.UserProperties;
 import com.global.ums.result.AjaxResult;
 import com.global.ums.service.AuthService;
 import com.global.ums.service.PasswordService;
+import com.global.ums.service.UserIdentityService;
 import com.global.ums.service.UserPropertiesService;
 import com.global.ums.service.UserService;
 import com.global.ums.utils.JwtUtils;
@@ -19,8 +20,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.util.List;
-
 /**
  * 认证服务实现
  */
@@ -33,6 +32,9 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private UserPropertiesService userPropertiesService;
 
+    @Autowired
+    private UserIdentityService userIdentityService;
+
     @Autowired
     private PasswordService passwordService;
 
@@ -61,16 +63,7 @@ public class AuthServiceImpl implements AuthService {
         }
 
         String username = loginDTO.getUsername();
-        Long userId = null;
-        List<UserProperties> list = userPropertiesService.list(
-                new LambdaQueryWrapper<UserProperties>().eq(UserProperties::getKey,
-                        UserPropertiesConstant.KEY_USERNAME));
-        for (UserProperties userProperties : list) {
-            String usernameItem = new String(userProperties.getValue());
-            if (usernameItem.equals(username)) {
-                userId = userProperties.getUserId();
-            }
-        }
+        Long userId = userIdentityService.getUserId(UserPropertiesConstant.KEY_USERNAME, username);
         if (userId == null) {
             // 用户不存在
             return AjaxResult.errorI18n("auth.user.not.exists");
@@ -0,0 +1,248 @@
+package com.global.ums.service.impl;
+
+import com.global.ums.dto.BlobIngestDTO;
+import com.global.ums.enums.DataType;
+import com.global.ums.service.BlobStoreService;
+import com.global.ums.utils.DataTypeUtils;
+import com.global.ums.utils.ValueHashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * 本地磁盘属性值外部存储实现
+ * 文件路径为 {根目录}/{引用前2位}/{引用第3-4位}/{引用}，先写入 {根目录}/tmp 下的临时文件再原子重命名，
+ * 因此并发写入相同内容或进程中断都不会留下不完整的文件
+ */
+@Slf4j
+@Service
+public class BlobStoreServiceImpl implements BlobStoreService {
+
+    private static final Pattern REF_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+    /**
+     * 临时文件目录（位于存储根目录下，保证重命名不跨文件系统）
+     */
+    private static final String TEMP_DIR = "tmp";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 大文件用于类型推断的开头字节数
+     */
+    private static final int SNIFF_LENGTH = 1024;
+
+    /**
+     * 是否启用外部存储，关闭后新写入的值全部保存在数据库中（已外部存储的值仍可读取）
+     */
+    @Value("${property.blob.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 存储根目录
+     */
+    @Value("${property.blob.path:./data/blobs}")
+    private String path;
+
+    /**
+     * 大小阈值（字节），超过该大小的值无论类型都外部存储
+     */
+    @Value("${property.blob.threshold:65536}")
+    private int threshold;
+
+    /**
+     * 保存在数据库中的值的最大字节数（value 列为 BLOB 类型），未启用外部存储时上传内容不能超过该大小
+     */
+    @Value("${property.blob.max-inline-size:65535}")
+    private long maxInlineSize;
+
+    @Override
+    public boolean shouldOffload(byte[] value) {
+        if (!enabled || value == null || value.length == 0) {
+            return false;
+        }
+        // 超过阈值时不再做类型推断，避免对大文本执行正则与JSON解析
+        return value.length > threshold || DataTypeUtils.inferDataType(value) == DataType.BINARY;
+    }
+
+    @Override
+    public String put(byte[] value) {
+        String ref = ValueHashUtils.sha256Hex(value);
+        Path target = resolve(ref);
+        if (Files.exists(target)) {
+            return ref;
+        }
+        Path temp = null;
+        try {
+            temp = createTempFile();
+            Files.write(temp, value);
+            moveInto(temp, target);
+            temp = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入属性值外部存储失败: " + ref, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+        return ref;
+    }
+
+    @Override
+    public BlobIngestDTO ingest(InputStream in, Long maxSize) throws IOException {
+        long limit = maxSize == null || maxSize <= 0 ? Long.MAX_VALUE : maxSize;
+        // 未启用外部存储时内容只能缓存在内存中并保存到数据库，读取过程中按数据库容量截止
+        if (!enabled) {
+            limit = Math.min(limit, maxInlineSize);
+        }
+        BlobIngestDTO result = new BlobIngestDTO();
+        result.setLimit(limit);
+        MessageDigest digest = ValueHashUtils.newSha256();
+        // 未超过阈值前数据暂存在内存中，超过后连同已读部分一起写入临时文件
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        byte[] sniff = null;
+        Path temp = null;
+        OutputStream out = null;
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > limit) {
+                    result.setSize(limit + 1);
+                    result.setExceeded(true);
+                    return result;
+                }
+                digest.update(buffer, 0, read);
+                if (out == null && enabled && head.size() + read > threshold) {
+                    sniff = Arrays.copyOf(head.toByteArray(), Math.min(head.size(), SNIFF_LENGTH));
+                    temp = createTempFile();
+                    out = Files.newOutputStream(temp);
+                    head.writeTo(out);
+                    head = null;
+                }
+                if (out != null) {
+                    out.write(buffer, 0, read);
+                } else {
+                    head.write(buffer, 0, read);
+                }
+            }
+            result.setSize(size);
+
+            byte[] hash = digest.digest();
+            result.setValueHash(ValueHashUtils.fromDigest(hash));
+            if (out == null) {
+                byte[] value = head.toByteArray();
+                DataType dataType = DataTypeUtils.inferDataType(value);
+                result.setDataType(dataType.getValue());
+                if (enabled && dataType == DataType.BINARY) {
+                    result.setBlobRef(put(value));
+                } else {
+                    result.setValue(value);
+                }
+                return result;
+            }
+
+            out.close();
+            out = null;
+            String ref = ValueHashUtils.toHex(hash);
+            Path target = resolve(ref);
+            if (!Files.exists(target)) {
+                moveInto(temp, target);
+                temp = null;
+            }
+            // 只根据开头部分判断是否为二进制，大文本统一视为字符串
+            result.setDataType(DataTypeUtils.inferDataType(sniff) == DataType.BINARY
+                    ? DataType.BINARY.getValue() : DataType.STRING.getValue());
+            result.setBlobRef(ref);
+            return result;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.warn("关闭临时文件失败: {}", temp, e);
+                }
+            }
+            deleteQuietly(temp);
+        }
+    }
+
+    @Override
+    public byte[] get(String ref) {
+        if (ref == null || !REF_PATTERN.matcher(ref).matches()) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(resolve(ref));
+        } catch (NoSuchFileException e) {
+            // 数据库中仍有引用但文件已丢失，不能当作空值返回
+            log.error("属性值外部存储文件不存在: {}", ref);
+            throw new UncheckedIOException("属性值外部存储文件不存在: " + ref, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取属性值外部存储失败: " + ref, e);
+        }
+    }
+
+    @Override
+    public Path locate(String ref) {
+        if (ref == null || !REF_PATTERN.matcher(ref).matches()) {
+            return null;
+        }
+        Path file = resolve(ref);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private Path createTempFile() throws IOException {
+        Path tempDir = Paths.get(path, TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, "blob", ".tmp");
+    }
+
+    /**
+     * 将临时文件原子移动到目标位置，目标已存在（并发写入相同内容）时保留已有文件
+     */
+    private void moveInto(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException ignored) {
+                log.debug("属性值已存在: {}", target.getFileName());
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private Path resolve(String ref) {
+        return Paths.get(path, ref.substring(0, 2), ref.substring(2, 4), ref);
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.global.ums.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.global.ums.dto.ChangeFeedDTO;
+import com.global.ums.entity.ChangeEvent;
+import com.global.ums.mapper.ChangeEventMapper;
+import com.global.ums.result.AjaxResult;
+import com.global.ums.service.ChangeEventService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 变更事件服务实现类
+ * 长轮询请求登记为等待者，由定时任务检查最大事件ID（多实例部署时同样适用），有新事件时从最小游标起共享读取一次完成等待者
+ * 事件ID出现空洞时以加锁读确认空洞中是否仍有未提交事务，游标不会越过未提交的事件，已提交的事件不会被跳过
+ */
+@Slf4j
+@Service
+public class ChangeEventServiceImpl extends ServiceImpl<ChangeEventMapper, ChangeEvent> implements ChangeEventService {
+
+    /**
+     * 清理过期事件时单条 DELETE 语句的最大行数
+     */
+    private static final int PURGE_CHUNK_SIZE = 10000;
+
+    /**
+     * 最多记录的空洞数量
+     */
+    private static final int MAX_TRACKED_GAPS = 100000;
+
+    /**
+     * 事件ID出现空洞后、加锁检查前的等待时间（秒）
+     * 覆盖自增ID已分配、同一语句尚未写入对应行的短暂窗口（此时加锁读既看不到行也看不到锁）
+     */
+    @Value("${change.feed.gap-grace-seconds:1}")
+    private int gapGraceSeconds;
+
+    /**
+     * 事件保留天数
+     */
+    @Value("${change.feed.retention-days:7}")
+    private int retentionDays;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 空洞起始ID -> 本实例首次发现该空洞的时间（毫秒），只用于加锁检查前的等待
+     */
+    private Cache<Long, Long> gapFirstSeen;
+
+    @PostConstruct
+    public void init() {
+        gapFirstSeen = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_GAPS)
+                .expireAfterWrite(retentionDays, TimeUnit.DAYS)
+                .build();
+    }
+
+    @Override
+    public void append(String aggregateType, Long aggregateId, String op, Object payload) {
+        appendAll(Collections.singletonList(ChangeEvent.of(aggregateType, aggregateId, op, payload)));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void appendAll(List<ChangeEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        baseMapper.batchInsert(events);
+    }
+
+    @Override
+    public ChangeFeedDTO read(Long cursor, int limit) {
+        long after = cursor == null ? 0L : cursor;
+        List<ChangeEvent> events = new ArrayList<>();
+        long expected = after + 1;
+        page:
+        for (ChangeEvent event : baseMapper.selectAfter(after, limit)) {
+            if (event.getId() != expected) {
+                List<ChangeEvent> late = settleGap(expected, event);
+                if (late == null) {
+                    // 空洞中的ID可能属于尚未提交的事务，等待其提交或回滚
+                    break;
+                }
+                for (ChangeEvent lateEvent : late) {
+                    if (events.size() >= limit) {
+                        break page;
+                    }
+                    events.add(lateEvent);
+                    after = lateEvent.getId();
+                }
+            }
+            if (events.size() >= limit) {
+                break;
+            }
+            events.add(event);
+            after = event.getId();
+            expected = after + 1;
+        }
+        ChangeFeedDTO feed = new ChangeFeedDTO();
+        feed.setEvents(events);
+        feed.setCursor(after);
+        return feed;
+    }
+
+    /**
+     * 检查 [gapStart, next) 的空洞：以加锁读（NOWAIT）读取区间，有未提交事务写入的行时加锁失败，返回null；
+     * 否则区间已确定，返回其中读取后才提交的事件（可能为空），其余ID所属事务已回滚
+     * 首次发现空洞不足等待时间、且 next 写入也不足等待时间时先不检查，返回null
+     *
+     * @param next 空洞之后的第一个事件
+     */
+    private List<ChangeEvent> settleGap(long gapStart, ChangeEvent next) {
+        long now = System.currentTimeMillis();
+        long grace = TimeUnit.SECONDS.toMillis(gapGraceSeconds);
+        long firstSeen = gapFirstSeen.get(gapStart, id -> now);
+        // 空洞中的ID在 next 之前分配，next 已写入足够久时（例如清理过期事件后从头读取）无需再等待
+        boolean nextSettled = next.getCreateTime() != null && now - next.getCreateTime().getTime() >= grace;
+        if (now - firstSeen < grace && !nextSettled) {
+            return null;
+        }
+        try {
+            List<ChangeEvent> late = baseMapper.selectRangeLocked(gapStart, next.getId());
+            gapFirstSeen.invalidate(gapStart);
+            return late;
+        } catch (PessimisticLockingFailureException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public DeferredResult<AjaxResult> poll(Long cursor, int limit, long timeoutMillis) {
+        long after = cursor == null ? 0L : cursor;
+        DeferredResult<AjaxResult> result = new DeferredResult<>(timeoutMillis);
+        Waiter waiter = new Waiter(after, limit, result);
+        if (waiter.tryComplete()) {
+            return result;
+        }
+        result.onTimeout(() -> {
+            waiters.remove(waiter);
+            ChangeFeedDTO feed = new ChangeFeedDTO();
+            feed.setEvents(Collections.emptyList());
+            feed.setCursor(after);
+            result.setResult(AjaxResult.success(feed));
+        });
+        result.onCompletion(() -> waiters.remove(waiter));
+        waiters.add(waiter);
+        return result;
+    }
+
+    /**
+     * 有等待者时检查是否出现新事件，从等待者的最小游标起读取一次，按各自游标分发
+     * 配置项: change.feed.poll-interval (单位：毫秒)
+     */
+    @Scheduled(fixedDelayString = "${change.feed.poll-interval:500}")
+    public void notifyWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        Long maxId = baseMapper.selectMaxId();
+        if (maxId == null) {
+            return;
+        }
+        List<Waiter> pending = new ArrayList<>();
+        long from = Long.MAX_VALUE;
+        int limit = 0;
+        for (Waiter waiter : waiters) {
+            if (waiter.result.isSetOrExpired()) {
+                waiters.remove(waiter);
+            } else if (waiter.after < maxId) {
+                pending.add(waiter);
+                from = Math.min(from, waiter.after);
+                limit = Math.max(limit, waiter.limit);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        ChangeFeedDTO shared = read(from, limit);
+        // 共享读取未覆盖到的游标（超过条数上限）按游标各读一次
+        Map<Long, ChangeFeedDTO> beyond = new HashMap<>();
+        for (Waiter waiter : pending) {
+            ChangeFeedDTO feed = shared;
+            if (waiter.after > shared.getCursor()) {
+                feed = beyond.computeIfAbsent(waiter.after, after -> read(after, waiter.limit));
+            }
+            if (waiter.offer(feed)) {
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    /**
+     * 清理超过保留期的事件
+     */
+    @Scheduled(initialDelay = 60000, fixedDelay = 3600000)
+    public void purgeExpired() {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = baseMapper.deleteExpired(retentionDays, PURGE_CHUNK_SIZE);
+            total += deleted;
+        } while (deleted == PURGE_CHUNK_SIZE);
+        if (total > 0) {
+            log.info("清理过期变更事件 {} 条", total);
+        }
+    }
+
+    /**
+     * 长轮询等待者
+     */
+    private final class Waiter {
+
+        private final long after;
+        private final int limit;
+        private final DeferredResult<AjaxResult> result;
+
+        private Waiter(long after, int limit, DeferredResult<AjaxResult> result) {
+            this.after = after;
+            this.limit = limit;
+            this.result = result;
+        }
+
+        /**
+         * 有新事件时完成请求
+         */
+        private boolean tryComplete() {
+            if (result.isSetOrExpired()) {
+                return true;
+            }
+            return offer(read(after, limit));
+        }
+
+        /**
+         * 从读取结果中取游标之后的事件（最多 limit 条）完成请求，没有新事件时返回false
+         *
+         * @param feed 从不大于本游标的位置连续读取的结果
+         */
+        private boolean offer(ChangeFeedDTO feed) {
+            if (result.isSetOrExpired()) {
+                return true;
+            }
+            List<ChangeEvent> events = new ArrayList<>();
+            for (ChangeEvent event : feed.getEvents()) {
+                if (event.getId() > after && events.size() < limit) {
+                    events.add(event);
+                }
+            }
+            if (events.isEmpty()) {
+                return false;
+            }
+            ChangeFeedDTO own = new ChangeFeedDTO();
+            own.setEvents(events);
+            own.setCursor(events.get(events.size() - 1).getId());
+            result.setResult(AjaxResult.success(own));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,590 @@
+package com.global.ums.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.global.ums.constant.UserPropertiesConstant;
+import com.global.ums.entity.User;
+import com.global.ums.entity.UserGroupClosure;
+import com.global.ums.entity.UserProperties;
+import com.global.ums.enums.UserType;
+import com.global.ums.graph.HierarchyGraph;
+import com.global.ums.mapper.UserMapper;
+import com.global.ums.registry.KeyDescriptor;
+import com.global.ums.registry.PriorityTable;
+import com.global.ums.registry.PropertyKeyRegistry;
+import com.global.ums.service.BlobStoreService;
+import com.global.ums.service.EffectivePropertiesService;
+import com.global.ums.service.PropertyKeysService;
+import com.global.ums.service.UserGroupClosureService;
+import com.global.ums.service.UserPropertiesService;
+import com.global.ums.utils.RedisCache;
+import com.global.ums.utils.StringUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 有效属性解析服务实现
+ * 未命中缓存时：用户、属性（含祖先及层级距离）、优先级配置各一次查询，其余在内存中完成
+ */
+@Slf4j
+@Service
+public class EffectivePropertiesServiceImpl implements EffectivePropertiesService {
+
+    private static final String REDIS_KEY_PREFIX = "ums:effective_props:";
+
+    /**
+     * 批量查询后代时 IN 条件的最大元素数
+     */
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    /**
+     * 单条失效广播最多携带的用户数，超过时广播全部失效
+     */
+    private static final int MAX_BROADCAST_IDS = 10000;
+
+    private static final String EVICT_ALL = "*";
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserPropertiesService userPropertiesService;
+
+    @Autowired
+    private UserGroupClosureService userGroupClosureService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private PropertyKeysService propertyKeysService;
+
+    @Autowired
+    private HierarchyGraph hierarchyGraph;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${property.effective.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${property.effective.cache.expire-seconds:300}")
+    private long expireSeconds;
+
+    @Value("${property.effective.cache.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    @Value("${property.effective.cache.notify.redis-enabled:true}")
+    private boolean notifyEnabled;
+
+    /**
+     * 本节点标识，收到自己发布的失效广播时忽略
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 本地缓存，userId -> 解析结果
+     */
+    private Cache<Long, EffectiveEntry> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public User resolve(Long userId) {
+        EffectiveEntry entry = getEntry(userId);
+        if (entry == null) {
+            return null;
+        }
+        User source = entry.getUser();
+        User user = new User();
+        BeanUtils.copyProperties(source, user, "properties");
+        user.setProperties(copyProperties(source.getProperties()));
+        return user;
+    }
+
+    @Override
+    public List<UserProperties> resolveAll(Long userId, List<String> keys) {
+        if (userId == null || keys == null || keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 已缓存时直接使用候选属性，否则只加载请求的 key，不触发完整解析
+        EffectiveEntry entry = peekEntry(userId);
+        if (entry == null) {
+            return loadKeys(userId, keys);
+        }
+
+        Map<String, List<UserProperties>> byKey = new HashMap<>();
+        for (UserProperties prop : entry.getCandidates()) {
+            byKey.computeIfAbsent(prop.getKey(), k -> new ArrayList<>()).add(prop);
+        }
+
+        List<UserProperties> result = new ArrayList<>();
+        for (String key : keys) {
+            List<UserProperties> props = byKey.get(key);
+            if (props == null) {
+                continue;
+            }
+            for (UserProperties prop : copyProperties(props)) {
+                if (entry.isHasParents()) {
+                    applyStorageRule(prop, entry.getUser());
+                }
+                result.add(prop);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一次层级遍历（内存图）+ 一次 user_id IN (...) AND key IN (...) 查询获取所有请求的 key
+     * 每个 key 按自身在前、祖先由近到远排序，存在上级时应用 storage 规则
+     */
+    private List<UserProperties> loadKeys(Long userId, List<String> keys) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+        long[] ancestors = hierarchyGraph.ancestors(userId);
+        List<Long> userIds = new ArrayList<>(ancestors.length + 1);
+        userIds.add(userId);
+        for (long ancestorId : ancestors) {
+            userIds.add(ancestorId);
+        }
+
+        List<UserProperties> rows = userPropertiesService.list(new LambdaQueryWrapper<UserProperties>()
+                .in(UserProperties::getUserId, userIds)
+                .in(UserProperties::getKey, keys)
+                .orderByAsc(UserProperties::getId));
+        if (rows.isEmpty()) {
+            return rows;
+        }
+
+        Map<Long, Integer> userTypes = new HashMap<>();
+        userTypes.put(user.getId(), user.getType());
+        if (ancestors.length > 0) {
+            for (User owner : userMapper.selectList(new LambdaQueryWrapper<User>()
+                    .select(User::getId, User::getType)
+                    .in(User::getId, userIds.subList(1, userIds.size())))) {
+                userTypes.put(owner.getId(), owner.getType());
+            }
+        }
+
+        // key -> userId -> 属性（同一用户同一 key 取第一条）
+        Map<String, Map<Long, UserProperties>> byKey = new HashMap<>();
+        for (UserProperties row : rows) {
+            byKey.computeIfAbsent(row.getKey(), k -> new HashMap<>()).putIfAbsent(row.getUserId(), row);
+        }
+
+        List<UserProperties> result = new ArrayList<>();
+        for (String key : keys) {
+            Map<Long, UserProperties> byUser = byKey.get(key);
+            if (byUser == null) {
+                continue;
+            }
+            for (Long ownerId : userIds) {
+                UserProperties prop = byUser.get(ownerId);
+                if (prop == null) {
+                    continue;
+                }
+                prop.setUserType(userTypes.get(ownerId));
+                if (ancestors.length > 0) {
+                    applyStorageRule(prop, user);
+                }
+                result.add(prop);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void evictWithDescendants(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        Set<Long> affected = new HashSet<>(userIds);
+        List<Long> ids = new ArrayList<>(affected);
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+            for (UserGroupClosure closure : userGroupClosureService.list(new LambdaQueryWrapper<UserGroupClosure>()
+                    .select(UserGroupClosure::getDescendantId)
+                    .in(UserGroupClosure::getAncestorId, chunk))) {
+                affected.add(closure.getDescendantId());
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(affected, false);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(affected, true);
+                }
+            });
+        } else {
+            evict(affected, true);
+        }
+    }
+
+    @Override
+    public void evictLocal() {
+        localCache.invalidateAll();
+    }
+
+    @Override
+    public void evictAll() {
+        localCache.invalidateAll();
+        if (redisEnabled) {
+            try {
+                redisCache.deleteByPattern(REDIS_KEY_PREFIX + "*");
+            } catch (Exception e) {
+                log.warn("清空 Redis 有效属性缓存失败", e);
+            }
+        }
+        broadcast(EVICT_ALL);
+    }
+
+    @Override
+    public void applyRemoteEviction(String message) {
+        int separator = message.indexOf(' ');
+        if (separator < 0 || nodeId.equals(message.substring(0, separator))) {
+            return;
+        }
+        String body = message.substring(separator + 1);
+        if (EVICT_ALL.equals(body)) {
+            localCache.invalidateAll();
+            return;
+        }
+        List<Long> userIds = new ArrayList<>();
+        for (String id : body.split(",")) {
+            if (!id.isEmpty()) {
+                userIds.add(Long.parseLong(id));
+            }
+        }
+        localCache.invalidateAll(userIds);
+    }
+
+    /**
+     * 清理本地缓存和 Redis 缓存
+     *
+     * @param broadcast 是否通知其他节点清理本地缓存（事务提交前清理时其他节点可能重新读到旧值，只在提交后通知）
+     */
+    private void evict(Set<Long> userIds, boolean broadcast) {
+        localCache.invalidateAll(userIds);
+        if (redisEnabled) {
+            try {
+                redisCache.deleteObject(userIds.stream()
+                        .map(id -> REDIS_KEY_PREFIX + id)
+                        .collect(Collectors.toList()));
+            } catch (Exception e) {
+                log.warn("删除 Redis 有效属性缓存失败: {}", userIds, e);
+            }
+        }
+        if (broadcast) {
+            broadcast(userIds.size() > MAX_BROADCAST_IDS ? EVICT_ALL
+                    : userIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+    }
+
+    private void broadcast(String body) {
+        if (!notifyEnabled) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(EVICTION_CHANNEL, nodeId + " " + body);
+        } catch (Exception e) {
+            log.warn("广播有效属性缓存失效失败，其他节点的本地缓存将在过期后更新", e);
+        }
+    }
+
+    /**
+     * 依次查询本地缓存、Redis，不访问数据库
+     */
+    private EffectiveEntry peekEntry(Long userId) {
+        EffectiveEntry entry = localCache.getIfPresent(userId);
+        if (entry == null && redisEnabled) {
+            entry = readRedis(userId);
+            if (entry != null) {
+                localCache.put(userId, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 依次查询本地缓存、Redis、数据库
+     */
+    private EffectiveEntry getEntry(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        EffectiveEntry entry = peekEntry(userId);
+        if (entry != null) {
+            return entry;
+        }
+
+        entry = load(userId);
+        if (entry != null) {
+            localCache.put(userId, entry);
+            if (redisEnabled) {
+                writeRedis(userId, entry);
+            }
+        }
+        return entry;
+    }
+
+    private EffectiveEntry readRedis(Long userId) {
+        try {
+            String json = redisCache.getCacheObject(REDIS_KEY_PREFIX + userId);
+            if (json == null) {
+                return null;
+            }
+            EffectiveEntry entry = JSON.parseObject(json, EffectiveEntry.class);
+            attachBlobLoaders(entry.getCandidates());
+            if (entry.getUser() != null) {
+                attachBlobLoaders(entry.getUser().getProperties());
+            }
+            return entry;
+        } catch (Exception e) {
+            log.warn("读取 Redis 有效属性缓存失败: {}", userId, e);
+            return null;
+        }
+    }
+
+    private void writeRedis(Long userId, EffectiveEntry entry) {
+        try {
+            redisCache.setCacheObject(REDIS_KEY_PREFIX + userId, JSON.toJSONString(detach(entry)),
+                    (int) expireSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入 Redis 有效属性缓存失败: {}", userId, e);
+        }
+    }
+
+    /**
+     * 从数据库加载并解析
+     */
+    private EffectiveEntry load(Long userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return null;
+        }
+        user.setTypeDesc(UserType.fromValue(user.getType()).getDescription());
+
+        // 1. 一次查询取得自身及所有祖先的属性（已按 depth 由近到远排序）
+        List<UserProperties> candidates = userPropertiesService.listSelfAndAncestorProperties(userId);
+
+        EffectiveEntry entry = new EffectiveEntry();
+        entry.setUser(user);
+        entry.setCandidates(copyProperties(candidates));
+        // 与候选属性同样取自闭包表：结果会写入本地及 Redis 缓存，不能依赖其他节点上可能尚未同步的内存图
+        entry.setHasParents(userGroupClosureService.hasAncestors(userId));
+
+        List<UserProperties> visible = new ArrayList<>(candidates.size());
+        for (UserProperties prop : candidates) {
+            userPropertiesService.fillPropertyKeysInfo(prop);
+            if (prop.getHidden() != null && prop.getHidden() == 1) {
+                continue;
+            }
+            if (prop.getDepth() != null && prop.getDepth() > 0) {
+                applyStorageRule(prop, user);
+            }
+            visible.add(prop);
+        }
+        if (visible.isEmpty()) {
+            user.setProperties(visible);
+            return entry;
+        }
+
+        // 2. 优先级查找表取自属性键注册表快照
+        PropertyKeyRegistry registry = getPropertyKeysService().getRegistry();
+
+        // 3. 保留高优先级的属性（priority值越小优先级越高），优先级相同时保留先出现的（近者优先）
+        Map<String, UserProperties> finalPropertiesMap = new LinkedHashMap<>();
+        for (UserProperties prop : visible) {
+            UserProperties existing = finalPropertiesMap.get(prop.getKey());
+            if (existing == null) {
+                finalPropertiesMap.put(prop.getKey(), prop);
+                continue;
+            }
+            if (sameValue(existing, prop)) {
+                continue;
+            }
+            if (getPriority(registry, prop) < getPriority(registry, existing)) {
+                finalPropertiesMap.put(prop.getKey(), prop);
+            }
+        }
+
+        user.setProperties(new ArrayList<>(finalPropertiesMap.values()));
+        return entry;
+    }
+
+    /**
+     * 父级 storage 值为 true 时，替换为当前用户的 uniqueId
+     */
+    private void applyStorageRule(UserProperties prop, User user) {
+        if (!UserPropertiesConstant.KEY_STORAGE.equals(prop.getKey()) || prop.getValue() == null) {
+            return;
+        }
+        String storageValue = new String(prop.getValue(), StandardCharsets.UTF_8);
+        if ("true".equalsIgnoreCase(storageValue)) {
+            prop.setUserType(1);
+            prop.setValue(user.getUniqueId().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 比较两个属性值是否相同
+     * 值哈希不同时直接判为不同；哈希相同时仍需确认，避免 64 位哈希碰撞误丢候选值：
+     * 两者都外部存储时比较 blobRef（内容的 SHA-256），不加载外部存储的值，否则逐字节比较
+     */
+    private static boolean sameValue(UserProperties a, UserProperties b) {
+        if (a.getValueHash() != null && b.getValueHash() != null && !a.getValueHash().equals(b.getValueHash())) {
+            return false;
+        }
+        if (StringUtils.isNotEmpty(a.getBlobRef()) && StringUtils.isNotEmpty(b.getBlobRef())) {
+            return a.getBlobRef().equals(b.getBlobRef());
+        }
+        return Arrays.equals(a.getValue(), b.getValue());
+    }
+
+    /**
+     * 获取属性值的优先级，默认为 Integer.MAX_VALUE (最低)
+     * 外部存储的值不会是枚举值，直接视为最低优先级，不加载
+     */
+    private int getPriority(PropertyKeyRegistry registry, UserProperties prop) {
+        if (prop == null || StringUtils.isNotEmpty(prop.getBlobRef())) {
+            return PriorityTable.LOWEST;
+        }
+        KeyDescriptor descriptor = registry.get(prop.getKey());
+        return descriptor == null ? PriorityTable.LOWEST : descriptor.getPriorities().priorityOf(prop.getValue());
+    }
+
+    /**
+     * 懒加载PropertyKeysService，避免循环依赖
+     */
+    private PropertyKeysService getPropertyKeysService() {
+        if (propertyKeysService == null) {
+            propertyKeysService = applicationContext.getBean(PropertyKeysService.class);
+        }
+        return propertyKeysService;
+    }
+
+    /**
+     * 缓存对象不直接交给调用方，返回浅拷贝以免被修改
+     * 未加载的属性值连同延迟加载器一起复制，外部存储的值仍在访问时才读取
+     */
+    private List<UserProperties> copyProperties(List<UserProperties> source) {
+        if (source == null) {
+            return null;
+        }
+        List<UserProperties> copies = new ArrayList<>(source.size());
+        for (UserProperties prop : source) {
+            UserProperties copy = new UserProperties();
+            BeanUtils.copyProperties(prop, copy, "value", "valueLoader");
+            if (prop.getValueLoader() != null) {
+                copy.setValueLoader(prop.getValueLoader());
+            } else {
+                copy.setValue(prop.getValue());
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * 写入 Redis 的副本：外部存储的值不序列化，只保留 blobRef，读取时重新挂载加载器
+     */
+    private EffectiveEntry detach(EffectiveEntry entry) {
+        EffectiveEntry detached = new EffectiveEntry();
+        detached.setHasParents(entry.isHasParents());
+        detached.setCandidates(detachProperties(entry.getCandidates()));
+        User user = new User();
+        BeanUtils.copyProperties(entry.getUser(), user, "properties");
+        user.setProperties(detachProperties(entry.getUser().getProperties()));
+        detached.setUser(user);
+        return detached;
+    }
+
+    private List<UserProperties> detachProperties(List<UserProperties> source) {
+        List<UserProperties> copies = copyProperties(source);
+        if (copies != null) {
+            for (UserProperties copy : copies) {
+                if (copy.getValueLoader() != null && StringUtils.isNotEmpty(copy.getBlobRef())) {
+                    copy.setValue(null);
+                }
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * 为从 Redis 读取的外部存储属性挂载延迟加载器
+     */
+    private void attachBlobLoaders(List<UserProperties> properties) {
+        if (properties == null) {
+            return;
+        }
+        for (UserProperties prop : properties) {
+            String ref = prop.getBlobRef();
+            if (prop.getValue() == null && StringUtils.isNotEmpty(ref)) {
+                prop.setValueLoader(() -> blobStoreService.get(ref));
+            }
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    @Data
+    public static class EffectiveEntry {
+
+        /**
+         * 用户及其有效属性
+         */
+        private User user;
+
+        /**
+         * 自身及所有祖先的原始属性（按 depth 由近到远排序）
+         */
+        private List<UserProperties> candidates;
+
+        /**
+         * 是否存在上级用户
+         */
+        private boolean hasParents;
+    }
+}
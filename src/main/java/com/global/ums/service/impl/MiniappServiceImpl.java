@@ -55,6 +55,9 @@ public class MiniappServiceImpl implements IMiniappService {
     @Autowired
     private UserPropertiesService userPropertiesService;
 
+    @Autowired
+    private UserIdentityService userIdentityService;
+
     @Autowired
     private UserGroupService userGroupService;
 
@@ -329,13 +332,13 @@ public class MiniappServiceImpl implements IMiniappService {
         
         try {
             // 1. 根据openId查询微信用户映射关系
-            UserProperties userProperties = userPropertiesService.getKeyisExist("ma_openid", openId.getBytes(StandardCharsets.UTF_8));
-            if (userProperties == null) {
+            Long wechatUserId = userIdentityService.getUserId(UserPropertiesConstant.KEY_MA_OPENID, openId);
+            if (wechatUserId == null) {
                 return AjaxResult.errorI18n("miniapp.wechat.user.not.found");
             }
             
             // 2. 查询对应的系统用户信息
-            User user = userService.getById(userProperties.getUserId());
+            User user = userService.getById(wechatUserId);
             if (user == null) {
                 return AjaxResult.errorI18n("miniapp.system.user.not.found");
             }
@@ -407,13 +410,13 @@ public class MiniappServiceImpl implements IMiniappService {
                 // 通过openId查找关联的用户
                 String openId = qrcodeInfo.getOpenId();
                 // 1. 根据openId查询微信用户映射关系
-                UserProperties userProperties = userPropertiesService.getKeyisExist("ma_openid", openId.getBytes(StandardCharsets.UTF_8));
-                if (userProperties == null) {
+                Long wechatUserId = userIdentityService.getUserId(UserPropertiesConstant.KEY_MA_OPENID, openId);
+                if (wechatUserId == null) {
                     return rollbackAndReturn(AjaxResult.errorI18n("miniapp.wechat.user.not.found"));
                 }
 
                 // 2. 查询对应的系统用户信息
-                User user = userService.getById(userProperties.getUserId());
+                User user = userService.getById(wechatUserId);
                 if (user == null) {
                     return rollbackAndReturn(AjaxResult.errorI18n("miniapp.system.user.not.found"));
                 }
@@ -479,17 +482,11 @@ public class MiniappServiceImpl implements IMiniappService {
         }
 
         // 3. 根据 openId (ma_openid) 找到邀请人
-        UserProperties inviterProperty = userPropertiesService.getKeyisExist(
-            UserPropertiesConstant.KEY_MA_OPENID,
-            openId.getBytes(StandardCharsets.UTF_8)
-        );
-
-        if (inviterProperty == null || inviterProperty.getUserId() == null) {
+        Long inviterId = userIdentityService.getUserId(UserPropertiesConstant.KEY_MA_OPENID, openId);
+        if (inviterId == null) {
             return rollbackAndReturn(AjaxResult.errorI18n("miniapp.invitation.inviter.not.found"));
         }
 
-        Long inviterId = inviterProperty.getUserId();
-
         // 4. 验证邀请人不能是自己
         if (inviterId.equals(invitedUser.getId())) {
             return rollbackAndReturn(AjaxResult.errorI18n("miniapp.invitation.cannot.invite.self"));
@@ -2,25 +2,34 @@ package com.global.ums.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.global.ums.dto.PropertyKeysVO;
 import com.global.ums.entity.PropertyKeyItems;
 import com.global.ums.entity.PropertyKeys;
+import com.global.ums.entity.RegistryVersion;
 import com.global.ums.entity.UserProperties;
 import com.global.ums.mapper.PropertyKeysMapper;
+import com.global.ums.mapper.RegistryVersionMapper;
+import com.global.ums.registry.KeyDescriptor;
+import com.global.ums.registry.PropertyKeyRegistry;
+import com.global.ums.service.EffectivePropertiesService;
 import com.global.ums.service.PropertyKeyItemsService;
 import com.global.ums.service.PropertyKeysService;
 import com.global.ums.service.UserPropertiesService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 属性键配置服务实现类
@@ -30,9 +39,14 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PropertyKeysServiceImpl extends ServiceImpl<PropertyKeysMapper, PropertyKeys> implements PropertyKeysService {
 
     /**
-     * 缓存所有配置，key -> PropertyKeys
+     * ums_registry_version 中属性键注册表的名称
      */
-    private final Map<String, PropertyKeys> keysCache = new ConcurrentHashMap<>();
+    private static final String REGISTRY_NAME = "property_keys";
+
+    /**
+     * 当前注册表快照，整体替换，不在原对象上修改
+     */
+    private volatile PropertyKeyRegistry registry = PropertyKeyRegistry.EMPTY;
 
     @Autowired
     private UserPropertiesService userPropertiesService;
@@ -40,27 +54,89 @@ public class PropertyKeysServiceImpl extends ServiceImpl<PropertyKeysMapper, Pro
     @Autowired
     private PropertyKeyItemsService propertyKeyItemsService;
 
+    @Autowired
+    private EffectivePropertiesService effectivePropertiesService;
+
+    @Autowired
+    private RegistryVersionMapper registryVersionMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 是否通过 Redis 发布失效通知，关闭后其他节点只依赖定时版本检查
+     * 配置项: property.keys.notify.redis-enabled
+     */
+    @Value("${property.keys.notify.redis-enabled:true}")
+    private boolean notifyEnabled;
+
+    @Value("${property.keys.negative-cache.maximum-size:10000}")
+    private long negativeCacheMaximumSize;
+
+    @Value("${property.keys.negative-cache.expire-seconds:60}")
+    private long negativeCacheExpireSeconds;
+
+    /**
+     * 数据库中不存在的key，避免无效key的请求每次都查询数据库；注册表重新加载时清空
+     */
+    private Cache<String, Boolean> unknownKeys;
+
     @PostConstruct
     public void init() {
+        unknownKeys = Caffeine.newBuilder()
+                .maximumSize(negativeCacheMaximumSize)
+                .expireAfterWrite(negativeCacheExpireSeconds, TimeUnit.SECONDS)
+                .build();
         refreshCache();
     }
 
+    @Override
+    public PropertyKeyRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public KeyDescriptor getDescriptor(String key) {
+        KeyDescriptor descriptor = registry.get(key);
+        if (descriptor != null || key == null) {
+            return descriptor;
+        }
+        return getByKey(key) == null ? null : registry.get(key);
+    }
+
     @Override
     public PropertyKeys getByKey(String key) {
-        // 先从缓存获取
-        PropertyKeys config = keysCache.get(key);
-        if (config != null) {
-            return config;
+        // 先从快照获取
+        KeyDescriptor descriptor = registry.get(key);
+        if (descriptor != null) {
+            return descriptor.getPropertyKeys();
         }
 
-        // 缓存未命中，从数据库查询
+        // 近期已确认不存在的key直接返回
+        if (key == null || unknownKeys.getIfPresent(key) != null) {
+            return null;
+        }
+
+        // 快照未命中（其他节点新增且尚未同步），从数据库查询
+        long version = registry.getVersion();
         LambdaQueryWrapper<PropertyKeys> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(PropertyKeys::getKey, key);
-        config = getOne(wrapper);
+        PropertyKeys config = getOne(wrapper);
+        List<PropertyKeyItems> items = config == null ? null : propertyKeyItemsService.getItemsByKey(key);
 
-        // 更新缓存
-        if (config != null) {
-            keysCache.put(key, config);
+        synchronized (this) {
+            // 查询期间注册表已重新加载时不写入，以新快照为准：新快照已反映查询之后的增删，
+            // 写入查询结果可能恢复已被删除的配置，或覆盖新版本对不存在记录的清空
+            if (registry.getVersion() != version) {
+                descriptor = registry.get(key);
+                return descriptor == null ? null : descriptor.getPropertyKeys();
+            }
+            if (config != null) {
+                // 复制快照加入新配置（快照保存副本，返回的 config 可由调用方修改）
+                registry = registry.with(config, items);
+            } else {
+                unknownKeys.put(key, Boolean.TRUE);
+            }
         }
 
         return config;
@@ -68,25 +144,76 @@ public class PropertyKeysServiceImpl extends ServiceImpl<PropertyKeysMapper, Pro
 
     @Override
     public Map<String, PropertyKeys> getAllKeysMap() {
-        return new HashMap<>(keysCache);
+        return registry.getPropertyKeys();
     }
 
     @Override
     public void refreshCache() {
         try {
-            List<PropertyKeys> allKeys = super.list();
-            keysCache.clear();
-            for (PropertyKeys key : allKeys) {
-                if (key.getKey() != null && !key.getKey().isEmpty()) {
-                    keysCache.put(key.getKey(), key);
-                }
-            }
-            log.info("成功刷新属性键配置缓存，共 {} 个配置", keysCache.size());
+            load(currentVersion());
         } catch (Exception e) {
             log.error("刷新属性键配置缓存失败", e);
         }
     }
 
+    @Override
+    public void publishChange() {
+        registryVersionMapper.bump(REGISTRY_NAME);
+        long version = currentVersion();
+        reload(version);
+        if (notifyEnabled) {
+            try {
+                stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(version));
+            } catch (Exception e) {
+                log.warn("发布属性键配置失效通知失败，其他节点将在定时检查时同步: version={}", version, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean refreshIfStale() {
+        long version = currentVersion();
+        if (version == registry.getVersion() || !reload(version)) {
+            return false;
+        }
+        // 其他节点发起的变更，Redis 中的有效属性缓存已由发起节点清理
+        effectivePropertiesService.evictLocal();
+        return true;
+    }
+
+    /**
+     * 注册表版本变化时重新加载，并发触发时同一版本只加载一次
+     *
+     * @return 是否重新加载
+     */
+    private synchronized boolean reload(long version) {
+        if (version == registry.getVersion()) {
+            return false;
+        }
+        load(version);
+        return true;
+    }
+
+    /**
+     * 全量读取属性键配置及枚举项并构建新快照，构建完成后整体替换（先读版本号再读配置，期间的变更会在下次检查时重新加载）
+     */
+    private void load(long version) {
+        List<PropertyKeyItems> allItems = propertyKeyItemsService.list(new LambdaQueryWrapper<PropertyKeyItems>()
+                .orderByAsc(PropertyKeyItems::getKey)
+                .orderByAsc(PropertyKeyItems::getPriority));
+        PropertyKeyRegistry loaded = PropertyKeyRegistry.of(version, super.list(), allItems);
+        synchronized (this) {
+            registry = loaded;
+            unknownKeys.invalidateAll();
+        }
+        log.info("属性键配置注册表已加载，版本 {}，共 {} 个配置", version, loaded.size());
+    }
+
+    private long currentVersion() {
+        RegistryVersion registryVersion = registryVersionMapper.selectById(REGISTRY_NAME);
+        return registryVersion == null || registryVersion.getVersion() == null ? 0 : registryVersion.getVersion();
+    }
+
     @Override
     public boolean isKeyUsedInUserProperties(String key) {
         LambdaQueryWrapper<UserProperties> wrapper = new LambdaQueryWrapper<>();
@@ -105,34 +232,40 @@ public class PropertyKeysServiceImpl extends ServiceImpl<PropertyKeysMapper, Pro
 
     @Override
     public PropertyKeysVO getByKeyWithItems(String key) {
-        PropertyKeys propertyKeys = getByKey(key);
-        if (propertyKeys == null) {
+        KeyDescriptor descriptor = getDescriptor(key);
+        if (descriptor == null) {
             return null;
         }
-        return convertToVO(propertyKeys);
+        return convertToVO(descriptor.getPropertyKeys(), descriptor.getItems());
     }
 
     @Override
     public List<PropertyKeysVO> listWithItems() {
-        List<PropertyKeys> allKeys = list();
-        List<PropertyKeysVO> voList = new ArrayList<>();
-        for (PropertyKeys propertyKeys : allKeys) {
-            voList.add(convertToVO(propertyKeys));
+        List<KeyDescriptor> descriptors = new ArrayList<>(registry.getDescriptors().values());
+        descriptors.sort(Comparator.comparing(KeyDescriptor::getId,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        List<PropertyKeysVO> voList = new ArrayList<>(descriptors.size());
+        for (KeyDescriptor descriptor : descriptors) {
+            voList.add(convertToVO(descriptor.getPropertyKeys(), descriptor.getItems()));
         }
         return voList;
     }
 
     /**
-     * 将 PropertyKeys 转换为 PropertyKeysVO（包含枚举项）
+     * 将 PropertyKeys 转换为 PropertyKeysVO（包含枚举项，优先从注册表快照获取）
      */
     private PropertyKeysVO convertToVO(PropertyKeys propertyKeys) {
+        KeyDescriptor descriptor = registry.get(propertyKeys.getKey());
+        List<PropertyKeyItems> items = descriptor != null
+                ? descriptor.getItems()
+                : propertyKeyItemsService.getItemsByKey(propertyKeys.getKey());
+        return convertToVO(propertyKeys, items);
+    }
+
+    private PropertyKeysVO convertToVO(PropertyKeys propertyKeys, List<PropertyKeyItems> items) {
         PropertyKeysVO vo = new PropertyKeysVO();
         BeanUtils.copyProperties(propertyKeys, vo);
-
-        // 获取关联的枚举项
-        List<PropertyKeyItems> items = propertyKeyItemsService.getItemsByKey(propertyKeys.getKey());
-        vo.setItems(items);
-
+        vo.setItems(new ArrayList<>(items));
         return vo;
     }
 }
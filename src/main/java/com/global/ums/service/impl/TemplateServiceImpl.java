@@ -5,10 +5,11 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.global.ums.constant.UserPropertiesConstant;
+import com.global.ums.entity.ChangeEvent;
 import com.global.ums.entity.Template;
-import com.global.ums.entity.UserProperties;
 import com.global.ums.enums.TemplateType;
 import com.global.ums.mapper.TemplateMapper;
+import com.global.ums.service.ChangeEventService;
 import com.global.ums.service.TemplateService;
 import com.global.ums.service.UserPropertiesService;
 import com.global.ums.utils.StringUtils;
@@ -29,6 +30,9 @@ public class TemplateServiceImpl extends ServiceImpl<TemplateMapper, Template> i
     @Autowired
     private UserPropertiesService userPropertiesService;
 
+    @Autowired
+    private ChangeEventService changeEventService;
+
     @Override
     public Page<Template> pageTrees(Page<Template> page, String name, Integer type) {
         LambdaQueryWrapper<Template> wrapper = Wrappers.lambdaQuery();
@@ -69,14 +73,22 @@ public class TemplateServiceImpl extends ServiceImpl<TemplateMapper, Template> i
         if (tree.getParentId() == null) {
             tree.setParentId(0L);
         }
-        return this.save(tree);
+        boolean saved = this.save(tree);
+        if (saved) {
+            publishChange(tree, ChangeEvent.OP_CREATE);
+        }
+        return saved;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean updateNode(Template tree) {
         validateNode(tree, true);
-        return this.updateById(tree);
+        boolean updated = this.updateById(tree);
+        if (updated) {
+            publishChange(tree, ChangeEvent.OP_UPDATE);
+        }
+        return updated;
     }
 
     @Override
@@ -97,7 +109,31 @@ public class TemplateServiceImpl extends ServiceImpl<TemplateMapper, Template> i
         } else {
             removeChildrenRecursive(id);
         }
-        return this.removeById(id);
+        boolean removed = this.removeById(id);
+        if (removed) {
+            publishRemoved(Collections.singletonList(id));
+        }
+        return removed;
+    }
+
+    /**
+     * 在同一事务中写入模板变更事件
+     */
+    private void publishChange(Template tree, String op) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", tree.getId());
+        payload.put("parentId", tree.getParentId());
+        payload.put("name", tree.getName());
+        payload.put("type", tree.getType());
+        changeEventService.append(ChangeEvent.TYPE_TEMPLATE, tree.getId(), op, payload);
+    }
+
+    private void publishRemoved(List<Long> ids) {
+        List<ChangeEvent> events = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            events.add(ChangeEvent.of(ChangeEvent.TYPE_TEMPLATE, id, ChangeEvent.OP_DELETE, Collections.singletonMap("id", id)));
+        }
+        changeEventService.appendAll(events);
     }
 
     /**
@@ -105,23 +141,9 @@ public class TemplateServiceImpl extends ServiceImpl<TemplateMapper, Template> i
      * @param templateId 模板ID
      */
     private void checkTemplateReference(Long templateId) {
-        String templateIdString = String.valueOf(templateId);
-
-        // 查询 user_properties 表中 key='templateId' 的所有记录
-        List<UserProperties> templateBindings = userPropertiesService.list(
-            Wrappers.<UserProperties>lambdaQuery()
-                .eq(UserProperties::getKey, UserPropertiesConstant.KEY_TEMPLATE_ID)
-        );
-
-        // 检查是否有用户引用了该模板
-        for (UserProperties binding : templateBindings) {
-            if (binding.getValue() == null) {
-                continue;
-            }
-            String bindingTemplateId = new String(binding.getValue());
-            if (templateIdString.equals(bindingTemplateId)) {
-                throw new IllegalStateException("template.delete.referenced");
-            }
+        // 通过影子列索引查询是否有用户引用了该模板
+        if (!userPropertiesService.listByTypedValue(UserPropertiesConstant.KEY_TEMPLATE_ID, String.valueOf(templateId)).isEmpty()) {
+            throw new IllegalStateException("template.delete.referenced");
         }
     }
 
@@ -133,7 +155,10 @@ public class TemplateServiceImpl extends ServiceImpl<TemplateMapper, Template> i
         for (Template child : children) {
             removeChildrenRecursive(child.getId());
         }
-        this.removeByIds(children.stream().map(Template::getId).collect(Collectors.toList()));
+        List<Long> childIds = children.stream().map(Template::getId).collect(Collectors.toList());
+        if (this.removeByIds(childIds)) {
+            publishRemoved(childIds);
+        }
     }
 
     private void validateNode(Template tree, boolean isUpdate) {
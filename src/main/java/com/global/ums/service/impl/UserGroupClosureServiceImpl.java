@@ -0,0 +1,193 @@
+package com.global.ums.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.global.ums.dto.DescendantDTO;
+import com.global.ums.dto.DescendantPageDTO;
+import com.global.ums.entity.UserGroup;
+import com.global.ums.entity.UserGroupClosure;
+import com.global.ums.mapper.UserGroupClosureMapper;
+import com.global.ums.mapper.UserGroupMapper;
+import com.global.ums.service.EffectivePropertiesService;
+import com.global.ums.service.UserGroupClosureService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 用户组闭包服务实现类
+ */
+@Service
+public class UserGroupClosureServiceImpl extends ServiceImpl<UserGroupClosureMapper, UserGroupClosure> implements UserGroupClosureService {
+
+    /**
+     * 单条 INSERT 语句的最大行数
+     */
+    private static final int UPSERT_CHUNK_SIZE = 500;
+
+    @Autowired
+    private UserGroupMapper userGroupMapper;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private EffectivePropertiesService effectivePropertiesService;
+
+    /**
+     * 懒加载EffectivePropertiesService，避免循环依赖
+     */
+    private EffectivePropertiesService getEffectivePropertiesService() {
+        if (effectivePropertiesService == null) {
+            effectivePropertiesService = applicationContext.getBean(EffectivePropertiesService.class);
+        }
+        return effectivePropertiesService;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void onEdgeAdded(Long userId, Long parentUserId) {
+        if (userId == null || parentUserId == null || userId.equals(parentUserId)) {
+            return;
+        }
+        link(userId, parentUserId);
+        // 新增的祖先属性会影响 userId 及其所有后代
+        getEffectivePropertiesService().evictWithDescendants(Collections.singletonList(userId));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void onEdgeRemoved(Long userId, Long parentUserId) {
+        if (userId == null || parentUserId == null) {
+            return;
+        }
+
+        // 受影响的子树：userId 及其所有后代，子树内部的路径不经过被删除的边，无需调整
+        Set<Long> subtree = new HashSet<>();
+        subtree.add(userId);
+        for (UserGroupClosure closure : getDescendants(userId)) {
+            subtree.add(closure.getDescendantId());
+        }
+
+        // 删除子树与外部祖先之间的所有路径
+        this.remove(new LambdaQueryWrapper<UserGroupClosure>()
+                .in(UserGroupClosure::getDescendantId, subtree)
+                .notIn(UserGroupClosure::getAncestorId, subtree));
+
+        // 通过仍然存在的、从子树指向外部的边重新建立路径
+        List<UserGroup> boundaryEdges = userGroupMapper.selectList(new LambdaQueryWrapper<UserGroup>()
+                .in(UserGroup::getUserId, subtree)
+                .notIn(UserGroup::getParentUserId, subtree));
+        for (UserGroup edge : boundaryEdges) {
+            if (edge.getParentUserId() != null) {
+                link(edge.getUserId(), edge.getParentUserId());
+            }
+        }
+        getEffectivePropertiesService().evictWithDescendants(subtree);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void removeUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        // 先失效缓存，删除后将无法再找到该用户的后代
+        getEffectivePropertiesService().evictWithDescendants(Collections.singletonList(userId));
+        this.remove(new LambdaQueryWrapper<UserGroupClosure>()
+                .eq(UserGroupClosure::getDescendantId, userId)
+                .or()
+                .eq(UserGroupClosure::getAncestorId, userId));
+    }
+
+    @Override
+    public List<UserGroupClosure> getAncestors(Long userId) {
+        if (userId == null) {
+            return Collections.emptyList();
+        }
+        return this.list(new LambdaQueryWrapper<UserGroupClosure>()
+                .eq(UserGroupClosure::getDescendantId, userId)
+                .orderByAsc(UserGroupClosure::getDepth)
+                .orderByAsc(UserGroupClosure::getAncestorId));
+    }
+
+    @Override
+    public List<UserGroupClosure> getDescendants(Long userId) {
+        if (userId == null) {
+            return Collections.emptyList();
+        }
+        return this.list(new LambdaQueryWrapper<UserGroupClosure>()
+                .eq(UserGroupClosure::getAncestorId, userId)
+                .orderByAsc(UserGroupClosure::getDepth)
+                .orderByAsc(UserGroupClosure::getDescendantId));
+    }
+
+    @Override
+    public boolean hasAncestors(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        return this.count(new LambdaQueryWrapper<UserGroupClosure>()
+                .eq(UserGroupClosure::getDescendantId, userId)) > 0;
+    }
+
+    @Override
+    public boolean isAncestor(Long ancestorId, Long descendantId) {
+        if (ancestorId == null || descendantId == null) {
+            return false;
+        }
+        return this.count(new LambdaQueryWrapper<UserGroupClosure>()
+                .eq(UserGroupClosure::getAncestorId, ancestorId)
+                .eq(UserGroupClosure::getDescendantId, descendantId)) > 0;
+    }
+
+    @Override
+    public DescendantPageDTO getDescendantPage(Long userId, Integer maxDepth, Integer type, Long lastId, int pageSize) {
+        DescendantPageDTO page = new DescendantPageDTO();
+        // 多取一条用于判断是否还有下一页
+        List<DescendantDTO> records = baseMapper.selectDescendantPage(userId, maxDepth, type, lastId, pageSize + 1);
+        if (records.size() > pageSize) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+            page.setNextLastId(records.get(pageSize - 1).getUserId());
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 将 parentUserId 及其祖先 与 userId 及其后代 两两连接
+     */
+    private void link(Long userId, Long parentUserId) {
+        List<UserGroupClosure> upper = new ArrayList<>();
+        upper.add(new UserGroupClosure(parentUserId, parentUserId, 0));
+        upper.addAll(getAncestors(parentUserId));
+
+        List<UserGroupClosure> lower = new ArrayList<>();
+        lower.add(new UserGroupClosure(userId, userId, 0));
+        lower.addAll(getDescendants(userId));
+
+        List<UserGroupClosure> rows = new ArrayList<>();
+        for (UserGroupClosure ancestor : upper) {
+            for (UserGroupClosure descendant : lower) {
+                Long ancestorId = ancestor.getAncestorId();
+                Long descendantId = descendant.getDescendantId();
+                if (ancestorId.equals(descendantId)) {
+                    continue;
+                }
+                rows.add(new UserGroupClosure(ancestorId, descendantId,
+                        ancestor.getDepth() + descendant.getDepth() + 1));
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += UPSERT_CHUNK_SIZE) {
+            int to = Math.min(from + UPSERT_CHUNK_SIZE, rows.size());
+            baseMapper.batchUpsert(rows.subList(from, to));
+        }
+    }
+}
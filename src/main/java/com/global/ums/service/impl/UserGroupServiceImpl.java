@@ -3,12 +3,16 @@ package com.global.ums.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.global.ums.entity.ChangeEvent;
 import com.global.ums.entity.User;
 import com.global.ums.entity.UserGroup;
 import com.global.ums.entity.UserProperties;
 import com.global.ums.enums.UserType;
+import com.global.ums.graph.HierarchyGraph;
 import com.global.ums.mapper.UserGroupMapper;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.ChangeEventService;
+import com.global.ums.service.UserGroupClosureService;
 import com.global.ums.service.UserGroupService;
 import com.global.ums.service.UserPropertiesService;
 import com.global.ums.service.UserService;
@@ -17,6 +21,8 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -30,6 +36,15 @@ public class UserGroupServiceImpl extends ServiceImpl<UserGroupMapper, UserGroup
     private final ApplicationContext applicationContext;
     private UserService userService;
     private UserPropertiesService userPropertiesService;
+
+    @Autowired
+    private UserGroupClosureService userGroupClosureService;
+
+    @Autowired
+    private HierarchyGraph hierarchyGraph;
+
+    @Autowired
+    private ChangeEventService changeEventService;
     
     public UserGroupServiceImpl(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
@@ -130,9 +145,123 @@ public class UserGroupServiceImpl extends ServiceImpl<UserGroupMapper, UserGroup
         userGroup.setUserId(userId);
         userGroup.setParentUserId(parentUserId);
         
-        return this.save(userGroup);
+        return saveUserGroup(userGroup);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveUserGroup(UserGroup userGroup) {
+        boolean saved = this.save(userGroup);
+        if (saved) {
+            onEdgeAdded(userGroup.getUserId(), userGroup.getParentUserId());
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateUserGroup(UserGroup userGroup) {
+        UserGroup existing = userGroup.getId() == null ? null : this.getById(userGroup.getId());
+        if (existing == null) {
+            return false;
+        }
+        boolean updated = this.updateById(userGroup);
+        if (!updated) {
+            return false;
+        }
+
+        Long newUserId = userGroup.getUserId() != null ? userGroup.getUserId() : existing.getUserId();
+        Long newParentUserId = userGroup.getParentUserId() != null ? userGroup.getParentUserId() : existing.getParentUserId();
+        if (!Objects.equals(newUserId, existing.getUserId()) || !Objects.equals(newParentUserId, existing.getParentUserId())) {
+            onEdgeRemoved(existing.getUserId(), existing.getParentUserId(), false);
+            onEdgeAdded(newUserId, newParentUserId);
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeUserGroup(Long id) {
+        UserGroup existing = id == null ? null : this.getById(id);
+        if (existing == null) {
+            return false;
+        }
+        boolean removed = this.removeById(id);
+        if (removed) {
+            onEdgeRemoved(existing.getUserId(), existing.getParentUserId(), false);
+        }
+        return removed;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void removeByUserId(Long userId) {
+        List<UserGroup> userGroups = getByUserId(userId);
+        if (userGroups == null || userGroups.isEmpty()) {
+            return;
+        }
+        this.remove(new LambdaQueryWrapper<UserGroup>().eq(UserGroup::getUserId, userId));
+        for (UserGroup userGroup : userGroups) {
+            onEdgeRemoved(userGroup.getUserId(), userGroup.getParentUserId(), false);
+        }
     }
     
+    /**
+     * 新增关系后同步闭包表，并在事务提交后更新内存图
+     * 内存图的更新先于闭包同步注册，提交后先应用并广播层级关系增量，再清理和广播有效属性缓存
+     */
+    private void onEdgeAdded(Long userId, Long parentUserId) {
+        if (userId != null && parentUserId != null) {
+            afterCommit(() -> hierarchyGraph.addEdge(userId, parentUserId));
+        }
+        userGroupClosureService.onEdgeAdded(userId, parentUserId);
+        publishEdgeChange(userId, parentUserId, ChangeEvent.OP_CREATE);
+    }
+
+    /**
+     * 删除关系后同步闭包表，并在事务提交后更新内存图
+     *
+     * 与新增相同，内存图的更新先于闭包同步注册
+     *
+     * @param allCopies 是否删除了该用户对之间的全部关系记录
+     */
+    private void onEdgeRemoved(Long userId, Long parentUserId, boolean allCopies) {
+        if (userId != null && parentUserId != null) {
+            afterCommit(() -> hierarchyGraph.removeEdge(userId, parentUserId, allCopies));
+        }
+        userGroupClosureService.onEdgeRemoved(userId, parentUserId);
+        publishEdgeChange(userId, parentUserId, ChangeEvent.OP_DELETE);
+    }
+
+    /**
+     * 在同一事务中写入用户关系变更事件，事件归属于下级用户
+     */
+    private void publishEdgeChange(Long userId, Long parentUserId, String op) {
+        if (userId == null) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("userId", userId);
+        payload.put("parentUserId", parentUserId);
+        changeEventService.append(ChangeEvent.TYPE_USER_GROUP, userId, op, payload);
+    }
+
+    /**
+     * 事务提交后执行，无事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     @Override
     public boolean validateUserGroup(Long userId, Long parentUserId) {
         if (userId == null || parentUserId == null) {
@@ -151,6 +280,11 @@ public class UserGroupServiceImpl extends ServiceImpl<UserGroupMapper, UserGroup
             return false;
         }
 
+        // 防止出现环：上级不能是自己，也不能是自己的后代
+        if (userId.equals(parentUserId) || userGroupClosureService.isAncestor(userId, parentUserId)) {
+            return false;
+        }
+
         long count = count(new LambdaQueryWrapper<UserGroup>().eq(UserGroup::getUserId, userId).eq(UserGroup::getParentUserId, parentUserId));
         return count == 0;
     }
@@ -197,6 +331,7 @@ public class UserGroupServiceImpl extends ServiceImpl<UserGroupMapper, UserGroup
                             // 如果旧关系的category在新添加的categories中，则删除
                             if (categories.contains(existingCategory)) {
                                 removeById(existingGroup.getId());
+                                onEdgeRemoved(existingGroup.getUserId(), existingParentId, false);
                                 break;
                             }
                         }
@@ -215,7 +350,7 @@ public class UserGroupServiceImpl extends ServiceImpl<UserGroupMapper, UserGroup
                 }
                 
                 // 保存用户组关系
-                boolean result = this.save(userGroup);
+                boolean result = saveUserGroup(userGroup);
                 if (result) {
                     successCount++;
                 } else {
@@ -277,6 +412,7 @@ public class UserGroupServiceImpl extends ServiceImpl<UserGroupMapper, UserGroup
 
                 boolean result = this.remove(queryWrapper);
                 if (result) {
+                    onEdgeRemoved(userId, parentUserId, true);
                     successCount++;
                 } else {
                     failCount++;
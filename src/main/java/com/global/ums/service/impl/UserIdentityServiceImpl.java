@@ -0,0 +1,145 @@
+package com.global.ums.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.global.ums.constant.UserPropertiesConstant;
+import com.global.ums.entity.UserIdentity;
+import com.global.ums.entity.UserProperties;
+import com.global.ums.mapper.UserIdentityMapper;
+import com.global.ums.mapper.UserPropertiesMapper;
+import com.global.ums.service.UserIdentityService;
+import com.global.ums.utils.CompressionUtils;
+import com.global.ums.utils.StringUtils;
+import com.global.ums.utils.ValueHashUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 用户外部身份索引服务实现类
+ */
+@Service
+public class UserIdentityServiceImpl extends ServiceImpl<UserIdentityMapper, UserIdentity> implements UserIdentityService {
+
+    /**
+     * 需要建立身份索引的属性键
+     */
+    private static final Set<String> IDENTITY_KEYS = new HashSet<>(Arrays.asList(
+            UserPropertiesConstant.KEY_USERNAME,
+            UserPropertiesConstant.KEY_MA_OPENID,
+            UserPropertiesConstant.KEY_MP_OPENID,
+            UserPropertiesConstant.KEY_UNIONID));
+
+    /**
+     * external_id 列长度
+     */
+    private static final int MAX_EXTERNAL_ID_LENGTH = 255;
+
+    /**
+     * 直接使用 Mapper 查询属性，避免与 UserPropertiesService 循环依赖
+     */
+    @Autowired
+    private UserPropertiesMapper userPropertiesMapper;
+
+    @Override
+    public boolean isIdentityKey(String key) {
+        return key != null && IDENTITY_KEYS.contains(key);
+    }
+
+    @Override
+    public Long getUserId(String provider, String externalId) {
+        if (provider == null || externalId == null || externalId.isEmpty()) {
+            return null;
+        }
+        UserIdentity identity = getOne(new LambdaQueryWrapper<UserIdentity>()
+                .select(UserIdentity::getUserId)
+                .eq(UserIdentity::getProvider, provider)
+                .eq(UserIdentity::getExternalId, externalId));
+        return identity == null ? null : identity.getUserId();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void replaceIdentities(Long userId, String provider, Collection<byte[]> values) {
+        if (userId == null || !isIdentityKey(provider)) {
+            return;
+        }
+        Set<String> externalIds = new LinkedHashSet<>();
+        if (values != null) {
+            for (byte[] value : values) {
+                if (value != null && value.length > 0) {
+                    String externalId = new String(value, StandardCharsets.UTF_8);
+                    if (externalId.length() <= MAX_EXTERNAL_ID_LENGTH) {
+                        externalIds.add(externalId);
+                    }
+                }
+            }
+        }
+
+        // 只删除仍指向该用户的索引，已被其他用户占用的身份标识不受影响
+        LambdaQueryWrapper<UserIdentity> owned = new LambdaQueryWrapper<UserIdentity>()
+                .eq(UserIdentity::getUserId, userId)
+                .eq(UserIdentity::getProvider, provider);
+        List<UserIdentity> previous = list(owned);
+        remove(owned);
+
+        if (!externalIds.isEmpty()) {
+            List<UserIdentity> identities = new ArrayList<>(externalIds.size());
+            for (String externalId : externalIds) {
+                identities.add(identity(provider, externalId, userId));
+            }
+            baseMapper.batchUpsert(identities);
+        }
+
+        // 该用户不再使用的身份标识可能是从其他用户处接管的，其他用户的属性仍为该值时改为指向其中最近写入的用户
+        for (UserIdentity identity : previous) {
+            if (!externalIds.contains(identity.getExternalId())) {
+                restoreOwner(provider, identity.getExternalId());
+            }
+        }
+    }
+
+    /**
+     * 从 ums_user_properties 中查找仍使用该身份标识的用户（按 value_hash 定位后比较完整值），有则重新建立索引
+     */
+    private void restoreOwner(String provider, String externalId) {
+        byte[] value = externalId.getBytes(StandardCharsets.UTF_8);
+        List<UserProperties> candidates = userPropertiesMapper.selectList(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getValue,
+                        UserProperties::getBlobRef, UserProperties::getCompressed)
+                .eq(UserProperties::getKey, provider)
+                .eq(UserProperties::getValueHash, ValueHashUtils.hash(value))
+                .orderByDesc(UserProperties::getUpdateTime)
+                .orderByDesc(UserProperties::getId));
+        for (UserProperties candidate : candidates) {
+            // 身份标识不超过 255 字节，不会保存到外部存储
+            if (candidate.getUserId() == null || StringUtils.isNotEmpty(candidate.getBlobRef())) {
+                continue;
+            }
+            byte[] stored = Boolean.TRUE.equals(candidate.getCompressed())
+                    ? CompressionUtils.decompress(candidate.getValue()) : candidate.getValue();
+            if (Arrays.equals(stored, value)) {
+                baseMapper.batchUpsert(Collections.singletonList(identity(provider, externalId, candidate.getUserId())));
+                return;
+            }
+        }
+    }
+
+    private static UserIdentity identity(String provider, String externalId, Long userId) {
+        UserIdentity identity = new UserIdentity();
+        identity.setProvider(provider);
+        identity.setExternalId(externalId);
+        identity.setUserId(userId);
+        return identity;
+    }
+}
@@ -1,28 +1,49 @@
 package com.global.ums.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.global.ums.constant.UserPropertiesConstant;
+import com.global.ums.dto.PropertyDeltaDTO;
 import com.global.ums.dto.PropertyTreeDTO;
+import com.global.ums.entity.ChangeEvent;
 import com.global.ums.entity.PropertyKeys;
 import com.global.ums.entity.User;
-import com.global.ums.entity.UserGroup;
 import com.global.ums.entity.UserProperties;
+import com.global.ums.entity.UserPropertyTombstone;
+import com.global.ums.enums.CompressionCodec;
+import com.global.ums.enums.DataType;
+import com.global.ums.graph.HierarchyGraph;
 import com.global.ums.mapper.UserPropertiesMapper;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.BlobStoreService;
+import com.global.ums.service.ChangeEventService;
+import com.global.ums.service.EffectivePropertiesService;
 import com.global.ums.service.PropertyKeysService;
-import com.global.ums.service.UserGroupService;
+import com.global.ums.service.UserIdentityService;
 import com.global.ums.service.UserPropertiesService;
+import com.global.ums.service.UserPropertyVersionService;
 import com.global.ums.service.UserService;
+import com.global.ums.utils.CompressionUtils;
+import com.global.ums.utils.DataTypeUtils;
 import com.global.ums.utils.KeyValidationUtils;
+import com.global.ums.utils.StringUtils;
+import com.global.ums.utils.ValueHashUtils;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,19 +51,65 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 用户属性服务实现类
  */
+@Slf4j
 @Service
 public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper, UserProperties> implements UserPropertiesService {
 
+    /**
+     * 延迟加载属性值时单条 IN 查询的最大ID数
+     */
+    private static final int LAZY_VALUE_CHUNK_SIZE = 1000;
+
+    /**
+     * 单条 INSERT 语句的最大行数
+     */
+    private static final int UPSERT_CHUNK_SIZE = 500;
+
+    /**
+     * 重新计算影子列时每批处理的行数
+     */
+    private static final int TYPED_COLUMNS_CHUNK_SIZE = 500;
+
+    /**
+     * 压缩阈值（字节），配置了压缩算法的属性键只压缩不小于该大小的值
+     * 配置项: property.compression.threshold
+     */
+    @Value("${property.compression.threshold:1024}")
+    private int compressionThreshold;
+
+    /**
+     * 后台重新计算影子列的线程，同一时间只处理一个属性键
+     */
+    private final ExecutorService typedColumnsRefreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "typed-columns-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 已排队、尚未开始重新计算影子列的属性键
+     */
+    private final Set<String> pendingTypedColumnRefreshes = ConcurrentHashMap.newKeySet();
+
     private final ApplicationContext applicationContext;
     private UserService userService;
-    private UserGroupService userGroupService;
+    private HierarchyGraph hierarchyGraph;
     private PropertyKeysService propertyKeysService;
+    private EffectivePropertiesService effectivePropertiesService;
+    private UserIdentityService userIdentityService;
+    private BlobStoreService blobStoreService;
+    private UserPropertyVersionService userPropertyVersionService;
+    private ChangeEventService changeEventService;
 
     public UserPropertiesServiceImpl(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
@@ -59,13 +126,13 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
     }
 
     /**
-     * 懒加载UserGroupService，避免循环依赖
+     * 懒加载HierarchyGraph
      */
-    private UserGroupService getUserGroupService() {
-        if (userGroupService == null) {
-            userGroupService = applicationContext.getBean(UserGroupService.class);
+    private HierarchyGraph getHierarchyGraph() {
+        if (hierarchyGraph == null) {
+            hierarchyGraph = applicationContext.getBean(HierarchyGraph.class);
         }
-        return userGroupService;
+        return hierarchyGraph;
     }
 
     /**
@@ -78,6 +145,418 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
         return propertyKeysService;
     }
 
+    /**
+     * 懒加载EffectivePropertiesService，避免循环依赖
+     */
+    private EffectivePropertiesService getEffectivePropertiesService() {
+        if (effectivePropertiesService == null) {
+            effectivePropertiesService = applicationContext.getBean(EffectivePropertiesService.class);
+        }
+        return effectivePropertiesService;
+    }
+
+    /**
+     * 懒加载UserIdentityService
+     */
+    private UserIdentityService getUserIdentityService() {
+        if (userIdentityService == null) {
+            userIdentityService = applicationContext.getBean(UserIdentityService.class);
+        }
+        return userIdentityService;
+    }
+
+    /**
+     * 懒加载BlobStoreService
+     */
+    private BlobStoreService getBlobStoreService() {
+        if (blobStoreService == null) {
+            blobStoreService = applicationContext.getBean(BlobStoreService.class);
+        }
+        return blobStoreService;
+    }
+
+    /**
+     * 懒加载UserPropertyVersionService
+     */
+    private UserPropertyVersionService getUserPropertyVersionService() {
+        if (userPropertyVersionService == null) {
+            userPropertyVersionService = applicationContext.getBean(UserPropertyVersionService.class);
+        }
+        return userPropertyVersionService;
+    }
+
+    /**
+     * 懒加载ChangeEventService
+     */
+    private ChangeEventService getChangeEventService() {
+        if (changeEventService == null) {
+            changeEventService = applicationContext.getBean(ChangeEventService.class);
+        }
+        return changeEventService;
+    }
+
+    // ==================== 写操作：填充派生列、分配版本号、记录变更事件、同步身份索引并失效有效属性缓存 ====================
+    // saveOrUpdate 内部会调用 save/updateById，无需单独处理
+    // 版本号在写入事务内分配，同一用户的写入按版本号顺序提交
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean save(UserProperties entity) {
+        beforeWrite(entity);
+        stampVersions(Collections.singletonList(entity));
+        boolean result = super.save(entity);
+        afterWrite(entity);
+        if (result) {
+            onPropertiesChanged(Collections.singletonList(entity), ChangeEvent.OP_CREATE);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveBatch(Collection<UserProperties> entityList, int batchSize) {
+        entityList.forEach(this::beforeWrite);
+        stampVersions(entityList);
+        boolean result = super.saveBatch(entityList, batchSize);
+        entityList.forEach(this::afterWrite);
+        onPropertiesChanged(entityList, ChangeEvent.OP_CREATE);
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveOrUpdateBatch(Collection<UserProperties> entityList, int batchSize) {
+        entityList.forEach(this::beforeWrite);
+        stampVersions(entityList);
+        boolean result = super.saveOrUpdateBatch(entityList, batchSize);
+        entityList.forEach(this::afterWrite);
+        onPropertiesChanged(entityList, ChangeEvent.OP_UPSERT);
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateById(UserProperties entity) {
+        beforeWrite(entity);
+        stampVersions(Collections.singletonList(entity));
+        boolean result = super.updateById(entity);
+        afterWrite(entity);
+        if (result) {
+            onPropertiesChanged(Collections.singletonList(entity), ChangeEvent.OP_UPDATE);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateBatchById(Collection<UserProperties> entityList, int batchSize) {
+        entityList.forEach(this::beforeWrite);
+        stampVersions(entityList);
+        boolean result = super.updateBatchById(entityList, batchSize);
+        entityList.forEach(this::afterWrite);
+        onPropertiesChanged(entityList, ChangeEvent.OP_UPDATE);
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeById(Serializable id) {
+        UserProperties existing = getById(id);
+        if (existing == null) {
+            return false;
+        }
+        // 先分配删除标记的版本号再删除，与写入路径一致：先锁版本序列行，再锁属性行
+        getUserPropertyVersionService().recordTombstones(Collections.singletonList(existing));
+        boolean result = super.removeById(id);
+        if (result) {
+            onPropertiesChanged(Collections.singletonList(existing), ChangeEvent.OP_DELETE);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean remove(Wrapper<UserProperties> queryWrapper) {
+        // 只需要 userId 和 key 记录删除标记和清理缓存，不读取属性值
+        List<UserProperties> existing = baseMapper.selectKeysByWrapper(queryWrapper);
+        if (existing.isEmpty()) {
+            return false;
+        }
+        // 先分配删除标记的版本号再删除，与写入路径一致：先锁版本序列行，再锁属性行
+        getUserPropertyVersionService().recordTombstones(existing);
+        boolean result = super.remove(queryWrapper);
+        if (result) {
+            onPropertiesChanged(existing, ChangeEvent.OP_DELETE);
+        }
+        return result;
+    }
+
+    /**
+     * 写入前根据属性值计算派生列（值为null表示本次不更新该值）
+     * 需要外部存储的值写入 BlobStore，value 列只保留空值，blob_ref 为空串表示值保存在 value 列中
+     */
+    private void beforeWrite(UserProperties entity) {
+        if (entity == null) {
+            return;
+        }
+        if (entity.getValue() == null) {
+            preserveTypedColumns(entity);
+            return;
+        }
+        byte[] value = entity.getValue();
+        if (value.length == 0 && StringUtils.isNotEmpty(entity.getBlobRef()) && entity.getValueHash() != null) {
+            // 已通过 BlobStoreService.ingest 流式写入，引用与哈希在写入时已确定
+            entity.setCompressed(false);
+            fillTypedColumns(entity, null);
+            return;
+        }
+        entity.setValueHash(ValueHashUtils.hash(value));
+        if (getBlobStoreService().shouldOffload(value)) {
+            entity.setBlobRef(getBlobStoreService().put(value));
+            entity.setValue(new byte[0]);
+            entity.setCompressed(false);
+            fillTypedColumns(entity, null);
+        } else {
+            entity.setBlobRef("");
+            fillTypedColumns(entity, value);
+            compressValue(entity, value);
+        }
+    }
+
+    /**
+     * 属性键配置了压缩算法且值达到压缩阈值时以压缩格式保存，哈希与影子列仍按原值计算
+     */
+    private void compressValue(UserProperties entity, byte[] value) {
+        byte[] encoded = null;
+        if (value.length >= compressionThreshold) {
+            encoded = CompressionUtils.compress(value, getDeclaredCompression(resolveKey(entity)));
+        }
+        entity.setCompressed(encoded != null);
+        if (encoded != null) {
+            entity.setValue(encoded);
+        }
+    }
+
+    /**
+     * 根据属性键的数据类型填充影子列：整数写入 value_long，布尔写入 value_bool，
+     * 其余文本（以及无法按声明类型解析的值）写入 value_str_prefix；外部存储的值不填充
+     */
+    private void fillTypedColumns(UserProperties entity, byte[] value) {
+        entity.setValueLong(null);
+        entity.setValueBool(null);
+        entity.setValueStrPrefix(null);
+        if (value == null || value.length == 0) {
+            return;
+        }
+        String text = new String(value, StandardCharsets.UTF_8);
+        switch (getDeclaredDataType(resolveKey(entity))) {
+            case INTEGER:
+            case LONG:
+                entity.setValueLong(DataTypeUtils.parseLong(text));
+                break;
+            case BOOLEAN:
+                entity.setValueBool(DataTypeUtils.parseBoolean(text));
+                break;
+            case BINARY:
+                return;
+            default:
+                break;
+        }
+        if (entity.getValueLong() == null && entity.getValueBool() == null) {
+            entity.setValueStrPrefix(DataTypeUtils.toStrPrefix(text));
+        }
+    }
+
+    /**
+     * 影子列在更新时总是写入，未携带属性值的更新需回填数据库中的原值
+     */
+    private void preserveTypedColumns(UserProperties entity) {
+        if (entity.getId() == null) {
+            return;
+        }
+        UserProperties existing = baseMapper.selectOne(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getValueLong,
+                        UserProperties::getValueStrPrefix, UserProperties::getValueBool)
+                .eq(UserProperties::getId, entity.getId()));
+        if (existing != null) {
+            entity.setValueLong(existing.getValueLong());
+            entity.setValueStrPrefix(existing.getValueStrPrefix());
+            entity.setValueBool(existing.getValueBool());
+        }
+    }
+
+    /**
+     * 按用户分组为本次写入的属性分配连续的版本号
+     * 按用户ID升序分配，保证并发事务以相同顺序锁定版本序列行
+     */
+    private void stampVersions(Collection<UserProperties> entities) {
+        Map<Long, Long> storedUserIds = loadUserIds(entities);
+        Map<Long, List<UserProperties>> byUser = new TreeMap<>();
+        for (UserProperties entity : entities) {
+            Long userId = entity.getUserId() != null ? entity.getUserId() : storedUserIds.get(entity.getId());
+            if (userId != null) {
+                byUser.computeIfAbsent(userId, k -> new ArrayList<>()).add(entity);
+            }
+        }
+        for (Map.Entry<Long, List<UserProperties>> entry : byUser.entrySet()) {
+            List<UserProperties> rows = entry.getValue();
+            long version = getUserPropertyVersionService().allocate(entry.getKey(), rows.size()) - rows.size() + 1;
+            for (UserProperties row : rows) {
+                row.setVersion(version++);
+            }
+        }
+    }
+
+    /**
+     * 一次查询出未携带 userId 的属性（按ID更新）所属的用户ID
+     */
+    private Map<Long, Long> loadUserIds(Collection<UserProperties> entities) {
+        Set<Long> ids = new HashSet<>();
+        for (UserProperties entity : entities) {
+            if (entity.getUserId() == null && entity.getId() != null) {
+                ids.add(entity.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Long> userIds = new HashMap<>();
+        for (UserProperties existing : baseMapper.selectList(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId)
+                .in(UserProperties::getId, ids))) {
+            userIds.put(existing.getId(), existing.getUserId());
+        }
+        return userIds;
+    }
+
+    private String resolveKey(UserProperties entity) {
+        if (entity.getKey() != null || entity.getId() == null) {
+            return entity.getKey();
+        }
+        UserProperties existing = baseMapper.selectOne(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getKey)
+                .eq(UserProperties::getId, entity.getId()));
+        return existing == null ? null : existing.getKey();
+    }
+
+    private DataType getDeclaredDataType(String key) {
+        PropertyKeys propertyKey = key == null ? null : getPropertyKeysService().getByKey(key);
+        if (propertyKey == null || propertyKey.getDataType() == null) {
+            return DataType.UNKNOWN;
+        }
+        return DataType.fromValue(propertyKey.getDataType());
+    }
+
+    private CompressionCodec getDeclaredCompression(String key) {
+        PropertyKeys propertyKey = key == null ? null : getPropertyKeysService().getByKey(key);
+        CompressionCodec codec = propertyKey == null ? null : CompressionCodec.fromValue(propertyKey.getCompression());
+        return codec == null ? CompressionCodec.NONE : codec;
+    }
+
+    /**
+     * 写入后恢复外部存储值和压缩值的访问（按需从 BlobStore 读取或解压）
+     */
+    private void afterWrite(UserProperties entity) {
+        if (entity == null) {
+            return;
+        }
+        if (StringUtils.isNotEmpty(entity.getBlobRef())) {
+            String ref = entity.getBlobRef();
+            entity.setValueLoader(() -> getBlobStoreService().get(ref));
+        } else if (Boolean.TRUE.equals(entity.getCompressed()) && entity.getValue() != null) {
+            byte[] encoded = entity.getValue();
+            entity.setValueLoader(() -> CompressionUtils.decompress(encoded));
+        }
+    }
+
+    /**
+     * 属性变更后记录变更事件、同步身份索引，并使所属用户及其后代的有效属性缓存失效
+     *
+     * @param op 变更事件操作类型
+     */
+    private void onPropertiesChanged(Collection<UserProperties> changed, String op) {
+        if (changed == null || changed.isEmpty()) {
+            return;
+        }
+        List<UserProperties> known = new ArrayList<>(changed.size());
+        List<Long> unknownIds = new ArrayList<>();
+        for (UserProperties property : changed) {
+            if (property.getUserId() != null && property.getKey() != null) {
+                known.add(property);
+            } else if (property.getId() != null) {
+                unknownIds.add(property.getId());
+            }
+        }
+        if (!unknownIds.isEmpty()) {
+            known.addAll(baseMapper.selectList(new LambdaQueryWrapper<UserProperties>()
+                    .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getKey)
+                    .in(UserProperties::getId, unknownIds)));
+        }
+
+        publishChanges(changed, known, op);
+
+        Set<Long> userIds = new HashSet<>();
+        Map<Long, Set<String>> identityKeysByUser = new HashMap<>();
+        for (UserProperties property : known) {
+            if (property.getUserId() == null) {
+                continue;
+            }
+            userIds.add(property.getUserId());
+            if (getUserIdentityService().isIdentityKey(property.getKey())) {
+                identityKeysByUser.computeIfAbsent(property.getUserId(), k -> new HashSet<>()).add(property.getKey());
+            }
+        }
+        syncIdentities(identityKeysByUser);
+        getEffectivePropertiesService().evictWithDescendants(userIds);
+    }
+
+    /**
+     * 在当前事务中追加属性变更事件，事件内容只包含用户ID、属性键和版本号，消费方按需读取属性值
+     *
+     * @param changed 本次写入的属性（携带版本号）
+     * @param known 已确定 userId 和 key 的属性
+     */
+    private void publishChanges(Collection<UserProperties> changed, List<UserProperties> known, String op) {
+        Map<Long, Long> versionsById = new HashMap<>();
+        for (UserProperties property : changed) {
+            if (property.getId() != null && property.getVersion() != null) {
+                versionsById.put(property.getId(), property.getVersion());
+            }
+        }
+        List<ChangeEvent> events = new ArrayList<>(known.size());
+        for (UserProperties property : known) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("userId", property.getUserId());
+            payload.put("key", property.getKey());
+            Long version = property.getVersion() != null ? property.getVersion() : versionsById.get(property.getId());
+            if (version != null && !ChangeEvent.OP_DELETE.equals(op)) {
+                payload.put("version", version);
+            }
+            events.add(ChangeEvent.of(ChangeEvent.TYPE_PROPERTY, property.getUserId(), op, payload));
+        }
+        getChangeEventService().appendAll(events);
+    }
+
+    /**
+     * 以写入后的属性值重建受影响用户的身份索引（更新与删除时旧值随之移除）
+     */
+    private void syncIdentities(Map<Long, Set<String>> identityKeysByUser) {
+        for (Map.Entry<Long, Set<String>> entry : identityKeysByUser.entrySet()) {
+            Long userId = entry.getKey();
+            Map<String, List<byte[]>> valuesByKey = new HashMap<>();
+            for (UserProperties property : baseMapper.selectList(new LambdaQueryWrapper<UserProperties>()
+                    .select(UserProperties::getKey, UserProperties::getValue,
+                            UserProperties::getBlobRef, UserProperties::getCompressed)
+                    .eq(UserProperties::getUserId, userId)
+                    .in(UserProperties::getKey, entry.getValue()))) {
+                valuesByKey.computeIfAbsent(property.getKey(), k -> new ArrayList<>()).add(property.getValue());
+            }
+            for (String key : entry.getValue()) {
+                getUserIdentityService().replaceIdentities(userId, key, valuesByKey.get(key));
+            }
+        }
+    }
+
     @Override
     public List<UserProperties> getByUserId(Long userId, Boolean isHidden) {
         LambdaQueryWrapper<UserProperties> queryWrapper = new LambdaQueryWrapper<>();
@@ -104,6 +583,14 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
         return properties;
     }
     
+    @Override
+    public List<UserProperties> listSelfAndAncestorProperties(Long userId) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        return baseMapper.selectSelfAndAncestorProperties(userId);
+    }
+
     @Override
     public UserProperties getByUserIdAndKey(Long userId, String key) {
         LambdaQueryWrapper<UserProperties> queryWrapper = new LambdaQueryWrapper<>();
@@ -115,9 +602,9 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
 
         // 如果当前用户没有该属性，向上查找父级用户的属性（保留原始的 user_id）
         if (userProperties == null) {
-            List<UserGroup> userGroups = getUserGroupService().getByUserId(userId);
-            if (!userGroups.isEmpty()) {
-                userProperties = findFirstParentProperty(userGroups, key, new ArrayList<>());
+            long[] ancestors = getHierarchyGraph().ancestors(userId);
+            if (ancestors.length > 0) {
+                userProperties = findFirstParentProperty(ancestors, key);
             }
         }
 
@@ -126,45 +613,7 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
 
     @Override
     public List<UserProperties> getAllByUserIdAndKey(Long userId, String key) {
-        User user = userService.getById(userId);
-        if(user == null){
-            return Collections.emptyList();
-        }
-        List<UserProperties> result = new ArrayList<>();
-
-        // 首先查找当前用户的属性
-        LambdaQueryWrapper<UserProperties> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(UserProperties::getUserId, userId)
-                .eq(UserProperties::getKey, key);
-        UserProperties userProperties = this.getOne(queryWrapper);
-        if (userProperties != null) {
-            fillUserType(userProperties);
-            result.add(userProperties);
-        }
-
-        // 收集所有父级用户的同key属性
-        List<UserGroup> userGroups = getUserGroupService().getByUserId(userId);
-        if (!userGroups.isEmpty()) {
-            collectAllParentProperties(userGroups, key, result, new ArrayList<>());
-            // 为父级属性填充 userType
-            for (UserProperties property : result) {
-                if (property.getUserType() == null) {
-                    fillUserType(property);
-                }
-                if(property.getKey().equals(UserPropertiesConstant.KEY_STORAGE)){
-                    // 只有当 storage 的值为 true 时，才将其值设置为 userId
-                    if (property.getValue() != null) {
-                        String storageValue = new String(property.getValue(), StandardCharsets.UTF_8);
-                        if ("true".equalsIgnoreCase(storageValue)) {
-                            property.setUserType(1);
-                            property.setValue(user.getUniqueId().getBytes(StandardCharsets.UTF_8));
-                        }
-                    }
-                }
-            }
-        }
-
-        return result;
+        return batchGetByUserIdAndKeys(userId, Collections.singletonList(key));
     }
 
     @Override
@@ -172,102 +621,59 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
         if (keys == null || keys.isEmpty()) {
             return new ArrayList<>();
         }
-
-        List<UserProperties> result = new ArrayList<>();
-
-        // 为每个 key 获取所有属性（包括当前用户和父级用户的）
-        for (String key : keys) {
-            List<UserProperties> allProperties = getAllByUserIdAndKey(userId, key);
-            result.addAll(allProperties);
-        }
-
-        return result;
+        // 每个 key 包括当前用户和父级用户的属性，由有效属性缓存一次性提供
+        return getEffectivePropertiesService().resolveAll(userId, keys);
     }
 
     /**
-     * 递归查找第一个存在的父级用户属性
+     * 查找距离最近的父级用户属性
      *
-     * @param userGroups 当前用户的用户组列表
+     * @param ancestors 当前用户的祖先（按层级距离由近到远排序）
      * @param key 要查找的属性key
-     * @param visitedUsers 已访问的用户ID列表，防止循环引用
      * @return 找到的第一个父级属性，如果未找到则返回null
      */
-    private UserProperties findFirstParentProperty(List<UserGroup> userGroups, String key, List<Long> visitedUsers) {
-        for (UserGroup userGroup : userGroups) {
-            Long parentUserId = userGroup.getParentUserId();
-            if (parentUserId != null && !visitedUsers.contains(parentUserId)) {
-                visitedUsers.add(parentUserId);
-
-                // 查找父级用户的属性
-                UserProperties parentProperty = getDirectUserProperty(parentUserId, key);
-                if (parentProperty != null) {
-                    // 找到了，直接返回（保留原始的 userId）
-                    return parentProperty;
-                }
-
-                // 当前父级没有，继续递归查找父级的父级
-                List<UserGroup> parentGroups = getUserGroupService().getByUserId(parentUserId);
-                if (!parentGroups.isEmpty()) {
-                    UserProperties result = findFirstParentProperty(parentGroups, key, new ArrayList<>(visitedUsers));
-                    if (result != null) {
-                        return result;
-                    }
-                }
+    private UserProperties findFirstParentProperty(long[] ancestors, String key) {
+        Map<Long, UserProperties> propertiesByUser = getAncestorPropertiesByUser(ancestors, key);
+        for (long ancestorId : ancestors) {
+            UserProperties parentProperty = propertiesByUser.get(ancestorId);
+            if (parentProperty != null) {
+                return parentProperty;
             }
         }
         return null;
     }
 
     /**
-     * 递归收集所有父级用户的指定key属性
+     * 一次查询获取所有祖先用户的指定key属性
      *
-     * @param userGroups 当前用户的用户组列表
-     * @param key 要查找的属性key
-     * @param parentProperties 收集父级属性的列表
-     * @param visitedUsers 已访问的用户ID列表，防止循环引用
-     */
-    private void collectAllParentProperties(List<UserGroup> userGroups, String key, List<UserProperties> parentProperties, List<Long> visitedUsers) {
-        for (UserGroup userGroup : userGroups) {
-            Long parentUserId = userGroup.getParentUserId();
-            if (parentUserId != null && !visitedUsers.contains(parentUserId)) {
-                visitedUsers.add(parentUserId);
-                
-                // 查找父级用户的属性
-                UserProperties parentProperty = getDirectUserProperty(parentUserId, key);
-                if (parentProperty != null) {
-                    parentProperties.add(parentProperty);
-                }
-                
-                // 继续递归查找父级的父级
-                List<UserGroup> parentGroups = getUserGroupService().getByUserId(parentUserId);
-                if (parentGroups.size() != 0) {
-                    collectAllParentProperties(parentGroups, key, parentProperties, new ArrayList<>(visitedUsers));
-                }
-            }
-        }
-    }
-    
-    /**
-     * 直接查找指定用户的属性（不递归）
-     * 
-     * @param userId 用户ID
+     * @param ancestors 祖先用户ID
      * @param key 属性key
-     * @return 用户属性
+     * @return userId -> 属性
      */
-    private UserProperties getDirectUserProperty(Long userId, String key) {
-        LambdaQueryWrapper<UserProperties> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(UserProperties::getUserId, userId)
-                .eq(UserProperties::getKey, key);
-        return this.getOne(queryWrapper);
+    private Map<Long, UserProperties> getAncestorPropertiesByUser(long[] ancestors, String key) {
+        if (ancestors.length == 0) {
+            return Collections.emptyMap();
+        }
+        List<Long> ancestorIds = Arrays.stream(ancestors).boxed().collect(Collectors.toList());
+        List<UserProperties> properties = this.list(new LambdaQueryWrapper<UserProperties>()
+                .in(UserProperties::getUserId, ancestorIds)
+                .eq(UserProperties::getKey, key));
+        return properties.stream()
+                .collect(Collectors.toMap(UserProperties::getUserId, Function.identity(),
+                        (origin, replacement) -> origin));
     }
 
     @Override
     public UserProperties getKeyisExist(String key, byte[] value) {
-        LambdaQueryWrapper<UserProperties> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(UserProperties::getKey, key);
-        List<UserProperties> list = list(queryWrapper);
-        for (UserProperties userProperties : list) {
-            if (java.util.Arrays.equals(userProperties.getValue(), value)) {
+        if (key == null || value == null) {
+            return null;
+        }
+        // 通过 (key, value_hash) 索引定位，再逐字节确认以排除哈希碰撞
+        List<UserProperties> candidates = list(new LambdaQueryWrapper<UserProperties>()
+                .eq(UserProperties::getKey, key)
+                .eq(UserProperties::getValueHash, ValueHashUtils.hash(value)));
+        for (UserProperties userProperties : candidates) {
+            if (Arrays.equals(userProperties.getValue(), value)) {
                 return userProperties;
             }
         }
@@ -275,6 +681,188 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
     }
 
     @Override
+    public List<UserProperties> listByKeyAndValue(String key, byte[] value) {
+        if (key == null || value == null) {
+            return new ArrayList<>();
+        }
+        List<UserProperties> candidates = list(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getKey,
+                        UserProperties::getValue, UserProperties::getBlobRef, UserProperties::getCompressed)
+                .eq(UserProperties::getKey, key)
+                .eq(UserProperties::getValueHash, ValueHashUtils.hash(value)));
+        candidates.removeIf(property -> !Arrays.equals(property.getValue(), value));
+        for (UserProperties property : candidates) {
+            property.setValue(null);
+            property.setBlobRef(null);
+        }
+        return candidates;
+    }
+
+    @Override
+    public List<UserProperties> listByTypedValue(String key, String value) {
+        if (key == null || value == null) {
+            return new ArrayList<>();
+        }
+        LambdaQueryWrapper<UserProperties> wrapper = new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getKey)
+                .eq(UserProperties::getKey, key);
+        DataType dataType = getDeclaredDataType(key);
+        Long longValue = dataType == DataType.INTEGER || dataType == DataType.LONG ? DataTypeUtils.parseLong(value) : null;
+        Boolean boolValue = dataType == DataType.BOOLEAN ? DataTypeUtils.parseBoolean(value) : null;
+        if (longValue != null) {
+            return list(wrapper.eq(UserProperties::getValueLong, longValue));
+        }
+        if (boolValue != null) {
+            return list(wrapper.eq(UserProperties::getValueBool, boolValue));
+        }
+        String prefix = DataTypeUtils.toStrPrefix(value);
+        if (DataTypeUtils.fitsStrPrefix(value)) {
+            return list(wrapper.eq(UserProperties::getValueStrPrefix, prefix));
+        }
+        // 达到前缀长度的值先按前缀过滤，再比较完整值
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        List<UserProperties> candidates = list(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getKey,
+                        UserProperties::getValue, UserProperties::getCompressed)
+                .eq(UserProperties::getKey, key)
+                .eq(UserProperties::getValueStrPrefix, prefix));
+        candidates.removeIf(property -> !Arrays.equals(property.getValue(), bytes));
+        candidates.forEach(property -> property.setValue(null));
+        return candidates;
+    }
+
+    @Override
+    public void refreshTypedColumnsAsync(String key) {
+        if (!pendingTypedColumnRefreshes.add(key)) {
+            // 已在排队，执行时按届时的声明类型计算
+            return;
+        }
+        typedColumnsRefreshExecutor.execute(() -> {
+            // 先移出排队集合，执行期间再次变更类型时会重新排队
+            pendingTypedColumnRefreshes.remove(key);
+            try {
+                int total = refreshTypedColumns(key);
+                log.info("属性影子列重新计算完成: key={}, rows={}", key, total);
+            } catch (Exception e) {
+                log.error("属性影子列重新计算失败: key={}", key, e);
+            }
+        });
+    }
+
+    @Override
+    public int refreshTypedColumns(String key) {
+        int total = 0;
+        long lastId = 0L;
+        while (true) {
+            List<UserProperties> rows = list(new LambdaQueryWrapper<UserProperties>()
+                    .select(UserProperties::getId, UserProperties::getKey, UserProperties::getValue,
+                            UserProperties::getBlobRef, UserProperties::getCompressed, UserProperties::getValueHash)
+                    .eq(UserProperties::getKey, key)
+                    .gt(UserProperties::getId, lastId)
+                    .orderByAsc(UserProperties::getId)
+                    .last("LIMIT " + TYPED_COLUMNS_CHUNK_SIZE));
+            List<UserProperties> updates = new ArrayList<>(rows.size());
+            for (UserProperties row : rows) {
+                if (StringUtils.isNotEmpty(row.getBlobRef())) {
+                    continue;
+                }
+                byte[] value = Boolean.TRUE.equals(row.getCompressed()) && row.getValue() != null
+                        ? CompressionUtils.decompress(row.getValue()) : row.getValue();
+                fillTypedColumns(row, value);
+                updates.add(row);
+            }
+            if (!updates.isEmpty()) {
+                total += baseMapper.batchUpdateTypedColumns(updates);
+            }
+            if (rows.size() < TYPED_COLUMNS_CHUNK_SIZE) {
+                return total;
+            }
+            lastId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    @PreDestroy
+    public void shutdownTypedColumnsRefresh() {
+        typedColumnsRefreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public List<UserProperties> listKeysByUserIds(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return list(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getKey)
+                .in(UserProperties::getUserId, userIds)
+                .orderByAsc(UserProperties::getId));
+    }
+
+    @Override
+    public List<UserProperties> listValuesByKeys(Collection<Long> userIds, Collection<String> keys) {
+        if ((userIds != null && userIds.isEmpty()) || keys == null || keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return list(new LambdaQueryWrapper<UserProperties>()
+                .select(UserProperties::getId, UserProperties::getUserId, UserProperties::getKey,
+                        UserProperties::getValue, UserProperties::getBlobRef, UserProperties::getCompressed)
+                .in(userIds != null, UserProperties::getUserId, userIds)
+                .in(UserProperties::getKey, keys)
+                .orderByAsc(UserProperties::getId));
+    }
+
+    @Override
+    public void attachLazyValues(List<UserProperties> properties) {
+        if (properties == null || properties.isEmpty()) {
+            return;
+        }
+        List<UserProperties> pending = new ArrayList<>();
+        for (UserProperties property : properties) {
+            if (property.getId() != null && property.getValueLoader() == null && property.getValue() == null) {
+                pending.add(property);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        LazyValues lazyValues = new LazyValues(pending.stream().map(UserProperties::getId).collect(Collectors.toList()));
+        for (UserProperties property : pending) {
+            Long id = property.getId();
+            property.setValueLoader(() -> lazyValues.get(id));
+        }
+    }
+
+    /**
+     * 一组属性共享的延迟加载器，首次访问时按ID分批查询整组属性值
+     */
+    private final class LazyValues {
+
+        private final List<Long> ids;
+        private Map<Long, UserProperties> loaded;
+
+        private LazyValues(List<Long> ids) {
+            this.ids = ids;
+        }
+
+        private synchronized byte[] get(Long id) {
+            if (loaded == null) {
+                loaded = new HashMap<>(ids.size() * 2);
+                for (int from = 0; from < ids.size(); from += LAZY_VALUE_CHUNK_SIZE) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + LAZY_VALUE_CHUNK_SIZE, ids.size()));
+                    for (UserProperties row : baseMapper.selectList(new LambdaQueryWrapper<UserProperties>()
+                            .select(UserProperties::getId, UserProperties::getValue,
+                                    UserProperties::getBlobRef, UserProperties::getCompressed)
+                            .in(UserProperties::getId, chunk))) {
+                        loaded.put(row.getId(), row);
+                    }
+                }
+            }
+            UserProperties row = loaded.get(id);
+            return row == null ? null : row.getValue();
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public AjaxResult saveUserProperties(UserProperties userProperties) {
         User user = getUserService().getById(userProperties.getUserId());
         if(user == null){
@@ -290,6 +878,8 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
             return AjaxResult.successI18n("user.properties.add.success");
         }else{
             userPropertiesInDb.setValue(userProperties.getValue());
+            userPropertiesInDb.setBlobRef(userProperties.getBlobRef());
+            userPropertiesInDb.setValueHash(userProperties.getValueHash());
             updateById(userPropertiesInDb);
             return AjaxResult.successI18n("user.properties.update.success");
         }
@@ -300,18 +890,65 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
     public boolean saveUserPropertiesMap(Long userId, Map<String, byte[]> map) {
         List<UserProperties> list = new ArrayList<>();
         for (Map.Entry<String, byte[]> entry : map.entrySet()) {
-            UserProperties userProperties = getByUserIdAndKey(userId, entry.getKey());
-            if(userProperties==null)
-                userProperties = new UserProperties();
-            String key = entry.getKey();
-            byte[] value = entry.getValue();
+            UserProperties userProperties = new UserProperties();
             userProperties.setUserId(userId);
-            userProperties.setKey(key);
-            userProperties.setValue(value);
+            userProperties.setKey(entry.getKey());
+            userProperties.setValue(entry.getValue());
             // 注意：scope 字段已从数据库移除，现在从 ums_property_keys 表中动态获取
             list.add(userProperties);
         }
-        return saveOrUpdateBatch(list);
+        upsertBatch(list);
+        return true;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void upsertBatch(Collection<UserProperties> properties) {
+        if (properties == null || properties.isEmpty()) {
+            return;
+        }
+        Map<String, UserProperties> distinct = new LinkedHashMap<>();
+        for (UserProperties property : properties) {
+            distinct.put(property.getUserId() + ":" + property.getKey(), property);
+        }
+        List<UserProperties> rows = new ArrayList<>(distinct.values());
+        rows.forEach(this::beforeWrite);
+        stampVersions(rows);
+        for (int from = 0; from < rows.size(); from += UPSERT_CHUNK_SIZE) {
+            baseMapper.batchUpsert(rows.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, rows.size())));
+        }
+        rows.forEach(this::afterWrite);
+        onPropertiesChanged(rows, ChangeEvent.OP_UPSERT);
+    }
+
+    @Override
+    public PropertyDeltaDTO getDelta(Long userId, Long since) {
+        PropertyDeltaDTO delta = new PropertyDeltaDTO();
+        // 先读取当前版本再查询变更，期间提交的写入会在本次或下次同步中返回
+        long current = getUserPropertyVersionService().getCurrentVersion(userId);
+        boolean full = since == null || since <= 0 || since > current;
+        List<UserProperties> changed = list(new LambdaQueryWrapper<UserProperties>()
+                .eq(UserProperties::getUserId, userId)
+                .gt(!full, UserProperties::getVersion, since)
+                .orderByAsc(UserProperties::getVersion));
+        List<String> deleted = new ArrayList<>();
+        long version = current;
+        for (UserProperties property : changed) {
+            if (property.getVersion() != null) {
+                version = Math.max(version, property.getVersion());
+            }
+        }
+        if (!full) {
+            for (UserPropertyTombstone tombstone : getUserPropertyVersionService().listTombstones(userId, since)) {
+                deleted.add(tombstone.getKey());
+                version = Math.max(version, tombstone.getVersion());
+            }
+        }
+        delta.setVersion(version);
+        delta.setFull(full);
+        delta.setChanged(changed);
+        delta.setDeleted(deleted);
+        return delta;
     }
 
     @Override
@@ -337,6 +974,44 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
         }
     }
 
+    @Override
+    public void fillPropertiesInfo(List<UserProperties> properties) {
+        if (properties == null || properties.isEmpty()) {
+            return;
+        }
+        Map<String, PropertyKeys> keyConfigs = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        for (UserProperties property : properties) {
+            if (property.getKey() != null) {
+                PropertyKeys propertyKey = keyConfigs.computeIfAbsent(property.getKey(),
+                        key -> getPropertyKeysService().getByKey(key));
+                if (propertyKey != null) {
+                    property.setDataType(propertyKey.getDataType());
+                    property.setHidden(propertyKey.getHidden());
+                    property.setScope(propertyKey.getScope());
+                    property.setDescription(propertyKey.getDescription());
+                }
+            }
+            if (property.getUserId() != null) {
+                userIds.add(property.getUserId());
+            }
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> userTypes = new HashMap<>();
+        for (User user : getUserService().list(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getType)
+                .in(User::getId, userIds))) {
+            userTypes.put(user.getId(), user.getType());
+        }
+        for (UserProperties property : properties) {
+            if (property.getUserId() != null && userTypes.containsKey(property.getUserId())) {
+                property.setUserType(userTypes.get(property.getUserId()));
+            }
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void syncTemplateProperties(Long templateId,
@@ -362,8 +1037,8 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
             return;
         }
 
-        List<UserProperties> existingProperties = this.list(new LambdaQueryWrapper<UserProperties>()
-                .in(UserProperties::getUserId, userIds));
+        // 只需判断键是否存在，不加载属性值
+        List<UserProperties> existingProperties = listKeysByUserIds(userIds);
 
         if (needAdd) {
             Map<Long, Map<String, UserProperties>> existingByUser = existingProperties.stream()
@@ -450,18 +1125,9 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
     }
 
     private Set<Long> resolveTemplateUserIds(Long templateId) {
-        String templateIdString = String.valueOf(templateId);
-        List<UserProperties> templateBindings = this.list(
-                new LambdaQueryWrapper<UserProperties>()
-                        .eq(UserProperties::getKey, UserPropertiesConstant.KEY_TEMPLATE_ID)
-        );
         Set<Long> userIds = new HashSet<>();
-        for (UserProperties binding : templateBindings) {
-            if (binding.getUserId() == null || binding.getValue() == null) {
-                continue;
-            }
-            String bindingTemplateId = bytesToString(binding.getValue());
-            if (templateIdString.equals(bindingTemplateId)) {
+        for (UserProperties binding : listByTypedValue(UserPropertiesConstant.KEY_TEMPLATE_ID, String.valueOf(templateId))) {
+            if (binding.getUserId() != null) {
                 userIds.add(binding.getUserId());
             }
         }
@@ -477,11 +1143,4 @@ public class UserPropertiesServiceImpl extends ServiceImpl<UserPropertiesMapper,
         }
         return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
     }
-
-    private String bytesToString(byte[] bytes) {
-        if (bytes == null) {
-            return null;
-        }
-        return new String(bytes, StandardCharsets.UTF_8);
-    }
 }
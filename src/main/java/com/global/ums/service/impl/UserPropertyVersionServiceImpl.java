@@ -0,0 +1,80 @@
+package com.global.ums.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.global.ums.entity.UserProperties;
+import com.global.ums.entity.UserPropertyTombstone;
+import com.global.ums.entity.UserPropertyVersion;
+import com.global.ums.mapper.UserPropertyTombstoneMapper;
+import com.global.ums.mapper.UserPropertyVersionMapper;
+import com.global.ums.service.UserPropertyVersionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 用户属性版本服务实现类
+ */
+@Service
+public class UserPropertyVersionServiceImpl extends ServiceImpl<UserPropertyVersionMapper, UserPropertyVersion>
+        implements UserPropertyVersionService {
+
+    @Autowired
+    private UserPropertyTombstoneMapper userPropertyTombstoneMapper;
+
+    @Override
+    public long allocate(Long userId, int count) {
+        UserPropertyVersion sequence = new UserPropertyVersion();
+        sequence.setUserId(userId);
+        baseMapper.allocate(sequence, count);
+        return sequence.getVersion();
+    }
+
+    @Override
+    public long getCurrentVersion(Long userId) {
+        UserPropertyVersion sequence = getById(userId);
+        return sequence == null || sequence.getVersion() == null ? 0L : sequence.getVersion();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void recordTombstones(Collection<UserProperties> removed) {
+        if (removed == null || removed.isEmpty()) {
+            return;
+        }
+        // 按用户ID升序分配版本号，与写入时的加锁顺序一致
+        Map<Long, Map<String, UserPropertyTombstone>> byUser = new TreeMap<>();
+        for (UserProperties property : removed) {
+            if (property.getUserId() == null || property.getKey() == null) {
+                continue;
+            }
+            UserPropertyTombstone tombstone = new UserPropertyTombstone();
+            tombstone.setUserId(property.getUserId());
+            tombstone.setKey(property.getKey());
+            byUser.computeIfAbsent(property.getUserId(), k -> new LinkedHashMap<>()).put(property.getKey(), tombstone);
+        }
+        List<UserPropertyTombstone> rows = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, UserPropertyTombstone>> entry : byUser.entrySet()) {
+            Collection<UserPropertyTombstone> tombstones = entry.getValue().values();
+            long version = allocate(entry.getKey(), tombstones.size()) - tombstones.size() + 1;
+            for (UserPropertyTombstone tombstone : tombstones) {
+                tombstone.setVersion(version++);
+                rows.add(tombstone);
+            }
+        }
+        if (!rows.isEmpty()) {
+            userPropertyTombstoneMapper.batchUpsert(rows);
+        }
+    }
+
+    @Override
+    public List<UserPropertyTombstone> listTombstones(Long userId, long since) {
+        return userPropertyTombstoneMapper.selectSince(userId, since);
+    }
+}
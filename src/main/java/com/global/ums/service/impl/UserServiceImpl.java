@@ -8,19 +8,25 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.global.ums.constant.UserPropertiesConstant;
 import com.global.ums.dto.PropertyTreeDTO;
+import com.global.ums.dto.UserIdPageDTO;
 import com.global.ums.dto.UserInfoTreeDTO;
 import com.global.ums.dto.UserTreeNodeDTO;
+import com.global.ums.entity.ChangeEvent;
 import com.global.ums.entity.User;
 import com.global.ums.entity.Template;
 import com.global.ums.entity.UserGroup;
 import com.global.ums.entity.UserProperties;
-import com.global.ums.entity.PropertyKeyItems;
-import com.global.ums.mapper.PropertyKeyItemsMapper;
 import com.global.ums.enums.UserType;
+import com.global.ums.graph.HierarchyGraph;
 import com.global.ums.mapper.UserMapper;
+import com.global.ums.query.PropertyPredicate;
+import com.global.ums.query.PropertyQueryEngine;
 import com.global.ums.result.AjaxResult;
+import com.global.ums.service.ChangeEventService;
+import com.global.ums.service.EffectivePropertiesService;
 import com.global.ums.service.PasswordService;
 import com.global.ums.service.TemplateService;
+import com.global.ums.service.UserGroupClosureService;
 import com.global.ums.service.UserGroupService;
 import com.global.ums.service.UserPropertiesService;
 import com.global.ums.service.UserService;
@@ -33,11 +39,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,11 +69,23 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Autowired
     private UserGroupService userGroupService;
 
+    @Autowired
+    private UserGroupClosureService userGroupClosureService;
+
     @Autowired
     private TemplateService templateService;
 
     @Autowired
-    private PropertyKeyItemsMapper propertyKeyItemsMapper;
+    private EffectivePropertiesService effectivePropertiesService;
+
+    @Autowired
+    private HierarchyGraph hierarchyGraph;
+
+    @Autowired
+    private PropertyQueryEngine propertyQueryEngine;
+
+    @Autowired
+    private ChangeEventService changeEventService;
 
     @Value("${user.default-password:123456}")
     private String defaultPassword;
@@ -77,13 +98,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             // 获取用户属性列表
             List<UserProperties> properties = userPropertiesService.getByUserId(id,false);
 
-            // 为每个属性填充配置信息和用户类型
-            if (properties != null && !properties.isEmpty()) {
-                properties.forEach(prop -> {
-                    userPropertiesService.fillPropertyKeysInfo(prop);
-                    userPropertiesService.fillUserType(prop);
-                });
-            }
+            // 所有属性都属于该用户，直接使用已查询的用户类型
+            properties.forEach(prop -> prop.setUserType(user.getType()));
 
             user.setProperties(properties);
             user.setTypeDesc(UserType.fromValue(user.getType()).getDescription());
@@ -96,107 +112,54 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public User getUserWithInheritedProperties(Long id) {
-        User user = getUserWithProperties(id);
-        if (user == null) {
-            return null;
-        }
-        
-        // 1. 收集所有候选属性（包括用户自身和所有父级）
-        List<UserProperties> allCandidates = new ArrayList<>();
-        if (user.getProperties() != null) {
-            allCandidates.addAll(user.getProperties());
-        }
-
-        List<User> parentUsers = getAllParentUsers(id);
-        for (User parentUser : parentUsers) {
-            if (parentUser.getProperties() == null) {
-                continue;
-            }
-            for (UserProperties parentProperty : parentUser.getProperties()) {
-                if(parentProperty.getKey().equals(UserPropertiesConstant.KEY_STORAGE)){
-                    // 只有当 storage 的值为 true 时，才将其值设置为 userId
-                    if (parentProperty.getValue() != null) {
-                        String storageValue = new String(parentProperty.getValue(), StandardCharsets.UTF_8);
-                        if ("true".equalsIgnoreCase(storageValue)) {
-                            parentProperty.setUserType(1);
-                            parentProperty.setValue(user.getUniqueId().getBytes(StandardCharsets.UTF_8));
-                        }
-                    }
-                }
-                allCandidates.add(parentProperty);
-            }
-        }
+        return effectivePropertiesService.resolve(id);
+    }
 
-        if (allCandidates.isEmpty()) {
-            return user;
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean save(User entity) {
+        boolean result = super.save(entity);
+        if (result) {
+            changeEventService.append(ChangeEvent.TYPE_USER, entity.getId(), ChangeEvent.OP_CREATE, toEventPayload(entity));
         }
+        return result;
+    }
 
-        // 2. 获取涉及到的所有Key的优先级配置
-        Set<String> keys = allCandidates.stream()
-                .map(UserProperties::getKey)
-                .collect(Collectors.toSet());
-        
-        List<PropertyKeyItems> keyItems = propertyKeyItemsMapper.selectList(
-                new LambdaQueryWrapper<PropertyKeyItems>().in(PropertyKeyItems::getKey, keys)
-        );
-
-        // 构建优先级查找表: Key -> ItemValue -> Priority
-        Map<String, Map<String, Integer>> priorityMap = new HashMap<>();
-        if (keyItems != null) {
-            for (PropertyKeyItems item : keyItems) {
-                if (item.getKey() != null && item.getItemValue() != null && item.getPriority() != null) {
-                    priorityMap.computeIfAbsent(item.getKey(), k -> new HashMap<>())
-                            .put(item.getItemValue(), item.getPriority());
-                }
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateById(User entity) {
+        boolean result = super.updateById(entity);
+        if (result) {
+            changeEventService.append(ChangeEvent.TYPE_USER, entity.getId(), ChangeEvent.OP_UPDATE, toEventPayload(entity));
+            if (entity.getType() != null) {
+                hierarchyGraph.updateType(entity.getId(), entity.getType());
             }
+            // 用户类型和 uniqueId 会出现在自身及后代的有效属性中
+            effectivePropertiesService.evictWithDescendants(Collections.singletonList(entity.getId()));
         }
+        return result;
+    }
 
-        // 3. 过滤属性，保留高优先级的（priority值越小优先级越高）
-        Map<String, UserProperties> finalPropertiesMap = new HashMap<>();
-        
-        for (UserProperties prop : allCandidates) {
-            String key = prop.getKey();
-            
-            if (!finalPropertiesMap.containsKey(key)) {
-                finalPropertiesMap.put(key, prop);
-                continue;
-            }
-
-            // 存在冲突，进行优先级比较
-            UserProperties existingProp = finalPropertiesMap.get(key);
-            
-            // 如果key和value完全一样，视为相同属性，跳过
-            if (isSameKeyAndValue(existingProp, prop)) {
-                continue;
-            }
-
-            int existingPriority = getPriority(priorityMap, existingProp);
-            int newPriority = getPriority(priorityMap, prop);
-
-            // 如果新属性优先级更高（数值更小），则替换
-            if (newPriority < existingPriority) {
-                finalPropertiesMap.put(key, prop);
-            }
-            // 如果优先级相同或更低，保留原有的（实现"近者优先"，因为我们先添加了子类属性）
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (result) {
+            changeEventService.append(ChangeEvent.TYPE_USER, ((Number) id).longValue(), ChangeEvent.OP_DELETE,
+                    Collections.singletonMap("id", id));
         }
-
-        user.setProperties(new ArrayList<>(finalPropertiesMap.values()));
-        return user;
+        return result;
     }
 
     /**
-     * 获取属性值的优先级，默认为 Integer.MAX_VALUE (最低)
+     * 用户变更事件内容，只包含用户表字段
      */
-    private int getPriority(Map<String, Map<String, Integer>> priorityMap, UserProperties prop) {
-        if (prop == null || prop.getValue() == null) {
-            return Integer.MAX_VALUE;
-        }
-        Map<String, Integer> valueMap = priorityMap.get(prop.getKey());
-        if (valueMap == null) {
-            return Integer.MAX_VALUE;
-        }
-        String valueStr = new String(prop.getValue(), StandardCharsets.UTF_8);
-        return valueMap.getOrDefault(valueStr, Integer.MAX_VALUE);
+    private static Map<String, Object> toEventPayload(User user) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", user.getId());
+        payload.put("type", user.getType());
+        payload.put("uniqueId", user.getUniqueId());
+        return payload;
     }
 
     /**
@@ -239,72 +202,103 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return Arrays.equals(firstValue, secondValue);
     }
 
-    private List<User> getAllParentUsers(Long userId) {
-        List<User> parents = new ArrayList<>();
-        collectParentUsers(userId, parents, new HashSet<>());
-        return parents;
-    }
-
-    private void collectParentUsers(Long userId, List<User> parents, Set<Long> visited) {
-        if (userId == null || visited.contains(userId)) {
-            return;
-        }
-        visited.add(userId);
-
-        List<UserGroup> userGroups = getUserGroupService().getByUserId(userId);
-        if (userGroups == null || userGroups.isEmpty()) {
-            return;
-        }
-
-        for (UserGroup userGroup : userGroups) {
-            Long parentId = userGroup.getParentUserId();
-            if (parentId == null || visited.contains(parentId)) {
-                continue;
-            }
-            User parent = getUserWithProperties(parentId);
-            if (parent != null) {
-                parents.add(parent);
-            }
-            collectParentUsers(parentId, parents, visited);
-        }
-    }
-    
     @Override
     public UserInfoTreeDTO getUserInfoTree(Long userId) {
         if (userId == null) {
             return null;
         }
-        return buildUserInfoTree(userId, new HashSet<>());
+        Map<Long, User> users = loadUserInfoTreeUsers(userId);
+        return buildUserInfoTree(userId, users, new HashSet<>(), new HashMap<>(), new boolean[1]);
     }
 
-    private UserInfoTreeDTO buildUserInfoTree(Long userId, Set<Long> path) {
-        if (userId == null || path.contains(userId)) {
-            return null;
+    /**
+     * 从根节点开始按层向上加载所有祖先，每层一次查询用户、一次查询属性，上级关系来自内存图
+     *
+     * @return userId -> 填充了可见属性的用户
+     */
+    private Map<Long, User> loadUserInfoTreeUsers(Long rootUserId) {
+        Map<Long, User> users = new HashMap<>();
+        Set<Long> visited = new HashSet<>();
+        visited.add(rootUserId);
+        List<UserProperties> visibleProperties = new ArrayList<>();
+        List<Long> level = Collections.singletonList(rootUserId);
+        while (!level.isEmpty()) {
+            List<User> levelUsers = this.listByIds(level);
+            Map<Long, List<UserProperties>> propertiesMap = new HashMap<>();
+            // 先只查询属性键，过滤隐藏属性后再统一加载属性值
+            for (UserProperties property : userPropertiesService.listKeysByUserIds(level)) {
+                userPropertiesService.fillPropertyKeysInfo(property);
+                Integer hidden = property.getHidden();
+                if (hidden != null && hidden == 1) {
+                    continue;
+                }
+                propertiesMap.computeIfAbsent(property.getUserId(), id -> new ArrayList<>()).add(property);
+                visibleProperties.add(property);
+            }
+
+            List<Long> nextLevel = new ArrayList<>();
+            for (User user : levelUsers) {
+                List<UserProperties> properties = propertiesMap.getOrDefault(user.getId(), new ArrayList<>());
+                properties.forEach(property -> property.setUserType(user.getType()));
+                user.setProperties(properties);
+                user.setTypeDesc(UserType.fromValue(user.getType()).getDescription());
+                users.put(user.getId(), user);
+
+                for (long parentId : hierarchyGraph.parents(user.getId())) {
+                    if (visited.add(parentId)) {
+                        nextLevel.add(parentId);
+                    }
+                }
+            }
+            level = nextLevel;
         }
+        userPropertiesService.attachLazyValues(visibleProperties);
+        return users;
+    }
 
-        path.add(userId);
-        User user = getUserWithProperties(userId);
+    /**
+     * 组装用户信息树，同一祖先的子树只构建一次并在多条路径间共享
+     * 当前路径上成环的节点会被截断，包含截断的子树与路径相关，不参与共享
+     *
+     * @param memo userId -> 已构建的完整子树
+     * @param truncated 输出参数，标记本次构建的子树中是否发生截断
+     */
+    private UserInfoTreeDTO buildUserInfoTree(Long userId, Map<Long, User> users, Set<Long> path,
+                                              Map<Long, UserInfoTreeDTO> memo, boolean[] truncated) {
+        UserInfoTreeDTO cached = memo.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        if (path.contains(userId)) {
+            truncated[0] = true;
+            return null;
+        }
+        User user = users.get(userId);
         if (user == null) {
-            path.remove(userId);
             return null;
         }
 
+        path.add(userId);
+        boolean outerTruncated = truncated[0];
+        truncated[0] = false;
+
         UserInfoTreeDTO node = convertToTreeNode(user);
-        List<UserGroup> relations = getUserGroupService().getByUserId(userId);
-        if (relations != null && !relations.isEmpty()) {
-            List<UserInfoTreeDTO> parents = new ArrayList<>();
-            for (UserGroup relation : relations) {
-                UserInfoTreeDTO parentNode = buildUserInfoTree(relation.getParentUserId(), path);
-                if (parentNode != null) {
-                    parents.add(parentNode);
-                }
-            }
-            if (!parents.isEmpty()) {
-                node.setParents(parents);
+        List<UserInfoTreeDTO> parents = new ArrayList<>();
+        for (long parentId : hierarchyGraph.parents(userId)) {
+            UserInfoTreeDTO parentNode = buildUserInfoTree(parentId, users, path, memo, truncated);
+            if (parentNode != null) {
+                parents.add(parentNode);
             }
         }
+        if (!parents.isEmpty()) {
+            node.setParents(parents);
+        }
 
         path.remove(userId);
+        if (!truncated[0]) {
+            memo.put(userId, node);
+        }
+        truncated[0] |= outerTruncated;
         return node;
     }
 
@@ -333,11 +327,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
                 .map(User::getId)
                 .collect(Collectors.toSet());
 
-        LambdaQueryWrapper<UserProperties> propWrapper = new LambdaQueryWrapper<>();
-        propWrapper.in(UserProperties::getUserId, userIds);
-        List<UserProperties> allProperties = userPropertiesService.list(propWrapper);
+        // 先只查询属性键，过滤隐藏属性后再为需要输出的属性挂载延迟加载的属性值
+        List<UserProperties> allProperties = userPropertiesService.listKeysByUserIds(userIds);
 
         Map<Long, List<UserProperties>> propertiesMap = new HashMap<>();
+        List<UserProperties> visibleProperties = new ArrayList<>();
         for (UserProperties property : allProperties) {
             userPropertiesService.fillPropertyKeysInfo(property);
             Integer hidden = property.getHidden();
@@ -345,7 +339,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
                 continue;
             }
             propertiesMap.computeIfAbsent(property.getUserId(), id -> new ArrayList<>()).add(property);
+            visibleProperties.add(property);
         }
+        userPropertiesService.attachLazyValues(visibleProperties);
 
         Map<Long, UserTreeNodeDTO> nodeMap = new HashMap<>();
         for (User user : users) {
@@ -413,55 +409,46 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         List<User> applicationUsers = new ArrayList<>();
         
         // 获取该用户的直接上级
-        List<UserGroup> userGroups = getUserGroupService().getByUserId(user.getId());
-        
-        for (UserGroup ug : userGroups) {
-            Long parentId = ug.getParentUserId();
-            if (parentId != null) {
-                User parentUser = this.getById(parentId);
-                if (parentUser != null && parentUser.getType() == 2) {  // type=2 为用户组
-                    // 检查该用户的category属性
-                    List<UserProperties> parentProps = userPropertiesService.getByUserId(parentId, false);
-                    String category = null;
-                    
-                    for (UserProperties prop : parentProps) {
-                        if ("category".equals(prop.getKey()) && prop.getValue() != null) {
-                            category = new String(prop.getValue());
-                            break;
-                        }
+        for (long parentId : hierarchyGraph.parents(user.getId())) {
+            User parentUser = this.getById(parentId);
+            if (parentUser != null && parentUser.getType() == 2) {  // type=2 为用户组
+                // 检查该用户的category属性
+                List<UserProperties> parentProps = userPropertiesService.getByUserId(parentId, false);
+                String category = null;
+                
+                for (UserProperties prop : parentProps) {
+                    if ("category".equals(prop.getKey()) && prop.getValue() != null) {
+                        category = new String(prop.getValue());
+                        break;
                     }
+                }
+                
+                // 根据category分类
+                if ("dept".equals(category)) {
+                    // 这是一个dept用户，继续获取它的上级application用户
+                    deptUsers.add(parentUser);
                     
-                    // 根据category分类
-                    if ("dept".equals(category)) {
-                        // 这是一个dept用户，继续获取它的上级application用户
-                        deptUsers.add(parentUser);
-                        
-                        // 获取dept的上级application用户
-                        List<UserGroup> deptGroups = getUserGroupService().getByUserId(parentId);
-                        for (UserGroup deptGroup : deptGroups) {
-                            Long appParentId = deptGroup.getParentUserId();
-                            if (appParentId != null) {
-                                User appParent = this.getById(appParentId);
-                                if (appParent != null && appParent.getType() == 3) {
-                                    // 检查是否为application
-                                    List<UserProperties> appProps = userPropertiesService.getByUserId(appParentId, false);
-                                    String appCategory = null;
-                                    for (UserProperties prop : appProps) {
-                                        if ("category".equals(prop.getKey()) && prop.getValue() != null) {
-                                            appCategory = new String(prop.getValue());
-                                            break;
-                                        }
-                                    }
-                                    if ("application".equals(appCategory)) {
-                                        applicationUsers.add(appParent);
-                                    }
+                    // 获取dept的上级application用户
+                    for (long appParentId : hierarchyGraph.parents(parentId)) {
+                        User appParent = this.getById(appParentId);
+                        if (appParent != null && appParent.getType() == 3) {
+                            // 检查是否为application
+                            List<UserProperties> appProps = userPropertiesService.getByUserId(appParentId, false);
+                            String appCategory = null;
+                            for (UserProperties prop : appProps) {
+                                if ("category".equals(prop.getKey()) && prop.getValue() != null) {
+                                    appCategory = new String(prop.getValue());
+                                    break;
                                 }
                             }
+                            if ("application".equals(appCategory)) {
+                                applicationUsers.add(appParent);
+                            }
                         }
-                    } else if ("application".equals(category)) {
-                        // 直接是application用户
-                        applicationUsers.add(parentUser);
                     }
+                } else if ("application".equals(category)) {
+                    // 直接是application用户
+                    applicationUsers.add(parentUser);
                 }
             }
         }
@@ -472,88 +459,50 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     
     @Override
     public Page<User> getUserPage(Page<User> page, Integer type, String uniqueId, Long parentId, Integer groupType, Long templateId) {
-        LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<>();
-
-        if (type != null) {
-            queryWrapper.eq(User::getType, type);
-        }
-
-        if (uniqueId != null && !uniqueId.isEmpty()) {
-            queryWrapper.like(User::getUniqueId, uniqueId);
-        }
-
-        // 如果指定了 groupType，根据 group_type 属性筛选用户组
+        List<PropertyPredicate> predicates = new ArrayList<>();
         if (groupType != null) {
-            // 查找所有拥有 group_type 属性且值匹配的用户ID
-            LambdaQueryWrapper<UserProperties> propWrapper = new LambdaQueryWrapper<>();
-            propWrapper.eq(UserProperties::getKey, UserPropertiesConstant.KEY_GROUP_TYPE)
-                    .eq(UserProperties::getValue, String.valueOf(groupType).getBytes());
-            List<UserProperties> groupTypeProps = userPropertiesService.list(propWrapper);
-
-            if (groupTypeProps == null || groupTypeProps.isEmpty()) {
-                // 如果没有符合条件的用户，返回空结果
-                return new Page<>(page.getCurrent(), page.getSize());
-            }
-
-            List<Long> userIds = groupTypeProps.stream()
-                    .map(UserProperties::getUserId)
-                    .distinct()
-                    .collect(java.util.stream.Collectors.toList());
-            queryWrapper.in(User::getId, userIds);
+            predicates.add(PropertyPredicate.eq(UserPropertiesConstant.KEY_GROUP_TYPE, String.valueOf(groupType)));
+        }
+        if (templateId != null) {
+            predicates.add(PropertyPredicate.eq(UserPropertiesConstant.KEY_TEMPLATE_ID, String.valueOf(templateId)));
         }
 
-        // 如果指定了 parentId，根据 user_group 表过滤子用户
+        // 如果指定了 parentId，只在其直接下级中查询
+        List<Long> childUserIds = null;
         if (parentId != null) {
-            List<UserGroup> childGroups = userGroupService.getByParentUserId(parentId);
-            if (childGroups == null || childGroups.isEmpty()) {
-                // 如果该上级用户没有子用户，直接返回空结果
-                return new Page<>(page.getCurrent(), page.getSize());
-            }
-            List<Long> childUserIds = childGroups.stream()
-                    .map(UserGroup::getUserId)
+            childUserIds = Arrays.stream(hierarchyGraph.children(parentId))
                     .distinct()
-                    .collect(java.util.stream.Collectors.toList());
-            queryWrapper.in(User::getId, childUserIds);
+                    .boxed()
+                    .collect(Collectors.toList());
         }
 
-        if (templateId != null) {
-            // 查找所有拥有 group_type 属性且值匹配的用户ID
-            LambdaQueryWrapper<UserProperties> propWrapper = new LambdaQueryWrapper<>();
-            propWrapper.eq(UserProperties::getKey, UserPropertiesConstant.KEY_TEMPLATE_ID)
-                    .eq(UserProperties::getValue, String.valueOf(templateId).getBytes());
-            List<UserProperties> templateIdProps = userPropertiesService.list(propWrapper);
-
-            if (templateIdProps == null || templateIdProps.isEmpty()) {
-                // 如果没有符合条件的用户，返回空结果
-                return new Page<>(page.getCurrent(), page.getSize());
-            }
-
-            List<Long> userIds = templateIdProps.stream()
-                    .map(UserProperties::getUserId)
-                    .distinct()
-                    .collect(java.util.stream.Collectors.toList());
-            queryWrapper.in(User::getId, userIds);
+        Page<User> userPage = propertyQueryEngine.pageUsers(page, type, uniqueId, childUserIds, predicates);
+        List<User> records = userPage.getRecords();
+        if (records.isEmpty()) {
+            return userPage;
         }
 
-        Page<User> userPage = this.page(page, queryWrapper);
-        userPage.getRecords().forEach(user -> {
-            // 获取用户属性列表
-            List<UserProperties> properties = userPropertiesService.getByUserId(user.getId(),null);
+        // 一次查询当前页所有用户的属性，并批量填充配置信息和用户类型
+        List<Long> pageUserIds = records.stream().map(User::getId).collect(Collectors.toList());
+        List<UserProperties> pageProperties = userPropertiesService.list(new LambdaQueryWrapper<UserProperties>()
+                .in(UserProperties::getUserId, pageUserIds)
+                .orderByAsc(UserProperties::getId));
+        userPropertiesService.fillPropertiesInfo(pageProperties);
+        Map<Long, List<UserProperties>> propertiesMap = pageProperties.stream()
+                .collect(Collectors.groupingBy(UserProperties::getUserId));
 
-            // 为每个属性填充配置信息和用户类型
-            if (properties != null && !properties.isEmpty()) {
-                properties.forEach(prop -> {
-                    userPropertiesService.fillPropertyKeysInfo(prop);
-                    userPropertiesService.fillUserType(prop);
-                });
-            }
-
-            user.setProperties(properties);
+        records.forEach(user -> {
+            user.setProperties(propertiesMap.getOrDefault(user.getId(), new ArrayList<>()));
             user.setTypeDesc(UserType.fromValue(user.getType()).getDescription());
         });
         return userPage;
     }
 
+    @Override
+    public UserIdPageDTO searchUserIds(List<PropertyPredicate> predicates, Integer type, Long lastId, int pageSize) {
+        return propertyQueryEngine.searchUserIds(predicates, type, lastId, pageSize);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public AjaxResult addUser(User user) {
@@ -675,10 +624,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         propertiesWrapper.eq(UserProperties::getUserId, id);
         userPropertiesService.remove(propertiesWrapper);
 
-        // 4. 删除用户在 user_group 表中的记录（作为子用户）
-        LambdaQueryWrapper<UserGroup> groupWrapper = new LambdaQueryWrapper<>();
-        groupWrapper.eq(UserGroup::getUserId, id);
-        userGroupService.remove(groupWrapper);
+        // 4. 删除用户在 user_group 表中的记录（作为子用户），同步闭包表
+        userGroupService.removeByUserId(id);
+        userGroupClosureService.removeUser(id);
 
         // 5. 删除用户
         boolean result = this.removeById(id);
@@ -706,12 +654,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         userNode.setUsername(username);
         userNode.setChildren(new ArrayList<>());
 
-        // 获取该用户的所有子用户
-        List<UserGroup> childGroups = getUserGroupService().getByParentUserId(userId);
-
         // 递归添加满足条件的子用户
-        for (UserGroup childGroup : childGroups) {
-            Long childUserId = childGroup.getUserId();
+        for (long childUserId : hierarchyGraph.children(userId)) {
             if (categoryUserIds.contains(childUserId)) {
                 PropertyTreeDTO childNode = buildCategoryTree(childUserId, categoryUserIds, processedUsers);
                 if (childNode != null) {
@@ -0,0 +1,136 @@
+package com.global.ums.utils;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import com.aayushatharva.brotli4j.decoder.DecoderJNI;
+import com.aayushatharva.brotli4j.decoder.DirectDecompress;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.global.ums.enums.CompressionCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 属性值压缩工具类
+ * 压缩后的格式为：1 字节算法标记（CompressionCodec.value） + 压缩数据，
+ * 是否为压缩格式由 ums_user_properties.compressed 标识
+ */
+public class CompressionUtils {
+
+    /**
+     * Brotli 压缩质量（0-11），属性值写入频率不高，取较高的压缩率
+     */
+    private static final int BROTLI_QUALITY = 9;
+
+    private CompressionUtils() {
+    }
+
+    /**
+     * 压缩属性值
+     *
+     * @param value 原始属性值
+     * @param codec 压缩算法，Brotli 本地库不可用时改用 Deflate
+     * @return 带算法标记的压缩数据；不压缩或压缩后不小于原值时返回null
+     */
+    public static byte[] compress(byte[] value, CompressionCodec codec) {
+        if (value == null || value.length == 0 || codec == null || codec == CompressionCodec.NONE) {
+            return null;
+        }
+        if (codec == CompressionCodec.BROTLI && !Brotli4jLoader.isAvailable()) {
+            codec = CompressionCodec.DEFLATE;
+        }
+        byte[] compressed = codec == CompressionCodec.BROTLI ? brotli(value) : deflate(value);
+        if (compressed.length + 1 >= value.length) {
+            return null;
+        }
+        byte[] encoded = new byte[compressed.length + 1];
+        encoded[0] = (byte) codec.getValue();
+        System.arraycopy(compressed, 0, encoded, 1, compressed.length);
+        return encoded;
+    }
+
+    /**
+     * 解压属性值
+     *
+     * @param encoded compress 返回的带算法标记的压缩数据
+     * @return 原始属性值
+     */
+    public static byte[] decompress(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return encoded;
+        }
+        CompressionCodec codec = CompressionCodec.fromValue((int) encoded[0]);
+        if (codec == CompressionCodec.BROTLI) {
+            return unbrotli(encoded);
+        }
+        if (codec == CompressionCodec.DEFLATE) {
+            return inflate(encoded);
+        }
+        throw new IllegalStateException("未知的属性值压缩算法标记: " + encoded[0]);
+    }
+
+    private static byte[] brotli(byte[] value) {
+        try {
+            return Encoder.compress(value, new Encoder.Parameters().setQuality(BROTLI_QUALITY));
+        } catch (IOException e) {
+            throw new IllegalStateException("Brotli 压缩失败", e);
+        }
+    }
+
+    private static byte[] unbrotli(byte[] encoded) {
+        if (!Brotli4jLoader.isAvailable()) {
+            throw new IllegalStateException("Brotli 本地库不可用，无法解压属性值");
+        }
+        byte[] data = new byte[encoded.length - 1];
+        System.arraycopy(encoded, 1, data, 0, data.length);
+        try {
+            DirectDecompress result = Decoder.decompress(data);
+            if (result.getResultStatus() != DecoderJNI.Status.DONE) {
+                throw new IllegalStateException("Brotli 解压失败: " + result.getResultStatus());
+            }
+            return result.getDecompressedData();
+        } catch (IOException e) {
+            throw new IllegalStateException("Brotli 解压失败", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] value) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] encoded) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, 1, encoded.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Deflate 数据不完整");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Deflate 解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
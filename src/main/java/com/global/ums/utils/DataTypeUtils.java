@@ -17,17 +17,39 @@ import java.util.regex.Pattern;
  */
 public class DataTypeUtils {
 
-    private static final Pattern INTEGER_PATTERN = Pattern.compile("^-?\\d+$");
+    /**
+     * value_str_prefix 影子列长度（字符数）
+     */
+    public static final int STR_PREFIX_LENGTH = 191;
+
     private static final Pattern LONG_PATTERN = Pattern.compile("^-?\\d+[lL]?$");
-    private static final Pattern FLOAT_PATTERN = Pattern.compile("^-?\\d+\\.\\d+[fF]?$");
-    private static final Pattern DOUBLE_PATTERN = Pattern.compile("^-?\\d+\\.\\d+[dD]?$");
-    private static final Pattern BOOLEAN_PATTERN = Pattern.compile("^(true|false)$", Pattern.CASE_INSENSITIVE);
-    private static final Pattern DATETIME_PATTERN = Pattern.compile(
-            "^(\\d{4}-\\d{2}-\\d{2}|\\d{4}/\\d{2}/\\d{2})\\s*(\\d{2}:\\d{2}:\\d{2})?$"
-    );
+
+    /**
+     * 判断是否为二进制数据时检查的开头字节数
+     */
+    private static final int SNIFF_LENGTH = 512;
+
+    /**
+     * JSON 结构检查时记录括号类型的最大嵌套层数，更深的层级只校验层数
+     */
+    private static final int MAX_TRACKED_DEPTH = 64;
+
+    /**
+     * JSON 记号检查中对下一个非空白字节的期望：
+     * 不限（超出 MAX_TRACKED_DEPTH 的层级）、值、值或 ']'、键、键或 '}'、':'、',' 或右括号
+     */
+    private static final int EXPECT_ANY = 0;
+    private static final int EXPECT_VALUE = 1;
+    private static final int EXPECT_VALUE_OR_CLOSE = 2;
+    private static final int EXPECT_KEY = 3;
+    private static final int EXPECT_KEY_OR_CLOSE = 4;
+    private static final int EXPECT_COLON = 5;
+    private static final int EXPECT_SEPARATOR = 6;
 
     /**
      * 根据字节数组推断数据类型
+     * 直接扫描字节，不构造字符串也不解析JSON：是否为二进制只检查开头 SNIFF_LENGTH 个字节，
+     * 数值、布尔、日期时间逐字节匹配格式，JSON对象/数组只做结构与记号检查（字符串闭合、括号配对、键值分隔）
      */
     public static DataType inferDataType(byte[] data) {
         if (data == null || data.length == 0) {
@@ -39,46 +61,90 @@ public class DataTypeUtils {
             return DataType.BINARY;
         }
 
-        // 尝试转换为字符串
-        String strValue = new String(data, StandardCharsets.UTF_8);
-        return inferDataTypeFromString(strValue);
+        // 去除首尾空白（与 String.trim 一致）
+        int start = 0;
+        int end = data.length;
+        while (start < end && (data[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (data[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return DataType.STRING;
+        }
+
+        byte first = data[start];
+        if (first == '{') {
+            return data[end - 1] == '}' && isJsonStructure(data, start, end) ? DataType.JSON : DataType.STRING;
+        }
+        if (first == '[') {
+            return data[end - 1] == ']' && isJsonStructure(data, start, end) ? DataType.ARRAY : DataType.STRING;
+        }
+        if (first == '-' || isDigit(first)) {
+            DataType numeric = inferNumeric(data, start, end);
+            if (numeric != null) {
+                return numeric;
+            }
+            return isDatetime(data, start, end) ? DataType.DATETIME : DataType.STRING;
+        }
+        if (matchesIgnoreCase(data, start, end, "true") || matchesIgnoreCase(data, start, end, "false")) {
+            return DataType.BOOLEAN;
+        }
+        return DataType.STRING;
     }
 
     /**
      * 判断是否为二进制数据
-     * 通过检查字节数组是否包含不可打印字符来判断
+     * 检查文件头，以及开头部分是否包含控制字符（制表符、换行符除外）或不合法的 UTF-8 序列
      */
     private static boolean isBinaryData(byte[] data) {
-        if (data == null || data.length == 0) {
-            return false;
-        }
-
         // 检查文件头（魔数）来判断文件类型
         if (isKnownFileType(data)) {
             return true;
         }
 
-        // 检查前几个字节，如果包含不可打印字符，认为是二进制数据
-        int checkLength = Math.min(data.length, 100); // 只检查前100个字节
-        for (int i = 0; i < checkLength; i++) {
-            byte b = data[i];
-            // 检查是否为不可打印字符（除了空格、制表符、换行符等）
-            if (b < 32 && b != 9 && b != 10 && b != 13) { // 9=tab, 10=LF, 13=CR
+        int checkLength = Math.min(data.length, SNIFF_LENGTH);
+        int i = 0;
+        while (i < checkLength) {
+            int b = data[i] & 0xFF;
+            if (b < 0x80) {
+                if (b < 32 && b != 9 && b != 10 && b != 13) { // 9=tab, 10=LF, 13=CR
+                    return true;
+                }
+                i++;
+                continue;
+            }
+            // UTF-8 多字节序列：首字节决定长度，后续字节必须为 10xxxxxx
+            int length;
+            if (b >= 0xC2 && b <= 0xDF) {
+                length = 2;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                length = 3;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                length = 4;
+            } else {
                 return true;
             }
-        }
-
-        // 检查是否包含大量不可打印字符
-        int nonPrintableCount = 0;
-        for (int i = 0; i < checkLength; i++) {
-            byte b = data[i];
-            if (b < 32 || b > 126) { // 可打印ASCII字符范围
-                nonPrintableCount++;
+            // 第二个字节的取值范围：排除超长编码（E0、F0）、代理区（ED）以及超出 U+10FFFF 的码点（F4）
+            int lower = b == 0xE0 ? 0xA0 : b == 0xF0 ? 0x90 : 0x80;
+            int upper = b == 0xED ? 0x9F : b == 0xF4 ? 0x8F : 0xBF;
+            for (int j = 1; j < length; j++) {
+                if (i + j >= data.length) {
+                    return true;
+                }
+                if (i + j >= checkLength) {
+                    // 被检查范围截断的序列不作判断
+                    return false;
+                }
+                int next = data[i + j] & 0xFF;
+                if (j == 1 ? next < lower || next > upper : (next & 0xC0) != 0x80) {
+                    return true;
+                }
             }
+            i += length;
         }
-
-        // 如果不可打印字符超过30%，认为是二进制数据
-        return (double) nonPrintableCount / checkLength > 0.3;
+        return false;
     }
 
     /**
@@ -127,92 +193,317 @@ public class DataTypeUtils {
     }
 
     /**
-     * 根据字符串推断数据类型
+     * 匹配整数（-?\d+[lL]?，超出int范围为LONG）与浮点数（-?\d+\.\d+，后缀 f/F 为FLOAT，否则为DOUBLE）
+     *
+     * @return 不是数值时返回null
      */
-    public static DataType inferDataTypeFromString(String value) {
-        if (StringUtils.isEmpty(value)) {
-            return DataType.UNKNOWN;
+    private static DataType inferNumeric(byte[] data, int start, int end) {
+        boolean negative = data[start] == '-';
+        int i = negative ? start + 1 : start;
+        int digitsStart = i;
+        while (i < end && isDigit(data[i])) {
+            i++;
+        }
+        int digitsEnd = i;
+        if (digitsEnd == digitsStart) {
+            return null;
+        }
+        if (i == end || (i == end - 1 && (data[i] == 'l' || data[i] == 'L'))) {
+            return fitsInt(data, digitsStart, digitsEnd, negative) ? DataType.INTEGER : DataType.LONG;
+        }
+        if (data[i] != '.') {
+            return null;
         }
+        int fractionStart = ++i;
+        while (i < end && isDigit(data[i])) {
+            i++;
+        }
+        if (i == fractionStart) {
+            return null;
+        }
+        if (i == end) {
+            return DataType.DOUBLE;
+        }
+        if (i == end - 1) {
+            byte suffix = data[i];
+            if (suffix == 'd' || suffix == 'D') {
+                return DataType.DOUBLE;
+            }
+            if (suffix == 'f' || suffix == 'F') {
+                return DataType.FLOAT;
+            }
+        }
+        return null;
+    }
 
-        // 去除首尾空格
-        value = value.trim();
+    /**
+     * 判断十进制数字是否在int范围内（数字部分不含符号）
+     */
+    private static boolean fitsInt(byte[] data, int start, int end, boolean negative) {
+        while (start < end - 1 && data[start] == '0') {
+            start++;
+        }
+        if (end - start > 10) {
+            return false;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (data[i] - '0');
+        }
+        return negative ? -value >= Integer.MIN_VALUE : value <= Integer.MAX_VALUE;
+    }
 
-        // 检查是否为布尔值
-        if (BOOLEAN_PATTERN.matcher(value).matches()) {
-            return DataType.BOOLEAN;
+    /**
+     * 匹配日期时间：yyyy-MM-dd 或 yyyy/MM/dd，可跟空白及 HH:mm:ss
+     */
+    private static boolean isDatetime(byte[] data, int start, int end) {
+        if (end - start < 10) {
+            return false;
+        }
+        byte separator = data[start + 4];
+        if ((separator != '-' && separator != '/') || data[start + 7] != separator
+                || !isDigits(data, start, 4) || !isDigits(data, start + 5, 2) || !isDigits(data, start + 8, 2)) {
+            return false;
+        }
+        int i = start + 10;
+        while (i < end && isWhitespace(data[i])) {
+            i++;
         }
+        if (i == end) {
+            return true;
+        }
+        return end - i == 8 && data[i + 2] == ':' && data[i + 5] == ':'
+                && isDigits(data, i, 2) && isDigits(data, i + 3, 2) && isDigits(data, i + 6, 2);
+    }
 
-        // 检查是否为长整数
-        if (LONG_PATTERN.matcher(value).matches()) {
-            // 检查是否超出int范围
-            try {
-                long longValue = Long.parseLong(value.replaceAll("[lL]$", ""));
-                if (longValue > Integer.MAX_VALUE || longValue < Integer.MIN_VALUE) {
-                    return DataType.LONG;
+    /**
+     * JSON 结构检查：字符串闭合、括号正确配对且最外层括号在末尾闭合；
+     * 另做记号检查：键之后须为 ':'，值之后须为 ',' 或右括号，',' 之后须为键或值（不允许末尾逗号），
+     * true/false/null 须完整匹配，数字只检查由数字、符号、小数点和指数组成，不校验完整的数字语法
+     */
+    private static boolean isJsonStructure(byte[] data, int start, int end) {
+        // 按位记录各层括号类型，1 为对象
+        long stack = 0;
+        int depth = 0;
+        int expect = EXPECT_VALUE;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (isWhitespace(b)) {
+                continue;
+            }
+            switch (expect) {
+                case EXPECT_KEY_OR_CLOSE:
+                case EXPECT_KEY:
+                    if (b == '}' && expect == EXPECT_KEY_OR_CLOSE) {
+                        break;
+                    }
+                    if (b != '"' || (i = skipString(data, i, end)) < 0) {
+                        return false;
+                    }
+                    expect = EXPECT_COLON;
+                    continue;
+                case EXPECT_COLON:
+                    if (b != ':') {
+                        return false;
+                    }
+                    expect = EXPECT_VALUE;
+                    continue;
+                case EXPECT_VALUE_OR_CLOSE:
+                case EXPECT_VALUE:
+                    if (b == '{' || b == '[' || (b == ']' && expect == EXPECT_VALUE_OR_CLOSE)) {
+                        break;
+                    }
+                    if ((i = skipScalar(data, i, end)) < 0) {
+                        return false;
+                    }
+                    expect = EXPECT_SEPARATOR;
+                    continue;
+                case EXPECT_SEPARATOR:
+                    if (b == ',') {
+                        expect = (stack & 1) == 1 ? EXPECT_KEY : EXPECT_VALUE;
+                        continue;
+                    }
+                    if (b != '}' && b != ']') {
+                        return false;
+                    }
+                    break;
+                default:
+                    // 超出记录层数的部分只跳过字符串、校验括号
+                    if (b == '"' && (i = skipString(data, i, end)) < 0) {
+                        return false;
+                    }
+                    if (b != '{' && b != '[' && b != '}' && b != ']') {
+                        continue;
+                    }
+                    break;
+            }
+            if (b == '{' || b == '[') {
+                if (depth < MAX_TRACKED_DEPTH) {
+                    stack = (stack << 1) | (b == '{' ? 1 : 0);
+                    expect = b == '{' ? EXPECT_KEY_OR_CLOSE : EXPECT_VALUE_OR_CLOSE;
                 } else {
-                    return DataType.INTEGER;
+                    expect = EXPECT_ANY;
                 }
-            } catch (NumberFormatException e) {
-                return DataType.LONG;
+                depth++;
+            } else {
+                if (depth == 0) {
+                    return false;
+                }
+                depth--;
+                if (depth < MAX_TRACKED_DEPTH) {
+                    if (((stack & 1) == 1) != (b == '}')) {
+                        return false;
+                    }
+                    stack >>>= 1;
+                }
+                if (depth == 0 && i != end - 1) {
+                    return false;
+                }
+                expect = depth > MAX_TRACKED_DEPTH ? EXPECT_ANY : EXPECT_SEPARATOR;
             }
         }
+        return depth == 0;
+    }
 
-        // 检查是否为整数
-        if (INTEGER_PATTERN.matcher(value).matches()) {
-            return DataType.INTEGER;
+    /**
+     * 跳过从 start 处引号开始的字符串，返回结束引号的下标，未闭合时返回 -1
+     */
+    private static int skipString(byte[] data, int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            if (data[i] == '\\') {
+                i++;
+            } else if (data[i] == '"') {
+                return i;
+            }
         }
+        return -1;
+    }
 
-        // 检查是否为双精度浮点数
-        if (DOUBLE_PATTERN.matcher(value).matches()) {
-            return DataType.DOUBLE;
+    /**
+     * 跳过从 start 处开始的字符串、数字或 true/false/null，返回其最后一个字节的下标，不是合法的值开头时返回 -1
+     */
+    private static int skipScalar(byte[] data, int start, int end) {
+        byte b = data[start];
+        if (b == '"') {
+            return skipString(data, start, end);
         }
-
-        // 检查是否为单精度浮点数
-        if (FLOAT_PATTERN.matcher(value).matches()) {
-            return DataType.FLOAT;
+        if (b == '-' || isDigit(b)) {
+            int i = start;
+            while (i + 1 < end && isNumberPart(data[i + 1])) {
+                i++;
+            }
+            return i;
         }
-
-        // 检查是否为日期时间
-        if (DATETIME_PATTERN.matcher(value).matches()) {
-            return DataType.DATETIME;
+        String literal = b == 't' ? "true" : b == 'f' ? "false" : b == 'n' ? "null" : null;
+        if (literal == null || end - start < literal.length()) {
+            return -1;
         }
+        for (int i = 1; i < literal.length(); i++) {
+            if (data[start + i] != literal.charAt(i)) {
+                return -1;
+            }
+        }
+        return start + literal.length() - 1;
+    }
+
+    private static boolean isNumberPart(byte b) {
+        return isDigit(b) || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+    }
 
-        // 检查是否为JSON对象
-        if (isValidJsonObject(value)) {
-            return DataType.JSON;
+    private static boolean matchesIgnoreCase(byte[] data, int start, int end, String lowerCase) {
+        if (end - start != lowerCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if ((data[start + i] | 0x20) != lowerCase.charAt(i)) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        // 检查是否为JSON数组
-        if (isValidJsonArray(value)) {
-            return DataType.ARRAY;
+    private static boolean isDigits(byte[] data, int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(data[i])) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        // 默认为字符串类型
-        return DataType.STRING;
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
     }
 
     /**
-     * 检查是否为有效的JSON对象
+     * 根据字符串推断数据类型（按 UTF-8 编码后推断）
      */
-    private static boolean isValidJsonObject(String value) {
-        try {
-            JSONObject.parseObject(value);
-            return value.startsWith("{") && value.endsWith("}");
-        } catch (Exception e) {
-            return false;
+    public static DataType inferDataTypeFromString(String value) {
+        if (StringUtils.isEmpty(value)) {
+            return DataType.UNKNOWN;
         }
+        return inferDataType(value.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * 检查是否为有效的JSON数组
+     * 解析整数值（允许首尾空格和 l/L 后缀），无法解析时返回null
      */
-    private static boolean isValidJsonArray(String value) {
+    public static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (!LONG_PATTERN.matcher(trimmed).matches()) {
+            return null;
+        }
         try {
-            JSONArray.parseArray(value);
-            return value.startsWith("[") && value.endsWith("]");
-        } catch (Exception e) {
-            return false;
+            return Long.parseLong(trimmed.replaceAll("[lL]$", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析布尔值（true/false 不区分大小写，或 1/0），无法解析时返回null
+     */
+    public static Boolean parseBoolean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if ("1".equals(trimmed) || "true".equalsIgnoreCase(trimmed)) {
+            return Boolean.TRUE;
+        }
+        if ("0".equals(trimmed) || "false".equalsIgnoreCase(trimmed)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * 截取 value_str_prefix 影子列保存的字符串前缀（前 STR_PREFIX_LENGTH 个字符），不拆分代理对
+     */
+    public static String toStrPrefix(String text) {
+        if (text.length() <= STR_PREFIX_LENGTH) {
+            return text;
+        }
+        int end = STR_PREFIX_LENGTH;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
         }
+        return text.substring(0, end);
+    }
+
+    /**
+     * 文本是否完整保存在 value_str_prefix 中，按该列等值匹配不会命中共享同一前缀的更长值
+     * （更长的值截取后为 STR_PREFIX_LENGTH 或 STR_PREFIX_LENGTH - 1 个字符，见 toStrPrefix）
+     */
+    public static boolean fitsStrPrefix(String text) {
+        return text.length() < STR_PREFIX_LENGTH - 1;
     }
 
     /**
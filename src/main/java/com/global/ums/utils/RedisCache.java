@@ -2,8 +2,10 @@ package com.global.ums.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.BoundSetOperations;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Component;
 
@@ -262,4 +264,34 @@ public class RedisCache
     {
         return redisTemplate.keys(pattern);
     }
+
+    /**
+     * 按模式删除缓存，使用 SCAN 分批遍历，不会像 KEYS 一样阻塞 Redis
+     *
+     * @param pattern 键模式
+     * @return 删除的键数量
+     */
+    public long deleteByPattern(final String pattern)
+    {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(1000).build();
+        long deleted = 0;
+        List<Object> batch = new ArrayList<>();
+        try (Cursor<Object> cursor = redisTemplate.scan(options))
+        {
+            while (cursor.hasNext())
+            {
+                batch.add(cursor.next());
+                if (batch.size() == 1000)
+                {
+                    deleted += redisTemplate.delete(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            deleted += redisTemplate.delete(batch);
+        }
+        return deleted;
+    }
 }
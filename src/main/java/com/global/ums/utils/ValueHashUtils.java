@@ -0,0 +1,86 @@
+package com.global.ums.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 属性值哈希工具类
+ * 取 SHA-256 摘要的前 8 个字节（大端）并清除符号位，与数据库迁移脚本中的
+ * CAST(CONV(LEFT(SHA2(value, 256), 16), 16, 10) AS UNSIGNED) & 0x7FFFFFFFFFFFFFFF 结果一致
+ */
+public class ValueHashUtils {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(ValueHashUtils::newSha256);
+
+    private ValueHashUtils() {
+    }
+
+    /**
+     * 计算属性值哈希
+     *
+     * @param value 属性值
+     * @return 哈希值，value 为 null 时返回 null
+     */
+    public static Long hash(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        return fromDigest(sha256(value));
+    }
+
+    /**
+     * 由已计算的 SHA-256 摘要得到属性值哈希（用于流式计算摘要的场景）
+     *
+     * @param digest SHA-256 摘要
+     * @return 哈希值
+     */
+    public static long fromDigest(byte[] digest) {
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash & Long.MAX_VALUE;
+    }
+
+    /**
+     * 创建新的 SHA-256 摘要实例（用于增量计算）
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 计算 SHA-256 摘要
+     *
+     * @param value 数据
+     * @return 32字节摘要
+     */
+    public static byte[] sha256(byte[] value) {
+        return SHA256.get().digest(value);
+    }
+
+    /**
+     * 计算 SHA-256 摘要的十六进制字符串（小写）
+     *
+     * @param value 数据
+     * @return 64位十六进制字符串
+     */
+    public static String sha256Hex(byte[] value) {
+        return toHex(sha256(value));
+    }
+
+    /**
+     * 摘要转十六进制字符串（小写）
+     */
+    public static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,13 @@
+-- 变更事件表（事务性 outbox）
+-- 用户、属性、用户组关系与模板的写操作在同一事务中追加事件，下游通过 GET /changes 按游标增量消费
+
+CREATE TABLE IF NOT EXISTS `ums_change_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '事件id(消费游标)',
+  `aggregate_type` varchar(32) NOT NULL COMMENT '对象类型(user/property/user_group/template)',
+  `aggregate_id` bigint DEFAULT NULL COMMENT '对象id(属性与用户组关系为所属用户id)',
+  `op` varchar(16) NOT NULL COMMENT '操作(create/update/upsert/delete)',
+  `payload` text COMMENT '事件内容(JSON)',
+  `create_time` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='变更事件表';
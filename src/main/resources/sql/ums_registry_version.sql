@@ -0,0 +1,14 @@
+-- 配置注册表版本
+-- 属性键配置写入后递增 property_keys 版本并通过 Redis 频道 ums:property-keys:invalidate 通知其他节点立即重新加载，
+-- 定时任务只比较版本号，版本变化时才全量读取 ums_property_keys
+-- 直接修改数据库中的属性键配置后，需调用 POST /system/property-keys/refresh（或手动递增版本号）才会同步到各节点
+
+CREATE TABLE IF NOT EXISTS `ums_registry_version` (
+  `name` varchar(64) COLLATE utf8mb4_general_ci NOT NULL COMMENT '注册表名称',
+  `version` bigint NOT NULL DEFAULT 0 COMMENT '当前版本号',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='配置注册表版本表';
+
+INSERT INTO `ums_registry_version` (`name`, `version`) VALUES ('property_keys', 1)
+ON DUPLICATE KEY UPDATE `version` = `version`;
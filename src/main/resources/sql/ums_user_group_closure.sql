@@ -0,0 +1,33 @@
+-- 用户组祖先/后代闭包表
+-- 维护 ums_user_group 的传递闭包，继承查询只需一次索引查询，不再逐层递归
+-- depth 为祖先到后代的最短层级距离（直接上级为 1）
+
+CREATE TABLE IF NOT EXISTS `ums_user_group_closure` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `ancestor_id` bigint NOT NULL COMMENT '祖先用户id',
+  `descendant_id` bigint NOT NULL COMMENT '后代用户id',
+  `depth` int NOT NULL COMMENT '层级距离（直接上级为1）',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_ancestor_descendant` (`ancestor_id`, `descendant_id`),
+  KEY `idx_descendant_depth` (`descendant_id`, `depth`),
+  KEY `idx_ancestor_depth` (`ancestor_id`, `depth`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='用户组闭包表';
+
+-- 根据现有 ums_user_group 数据初始化闭包表（MySQL 8）
+-- depth 上限用于防止历史数据中存在环时无限递归
+INSERT INTO `ums_user_group_closure` (`ancestor_id`, `descendant_id`, `depth`)
+WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+    SELECT parent_user_id, user_id, 1
+    FROM ums_user_group
+    WHERE user_id IS NOT NULL AND parent_user_id IS NOT NULL
+    UNION ALL
+    SELECT g.parent_user_id, p.descendant_id, p.depth + 1
+    FROM paths p
+    JOIN ums_user_group g ON g.user_id = p.ancestor_id
+    WHERE g.parent_user_id IS NOT NULL AND p.depth < 64
+)
+SELECT ancestor_id, descendant_id, MIN(depth)
+FROM paths
+WHERE ancestor_id <> descendant_id
+GROUP BY ancestor_id, descendant_id
+ON DUPLICATE KEY UPDATE depth = LEAST(depth, VALUES(depth));
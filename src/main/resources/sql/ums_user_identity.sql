@@ -0,0 +1,26 @@
+-- 用户外部身份索引表
+-- 将登录名、小程序/公众号 openid、unionid 等身份标识映射到用户，登录与微信绑定只需一次唯一索引查询
+-- provider 与 ums_user_properties.key 一致，由 UserPropertiesService 写操作同步维护
+
+CREATE TABLE IF NOT EXISTS `ums_user_identity` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `provider` varchar(32) NOT NULL COMMENT '身份类型(username/ma_openid/mp_openid/unionid)',
+  `external_id` varchar(255) NOT NULL COMMENT '外部身份标识',
+  `user_id` bigint NOT NULL COMMENT '用户id',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_provider_external_id` (`provider`, `external_id`),
+  KEY `idx_user_provider` (`user_id`, `provider`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin COMMENT='用户外部身份索引表';
+
+-- 根据现有 ums_user_properties 数据初始化身份索引
+-- 同一身份标识被多个用户使用时保留 id 最大（最后写入）的属性对应的用户
+INSERT INTO `ums_user_identity` (`provider`, `external_id`, `user_id`)
+SELECT p.`key`, CONVERT(p.`value` USING utf8mb4), p.`user_id`
+FROM ums_user_properties p
+WHERE p.`key` IN ('username', 'ma_openid', 'mp_openid', 'unionid')
+  AND p.`user_id` IS NOT NULL
+  AND p.`value` IS NOT NULL
+  AND LENGTH(p.`value`) > 0
+  AND LENGTH(p.`value`) <= 255
+ORDER BY p.`id`
+ON DUPLICATE KEY UPDATE `user_id` = VALUES(`user_id`);
@@ -3,10 +3,23 @@ CREATE TABLE `ums_user_properties` (
   `user_id` bigint DEFAULT NULL COMMENT '用户id',
   `key` varchar(100) COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT '属性键',
   `value` blob COMMENT '属性值',
+  `blob_ref` char(64) COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT '外部存储引用(SHA-256)，为空表示值保存在value列',
+  `compressed` tinyint(1) NOT NULL DEFAULT 0 COMMENT 'value是否为压缩格式(首字节为算法标记)',
+  `value_hash` bigint DEFAULT NULL COMMENT '属性值哈希(SHA-256前8字节)',
+  `value_long` bigint DEFAULT NULL COMMENT '整数值影子列',
+  `value_str_prefix` varchar(191) COLLATE utf8mb4_bin DEFAULT NULL COMMENT '字符串前缀影子列(前191个字符)',
+  `value_bool` tinyint(1) DEFAULT NULL COMMENT '布尔值影子列',
   `data_type` int DEFAULT 9 COMMENT '数据类型(0:string,1:integer,2:float,3:double,4:long,5:boolean,6:json,7:binary,8:datetime,9:array,10:unknown)',
   `scope` tinyint(1) DEFAULT NULL COMMENT '属性范围',
+  `version` bigint NOT NULL DEFAULT 0 COMMENT '版本号(所属用户的属性版本序列)',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
   PRIMARY KEY (`id`),
-  KEY `idx_user_id` (`user_id`),
-  KEY `idx_key` (`key`),
+  UNIQUE KEY `uk_user_key` (`user_id`, `key`),
+  KEY `idx_key_user` (`key`, `user_id`),
+  KEY `idx_user_version` (`user_id`, `version`),
+  KEY `idx_key_value_hash` (`key`, `value_hash`, `user_id`),
+  KEY `idx_key_value_long` (`key`, `value_long`, `user_id`),
+  KEY `idx_key_value_str_prefix` (`key`, `value_str_prefix`, `user_id`),
+  KEY `idx_key_value_bool` (`key`, `value_bool`, `user_id`),
   KEY `idx_data_type` (`data_type`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci; 
\ No newline at end of file
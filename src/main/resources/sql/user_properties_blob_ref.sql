@@ -0,0 +1,6 @@
+-- 属性值外部存储引用
+-- 二进制属性值与超过阈值（property.blob.threshold）的属性值写入本地内容寻址存储，value 列只保留空值
+-- 已有数据保持原样（blob_ref 为 NULL 表示值保存在 value 列中），重新写入时自动迁移
+
+ALTER TABLE `ums_user_properties`
+  ADD COLUMN `blob_ref` char(64) COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT '外部存储引用(SHA-256)，为空表示值保存在value列' AFTER `value`;
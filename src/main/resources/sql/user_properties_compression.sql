@@ -0,0 +1,11 @@
+-- 属性值压缩存储
+-- ums_property_keys.compression 按属性键配置压缩算法：0-不压缩 1-deflate 2-brotli
+-- 配置了压缩算法的属性值达到 property.compression.threshold 且压缩后更小时以压缩格式保存，
+-- 格式为 1 字节算法标记 + 压缩数据，ums_user_properties.compressed 标识该行 value 为压缩格式
+-- value_hash 与影子列始终按原值计算，已有数据无需回填，重新写入时按配置压缩
+
+ALTER TABLE `ums_property_keys`
+  ADD COLUMN `compression` tinyint NOT NULL DEFAULT 0 COMMENT '属性值压缩算法(0:不压缩 1:deflate 2:brotli)';
+
+ALTER TABLE `ums_user_properties`
+  ADD COLUMN `compressed` tinyint(1) NOT NULL DEFAULT 0 COMMENT 'value是否为压缩格式(首字节为算法标记)' AFTER `blob_ref`;
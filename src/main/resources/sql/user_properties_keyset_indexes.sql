@@ -0,0 +1,17 @@
+-- 属性条件查询按用户ID游标分页：取值索引末尾追加 user_id
+-- (user_id, key) 唯一，同一 (key, 取值) 下的行在索引中按 user_id 有序，
+-- 驱动条件可直接从上一页最后一个用户ID处定位、按序读取 LIMIT 行，不再对全部匹配行去重排序；
+-- idx_key 换为 (key, user_id)，EXISTS 条件以及匹配行较多的范围、前缀条件按用户ID顺序扫描
+-- 执行前请先备份数据库
+
+ALTER TABLE `ums_user_properties`
+  DROP INDEX `idx_key`,
+  ADD INDEX `idx_key_user` (`key`, `user_id`),
+  DROP INDEX `idx_key_value_hash`,
+  ADD INDEX `idx_key_value_hash` (`key`, `value_hash`, `user_id`),
+  DROP INDEX `idx_key_value_long`,
+  ADD INDEX `idx_key_value_long` (`key`, `value_long`, `user_id`),
+  DROP INDEX `idx_key_value_str_prefix`,
+  ADD INDEX `idx_key_value_str_prefix` (`key`, `value_str_prefix`, `user_id`),
+  DROP INDEX `idx_key_value_bool`,
+  ADD INDEX `idx_key_value_bool` (`key`, `value_bool`, `user_id`);
@@ -0,0 +1,47 @@
+-- 属性值类型化影子列
+-- 按 ums_property_keys.data_type 写入：整数(1,4) -> value_long，布尔(5) -> value_bool，
+-- 其余文本（以及无法按声明类型解析的值）-> value_str_prefix；二进制(6)与外部存储的值不写入
+-- 过滤条件可走 (key, value_long) / (key, value_str_prefix) / (key, value_bool) 索引
+
+ALTER TABLE `ums_user_properties`
+  ADD COLUMN `value_long` bigint DEFAULT NULL COMMENT '整数值影子列' AFTER `value_hash`,
+  ADD COLUMN `value_str_prefix` varchar(191) COLLATE utf8mb4_bin DEFAULT NULL COMMENT '字符串前缀影子列(前191个字符)' AFTER `value_long`,
+  ADD COLUMN `value_bool` tinyint(1) DEFAULT NULL COMMENT '布尔值影子列' AFTER `value_str_prefix`,
+  ADD INDEX `idx_key_value_long` (`key`, `value_long`),
+  ADD INDEX `idx_key_value_str_prefix` (`key`, `value_str_prefix`),
+  ADD INDEX `idx_key_value_bool` (`key`, `value_bool`);
+
+-- 整数（与 DataTypeUtils.parseLong 一致：允许首尾空白和 l/L 后缀、前导零，取值在 bigint 范围内）
+-- 同时清空 value_str_prefix，可重复执行以修正按旧规则（最多18位）回填到 value_str_prefix 的行
+UPDATE `ums_user_properties` p
+JOIN `ums_property_keys` k ON k.`key` = p.`key`
+SET p.`value_long` = CAST(REGEXP_REPLACE(CONVERT(p.`value` USING utf8mb4), '[[:space:]]|[lL]', '') AS SIGNED),
+    p.`value_str_prefix` = NULL
+WHERE k.`data_type` IN (1, 4)
+  AND (p.`blob_ref` IS NULL OR p.`blob_ref` = '')
+  AND CASE
+        WHEN CONVERT(p.`value` USING utf8mb4) REGEXP '^[[:space:]]*-?0*[0-9]{1,19}[lL]?[[:space:]]*$'
+        THEN CAST(REGEXP_REPLACE(CONVERT(p.`value` USING utf8mb4), '[[:space:]]|[lL]', '') AS DECIMAL(65, 0))
+             BETWEEN -9223372036854775808 AND 9223372036854775807
+        ELSE FALSE
+      END;
+
+-- 布尔（与 DataTypeUtils.parseBoolean 一致）
+UPDATE `ums_user_properties` p
+JOIN `ums_property_keys` k ON k.`key` = p.`key`
+SET p.`value_bool` = LOWER(TRIM(CONVERT(p.`value` USING utf8mb4))) IN ('true', '1')
+WHERE k.`data_type` = 5
+  AND (p.`blob_ref` IS NULL OR p.`blob_ref` = '')
+  AND LOWER(TRIM(CONVERT(p.`value` USING utf8mb4))) IN ('true', 'false', '1', '0');
+
+-- 其余文本（只处理合法的 UTF-8 内容）
+UPDATE `ums_user_properties` p
+LEFT JOIN `ums_property_keys` k ON k.`key` = p.`key`
+SET p.`value_str_prefix` = LEFT(CONVERT(p.`value` USING utf8mb4), 191)
+WHERE (k.`data_type` IS NULL OR k.`data_type` <> 6)
+  AND p.`value_long` IS NULL
+  AND p.`value_bool` IS NULL
+  AND (p.`blob_ref` IS NULL OR p.`blob_ref` = '')
+  AND p.`value` IS NOT NULL
+  AND LENGTH(p.`value`) > 0
+  AND CAST(CONVERT(p.`value` USING utf8mb4) AS BINARY) = p.`value`;
@@ -0,0 +1,16 @@
+-- 用户属性 (user_id, key) 唯一约束，支持 INSERT ... ON DUPLICATE KEY UPDATE 批量写入
+-- 清理重复行时保留 id 最小的一行（按键查询与更新一直命中的是该行）
+
+DELETE p
+FROM `ums_user_properties` p
+JOIN (
+  SELECT `user_id`, `key`, MIN(`id`) AS `keep_id`
+  FROM `ums_user_properties`
+  GROUP BY `user_id`, `key`
+  HAVING COUNT(*) > 1
+) d ON d.`user_id` = p.`user_id` AND d.`key` = p.`key` AND p.`id` <> d.`keep_id`;
+
+-- idx_user_id 为唯一索引的最左前缀，一并移除
+ALTER TABLE `ums_user_properties`
+  ADD UNIQUE KEY `uk_user_key` (`user_id`, `key`),
+  DROP INDEX `idx_user_id`;
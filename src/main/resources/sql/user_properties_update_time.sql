@@ -0,0 +1,5 @@
+-- 属性最后修改时间
+-- 用于 /user/properties/getReturnByte 的 Last-Modified / If-Modified-Since，已有数据初始化为执行迁移的时间
+
+ALTER TABLE `ums_user_properties`
+  ADD COLUMN `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间';
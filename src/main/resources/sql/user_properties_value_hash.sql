@@ -0,0 +1,14 @@
+-- 为 ums_user_properties 添加属性值哈希列，用于按 (key, value) 反查用户
+-- value_hash 为 SHA-256 摘要前 8 字节（大端）去掉符号位，与 ValueHashUtils.hash 一致
+-- 执行前请先备份数据库
+
+ALTER TABLE `ums_user_properties`
+ADD COLUMN `value_hash` bigint DEFAULT NULL COMMENT '属性值哈希(SHA-256前8字节)' AFTER `value`;
+
+ALTER TABLE `ums_user_properties`
+ADD INDEX `idx_key_value_hash` (`key`, `value_hash`);
+
+-- 回填现有数据
+UPDATE `ums_user_properties`
+SET `value_hash` = CAST(CONV(LEFT(SHA2(`value`, 256), 16), 16, 10) AS UNSIGNED) & 0x7FFFFFFFFFFFFFFF
+WHERE `value` IS NOT NULL;
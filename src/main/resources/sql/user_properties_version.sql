@@ -0,0 +1,29 @@
+-- 用户属性版本号与删除标记，支持客户端增量同步（GET /user/properties/delta）
+-- 每个用户一个单调递增的版本序列，属性写入/删除时在同一事务内分配版本号
+
+CREATE TABLE IF NOT EXISTS `ums_user_property_version` (
+  `user_id` bigint NOT NULL COMMENT '用户id',
+  `version` bigint NOT NULL DEFAULT 0 COMMENT '已分配的最大版本号',
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='用户属性版本序列表';
+
+CREATE TABLE IF NOT EXISTS `ums_user_property_tombstone` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `user_id` bigint NOT NULL COMMENT '用户id',
+  `key` varchar(100) COLLATE utf8mb4_general_ci NOT NULL COMMENT '被删除的属性键',
+  `version` bigint NOT NULL COMMENT '删除时分配的版本号',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_user_key` (`user_id`, `key`),
+  KEY `idx_user_version` (`user_id`, `version`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='用户属性删除标记表';
+
+ALTER TABLE `ums_user_properties`
+  ADD COLUMN `version` bigint NOT NULL DEFAULT 0 COMMENT '版本号(所属用户的属性版本序列)' AFTER `scope`,
+  ADD INDEX `idx_user_version` (`user_id`, `version`);
+
+-- 现有属性统一记为版本1，客户端首次同步（since 为空）取全量
+UPDATE `ums_user_properties` SET `version` = 1 WHERE `user_id` IS NOT NULL;
+
+INSERT INTO `ums_user_property_version` (`user_id`, `version`)
+SELECT DISTINCT `user_id`, 1 FROM `ums_user_properties` WHERE `user_id` IS NOT NULL
+ON DUPLICATE KEY UPDATE `version` = GREATEST(`version`, 1);
@@ -0,0 +1,150 @@
+package com.global.ums.graph;
+
+import com.global.ums.entity.User;
+import com.global.ums.enums.UserType;
+import com.global.ums.mapper.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * HierarchyGraph 遍历单元测试
+ * 测试图（箭头由上级指向下级，G 为用户组，U 为普通用户）：
+ * <pre>
+ * 1(G) -> 2(G) -> 4(U) -> 6(U)
+ *      -> 2(G) -> 5(U)
+ *      -> 3(U) -> 5(U)
+ *      -> 3(U) -> 7(G) -> 8(U)
+ * </pre>
+ */
+class HierarchyGraphTest {
+
+    private static final int USER = UserType.USER.getValue();
+    private static final int GROUP = UserType.USER_GROUP.getValue();
+
+    private final Map<Long, Integer> types = new HashMap<>();
+
+    private HierarchyGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        types.put(1L, GROUP);
+        types.put(2L, GROUP);
+        types.put(3L, USER);
+        types.put(4L, USER);
+        types.put(5L, USER);
+        types.put(6L, USER);
+        types.put(7L, GROUP);
+        types.put(8L, USER);
+
+        UserMapper userMapper = mock(UserMapper.class);
+        when(userMapper.selectById(any())).thenAnswer(invocation -> {
+            Integer type = types.get((Long) invocation.getArgument(0));
+            if (type == null) {
+                return null;
+            }
+            User user = new User();
+            user.setId(invocation.getArgument(0));
+            user.setType(type);
+            return user;
+        });
+        graph = new HierarchyGraph();
+        ReflectionTestUtils.setField(graph, "userMapper", userMapper);
+
+        graph.addEdge(2, 1);
+        graph.addEdge(3, 1);
+        graph.addEdge(4, 2);
+        graph.addEdge(5, 2);
+        graph.addEdge(5, 3);
+        graph.addEdge(7, 3);
+        graph.addEdge(6, 4);
+        graph.addEdge(8, 7);
+    }
+
+    @Test
+    void descendantsAreOrderedByDistance() {
+        assertArrayEquals(new long[]{2, 3, 4, 5, 7, 6, 8}, graph.descendants(1, null));
+        assertArrayEquals(new long[]{3, 4, 5, 6, 8}, graph.descendants(1, USER));
+        assertArrayEquals(new long[]{7}, graph.descendants(3, GROUP));
+        assertArrayEquals(new long[0], graph.descendants(8, null));
+        assertArrayEquals(new long[0], graph.descendants(99, null));
+    }
+
+    @Test
+    void ancestorsAreOrderedByDistance() {
+        assertArrayEquals(new long[]{2, 3, 1}, graph.ancestors(5));
+        assertArrayEquals(new long[]{7, 3, 1}, graph.ancestors(8));
+        assertArrayEquals(new long[0], graph.ancestors(1));
+        assertArrayEquals(new long[0], graph.ancestors(99));
+    }
+
+    @Test
+    void descendantsThroughOnlyExpandsGroups() {
+        // 普通用户 3、4 的下级不展开，起点无论类型都展开
+        assertArrayEquals(new long[]{3, 4, 5}, graph.descendantsThrough(1, GROUP, USER));
+        assertArrayEquals(new long[]{2, 3, 4, 5}, graph.descendantsThrough(1, GROUP, null));
+        assertArrayEquals(new long[]{5, 8}, graph.descendantsThrough(3, GROUP, USER));
+        assertArrayEquals(new long[]{6}, graph.descendantsThrough(4, GROUP, USER));
+    }
+
+    @Test
+    void descendantsThroughFollowsTypeChanges() {
+        graph.applyRemote("other-node type 3 " + GROUP);
+        assertArrayEquals(new long[]{4, 5, 8}, graph.descendantsThrough(1, GROUP, USER));
+    }
+
+    @Test
+    void isReachableFollowsParents() {
+        assertTrue(graph.isReachable(6, 1));
+        assertTrue(graph.isReachable(8, 3));
+        assertTrue(graph.isReachable(5, 5));
+        assertFalse(graph.isReachable(1, 6));
+        assertFalse(graph.isReachable(6, 3));
+        assertFalse(graph.isReachable(6, 99));
+        assertFalse(graph.isReachable(99, 1));
+    }
+
+    @Test
+    void removeEdgeHonoursDuplicateRows() {
+        graph.addEdge(6, 4);
+        graph.removeEdge(6, 4, false);
+        assertTrue(graph.isReachable(6, 4));
+        graph.removeEdge(6, 4, false);
+        assertFalse(graph.isReachable(6, 4));
+        assertFalse(graph.hasParents(6));
+
+        graph.addEdge(6, 4);
+        graph.addEdge(6, 4);
+        graph.removeEdge(6, 4, true);
+        assertFalse(graph.isReachable(6, 4));
+        assertArrayEquals(new long[0], graph.children(4));
+    }
+
+    @Test
+    void traversalTerminatesOnCycles() {
+        graph.addEdge(1, 8);
+        assertArrayEquals(new long[]{2, 3, 4, 5, 7, 6, 8}, graph.descendants(1, null));
+        assertTrue(graph.isReachable(1, 7));
+        assertFalse(graph.isReachable(1, 99));
+    }
+
+    @Test
+    void remoteChangesFromOtherNodesAreApplied() {
+        graph.applyRemote("other-node add 9 8");
+        assertArrayEquals(new long[]{9}, graph.children(8));
+        graph.applyRemote("other-node remove 9 8 true");
+        assertArrayEquals(new long[0], graph.children(8));
+        graph.applyRemote("other-node unknown 1 2");
+        assertArrayEquals(new long[]{2, 3}, graph.children(1));
+    }
+}
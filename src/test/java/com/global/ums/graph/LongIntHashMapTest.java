@@ -0,0 +1,75 @@
+package com.global.ums.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * LongIntHashMap 单元测试
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void getReturnsMinusOneForMissingKeys() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(-1, map.get(1L));
+        assertEquals(-1, map.get(0L));
+        assertEquals(-1, map.get(Long.MIN_VALUE));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void putOverwritesExistingKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(42L, 1);
+        map.put(42L, 7);
+        assertEquals(7, map.get(42L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void supportsZeroNegativeAndExtremeKeys() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(0L, 1);
+        map.put(-1L, 2);
+        map.put(Long.MAX_VALUE, 3);
+        map.put(Long.MIN_VALUE + 1, 4);
+        assertEquals(1, map.get(0L));
+        assertEquals(2, map.get(-1L));
+        assertEquals(3, map.get(Long.MAX_VALUE));
+        assertEquals(4, map.get(Long.MIN_VALUE + 1));
+        assertEquals(-1, map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void rejectsReservedKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void keepsAllEntriesAcrossRehash() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            // 混入连续ID与随机ID，覆盖线性探测的聚集情况
+            long key = i % 2 == 0 ? i : random.nextLong();
+            if (key == Long.MIN_VALUE) {
+                continue;
+            }
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        assertEquals(-1, map.get(-2L));
+    }
+}
@@ -0,0 +1,180 @@
+package com.global.ums.mapper;
+
+import com.global.ums.entity.UserProperties;
+import com.global.ums.query.PlannedPredicate;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UserPropertiesMapper.xml 中属性条件 SQL 的渲染测试：只解析映射文件生成 SQL 与参数，不连接数据库
+ */
+class UserPropertiesMapperSqlTest {
+
+    private static final String NAMESPACE = "com.global.ums.mapper.UserPropertiesMapper.";
+
+    private Configuration configuration;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        configuration = new Configuration();
+        String resource = "mapper/UserPropertiesMapper.xml";
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+    }
+
+    @Test
+    void seeksEachMatchValueInUserIdOrder() {
+        PlannedPredicate age = match("age", PlannedPredicate.COLUMN_LONG, 18L, 20L);
+        age.setTextColumn(PlannedPredicate.COLUMN_STR_PREFIX);
+        age.setTextValues(Collections.singletonList("unknown"));
+        PlannedPredicate vip = match("vip", PlannedPredicate.COLUMN_BOOL, true);
+
+        Rendered rendered = renderSearch(Arrays.asList(age, vip), 1, 100L, 21);
+
+        // 每个取值一个分支，分支内从游标处按用户ID顺序读取，外层只对各分支最多 limit 行排序
+        assertEquals(3, count(rendered.sql, "(SELECT d.user_id FROM ums_user_properties d"));
+        assertEquals(2, count(rendered.sql, "AND d.value_long = ?"));
+        assertEquals(1, count(rendered.sql, "AND d.value_str_prefix = ?"));
+        assertEquals(3, count(rendered.sql, "AND d.user_id > ?"));
+        assertEquals(3, count(rendered.sql, "ORDER BY d.user_id LIMIT ?)"));
+        assertEquals(3, count(rendered.sql, "AND EXISTS (SELECT 1 FROM ums_user_properties f"));
+        assertEquals(3, count(rendered.sql, "JOIN ums_user u ON u.id = d.user_id AND u.type = ?"));
+        assertTrue(rendered.sql.endsWith(") m ORDER BY m.user_id LIMIT ?"), rendered.sql);
+        assertFalse(rendered.sql.contains("DISTINCT"), rendered.sql);
+
+        assertEquals(Arrays.<Object>asList(
+                1, "age", 18L, 100L, "vip", true, 21,
+                1, "age", 20L, 100L, "vip", true, 21,
+                1, "age", "unknown", 100L, "vip", true, 21,
+                21), rendered.parameters);
+    }
+
+    @Test
+    void scansByUserIdForMarkedDriver() {
+        PlannedPredicate city = new PlannedPredicate();
+        city.setKey("city");
+        city.setKind(PlannedPredicate.KIND_RANGE);
+        city.setColumn(PlannedPredicate.COLUMN_STR_PREFIX);
+        city.setFrom("a");
+        city.setTo("m");
+        city.setScanByUser(true);
+        PlannedPredicate vip = match("vip", PlannedPredicate.COLUMN_BOOL, true);
+
+        Rendered rendered = renderSearch(Arrays.asList(city, vip), null, null, 11);
+        assertEquals("SELECT d.user_id FROM ums_user_properties d FORCE INDEX (idx_key_user) "
+                + "WHERE `key` = ? AND value_str_prefix >= ? AND value_str_prefix <= ? "
+                + "AND EXISTS (SELECT 1 FROM ums_user_properties f WHERE f.user_id = d.user_id "
+                + "AND `key` = ? AND ( value_bool IN ( ? ) ) ) "
+                + "ORDER BY d.user_id LIMIT ?", rendered.sql);
+        assertEquals(Arrays.<Object>asList("city", "a", "m", "vip", true, 11), rendered.parameters);
+
+        city.setScanByUser(false);
+        assertFalse(renderSearch(Collections.singletonList(city), null, null, 11).sql.contains("FORCE INDEX"));
+    }
+
+    @Test
+    void rendersPrefixWithFullValuePattern() {
+        PlannedPredicate prefix = new PlannedPredicate();
+        prefix.setKey("city");
+        prefix.setKind(PlannedPredicate.KIND_PREFIX);
+        prefix.setColumn(PlannedPredicate.COLUMN_STR_PREFIX);
+        prefix.setPattern("abc");
+        prefix.setValuePattern("abcdef%");
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("pred", prefix);
+        params.put("cap", 10000);
+        Rendered rendered = render("countPredicateMatches", params);
+        assertEquals("SELECT COUNT(*) FROM ( SELECT 1 FROM ums_user_properties "
+                + "WHERE `key` = ? AND value_str_prefix LIKE ? AND value LIKE ? LIMIT ? ) t", rendered.sql);
+        assertEquals(Arrays.<Object>asList("city", "abc", "abcdef%", 10000), rendered.parameters);
+    }
+
+    @Test
+    void updatesTypedColumnsOnlyForUnchangedRows() {
+        UserProperties first = new UserProperties();
+        first.setId(1L);
+        first.setValueHash(11L);
+        first.setValueLong(42L);
+        UserProperties second = new UserProperties();
+        second.setId(2L);
+        second.setValueHash(22L);
+        second.setValueStrPrefix("abc");
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("list", Arrays.asList(first, second));
+        Rendered rendered = render("batchUpdateTypedColumns", params);
+        assertEquals("UPDATE ums_user_properties "
+                + "SET value_long = CASE id WHEN ? THEN ? WHEN ? THEN ? END, "
+                + "value_bool = CASE id WHEN ? THEN ? WHEN ? THEN ? END, "
+                + "value_str_prefix = CASE id WHEN ? THEN ? WHEN ? THEN ? END "
+                + "WHERE (id = ? AND value_hash <=> ?) OR (id = ? AND value_hash <=> ?)", rendered.sql);
+        assertEquals(Arrays.<Object>asList(
+                1L, 42L, 2L, null,
+                1L, null, 2L, null,
+                1L, null, 2L, "abc",
+                1L, 11L, 2L, 22L), rendered.parameters);
+    }
+
+    private static PlannedPredicate match(String key, String column, Object... values) {
+        PlannedPredicate predicate = new PlannedPredicate();
+        predicate.setKey(key);
+        predicate.setKind(PlannedPredicate.KIND_MATCH);
+        predicate.setColumn(column);
+        predicate.setValues(Arrays.asList(values));
+        return predicate;
+    }
+
+    private Rendered renderSearch(List<PlannedPredicate> predicates, Integer type, Long lastId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("predicates", predicates);
+        params.put("type", type);
+        params.put("lastId", lastId);
+        params.put("limit", limit);
+        return render("selectUserIdsByPredicates", params);
+    }
+
+    private Rendered render(String statement, Map<String, Object> params) {
+        BoundSql boundSql = configuration.getMappedStatement(NAMESPACE + statement).getBoundSql(params);
+        MetaObject metaObject = configuration.newMetaObject(params);
+        Rendered rendered = new Rendered();
+        rendered.sql = boundSql.getSql().replaceAll("\\s+", " ").trim();
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String name = mapping.getProperty();
+            rendered.parameters.add(boundSql.hasAdditionalParameter(name)
+                    ? boundSql.getAdditionalParameter(name) : metaObject.getValue(name));
+        }
+        return rendered;
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + part.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static final class Rendered {
+        private String sql;
+        private final List<Object> parameters = new ArrayList<>();
+    }
+}
@@ -0,0 +1,273 @@
+package com.global.ums.query;
+
+import com.global.ums.dto.UserIdPageDTO;
+import com.global.ums.entity.PropertyKeys;
+import com.global.ums.enums.DataType;
+import com.global.ums.mapper.UserMapper;
+import com.global.ums.mapper.UserPropertiesMapper;
+import com.global.ums.service.PropertyKeysService;
+import com.global.ums.utils.DataTypeUtils;
+import com.global.ums.utils.ValueHashUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * PropertyQueryEngine 条件规划单元测试：取值解析与影子列选择、按估算行数排序、驱动条件的读取方式
+ */
+class PropertyQueryEngineTest {
+
+    /**
+     * 属性键 -> 声明的数据类型
+     */
+    private final Map<String, DataType> dataTypes = new HashMap<>();
+
+    /**
+     * 属性键 -> countPredicateMatches 返回的估算行数
+     */
+    private final Map<String, Long> matches = new HashMap<>();
+
+    private UserPropertiesMapper userPropertiesMapper;
+
+    private PropertyQueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        dataTypes.put("age", DataType.LONG);
+        dataTypes.put("vip", DataType.BOOLEAN);
+        dataTypes.put("city", DataType.STRING);
+        dataTypes.put("avatar", DataType.BINARY);
+
+        PropertyKeysService propertyKeysService = mock(PropertyKeysService.class);
+        when(propertyKeysService.getByKey(any())).thenAnswer(invocation -> {
+            DataType dataType = dataTypes.get((String) invocation.getArgument(0));
+            if (dataType == null) {
+                return null;
+            }
+            PropertyKeys propertyKey = new PropertyKeys();
+            propertyKey.setKey(invocation.getArgument(0));
+            propertyKey.setDataType(dataType.getValue());
+            return propertyKey;
+        });
+        userPropertiesMapper = mock(UserPropertiesMapper.class);
+        when(userPropertiesMapper.countPredicateMatches(any(), anyInt())).thenAnswer(invocation -> {
+            PlannedPredicate predicate = invocation.getArgument(0);
+            return matches.getOrDefault(predicate.getKey(), 1L);
+        });
+
+        engine = new PropertyQueryEngine();
+        ReflectionTestUtils.setField(engine, "userPropertiesMapper", userPropertiesMapper);
+        ReflectionTestUtils.setField(engine, "userMapper", mock(UserMapper.class));
+        ReflectionTestUtils.setField(engine, "propertyKeysService", propertyKeysService);
+        ReflectionTestUtils.setField(engine, "estimateCacheSize", 100L);
+        ReflectionTestUtils.setField(engine, "estimateCacheExpireSeconds", 60L);
+        engine.init();
+    }
+
+    @Test
+    void matchesTypedColumnsAndKeepsUnparsedValuesAsText() {
+        PlannedPredicate age = planOne(PropertyPredicate.in("age", Arrays.asList("18", " 20L", "18", "unknown")));
+        assertEquals(PlannedPredicate.KIND_MATCH, age.getKind());
+        assertEquals(PlannedPredicate.COLUMN_LONG, age.getColumn());
+        assertEquals(Arrays.<Object>asList(18L, 20L), age.getValues());
+        assertEquals(PlannedPredicate.COLUMN_STR_PREFIX, age.getTextColumn());
+        assertEquals(Collections.<Object>singletonList("unknown"), age.getTextValues());
+
+        PlannedPredicate vip = planOne(PropertyPredicate.eq("vip", "TRUE"));
+        assertEquals(PlannedPredicate.COLUMN_BOOL, vip.getColumn());
+        assertEquals(Collections.<Object>singletonList(true), vip.getValues());
+        assertNull(vip.getTextColumn());
+
+        // 全部取值都无法解析时只按文本匹配
+        PlannedPredicate text = planOne(PropertyPredicate.eq("age", "n/a"));
+        assertEquals(PlannedPredicate.COLUMN_STR_PREFIX, text.getColumn());
+        assertEquals(Collections.<Object>singletonList("n/a"), text.getValues());
+        assertNull(text.getTextColumn());
+    }
+
+    @Test
+    void matchesValueHashWhenTextExceedsPrefixOrKeyIsBinary() {
+        String longText = repeat('x', DataTypeUtils.STR_PREFIX_LENGTH);
+        PlannedPredicate city = planOne(PropertyPredicate.in("city", Arrays.asList("shanghai", longText)));
+        assertEquals(PlannedPredicate.COLUMN_HASH, city.getColumn());
+        assertEquals(Arrays.<Object>asList(hash("shanghai"), hash(longText)), city.getValues());
+
+        PlannedPredicate shortText = planOne(PropertyPredicate.eq("city", "shanghai"));
+        assertEquals(PlannedPredicate.COLUMN_STR_PREFIX, shortText.getColumn());
+
+        PlannedPredicate avatar = planOne(PropertyPredicate.eq("avatar", "abc"));
+        assertEquals(PlannedPredicate.COLUMN_HASH, avatar.getColumn());
+        assertEquals(Collections.<Object>singletonList(hash("abc")), avatar.getValues());
+
+        // 未声明的键按文本匹配
+        PlannedPredicate undeclared = planOne(PropertyPredicate.eq("nickname", "tom"));
+        assertEquals(PlannedPredicate.COLUMN_STR_PREFIX, undeclared.getColumn());
+    }
+
+    @Test
+    void resolvesRangeOnLongColumnOnlyWhenBothBoundsParse() {
+        PlannedPredicate numeric = planOne(PropertyPredicate.range("age", "18", null));
+        assertEquals(PlannedPredicate.KIND_RANGE, numeric.getKind());
+        assertEquals(PlannedPredicate.COLUMN_LONG, numeric.getColumn());
+        assertEquals(Long.valueOf(18L), numeric.getFrom());
+        assertNull(numeric.getTo());
+
+        PlannedPredicate text = planOne(PropertyPredicate.range("age", "18", "abc"));
+        assertEquals(PlannedPredicate.COLUMN_STR_PREFIX, text.getColumn());
+        assertEquals("18", text.getFrom());
+        assertEquals("abc", text.getTo());
+
+        assertThrows(IllegalArgumentException.class, () -> engine.plan(
+                Collections.singletonList(PropertyPredicate.range("age", null, null))));
+    }
+
+    @Test
+    void escapesPrefixAndMatchesFullValueBeyondPrefixLength() {
+        PlannedPredicate shortPrefix = planOne(PropertyPredicate.prefix("city", "50%_off\\"));
+        assertEquals(PlannedPredicate.KIND_PREFIX, shortPrefix.getKind());
+        assertEquals("50\\%\\_off\\\\%", shortPrefix.getPattern());
+        assertNull(shortPrefix.getValuePattern());
+
+        String longPrefix = repeat('a', DataTypeUtils.STR_PREFIX_LENGTH + 10);
+        PlannedPredicate prefix = planOne(PropertyPredicate.prefix("city", longPrefix));
+        assertEquals(repeat('a', DataTypeUtils.STR_PREFIX_LENGTH), prefix.getPattern());
+        assertEquals(longPrefix + "%", prefix.getValuePattern());
+    }
+
+    @Test
+    void rejectsIncompletePredicates() {
+        assertThrows(IllegalArgumentException.class, () -> engine.plan(
+                Collections.singletonList(PropertyPredicate.eq("", "1"))));
+        assertThrows(IllegalArgumentException.class, () -> engine.plan(
+                Collections.singletonList(PropertyPredicate.eq("age", null))));
+        assertThrows(IllegalArgumentException.class, () -> engine.plan(
+                Collections.singletonList(PropertyPredicate.in("age", Collections.emptyList()))));
+    }
+
+    @Test
+    void ordersByEstimateThenKind() {
+        matches.put("age", 500L);
+        matches.put("vip", 20L);
+        matches.put("city", 500L);
+        List<PlannedPredicate> planned = engine.plan(Arrays.asList(
+                PropertyPredicate.exists("age"),
+                PropertyPredicate.range("city", "a", "m"),
+                PropertyPredicate.eq("vip", "true")));
+        assertEquals(Arrays.asList("vip", "city", "age"), keys(planned));
+        assertEquals(20L, planned.get(0).getEstimate());
+
+        // 估算行数相同时：等值匹配 < 前缀 < 范围 < EXISTS
+        matches.put("vip", 500L);
+        planned = engine.plan(Arrays.asList(
+                PropertyPredicate.exists("age"),
+                PropertyPredicate.range("city", "a", "m"),
+                PropertyPredicate.eq("vip", "true")));
+        assertEquals(Arrays.asList("vip", "city", "age"), keys(planned));
+    }
+
+    @Test
+    void returnsNullWithoutCachingWhenAnyPredicateCannotMatch() {
+        matches.put("vip", 0L);
+        List<PropertyPredicate> predicates = Arrays.asList(
+                PropertyPredicate.eq("age", "18"), PropertyPredicate.eq("vip", "true"));
+        assertNull(engine.plan(predicates));
+        assertNull(engine.plan(predicates));
+        verify(userPropertiesMapper, times(2)).countPredicateMatches(
+                argThat(p -> "vip".equals(p.getKey())), anyInt());
+    }
+
+    @Test
+    void cachesEstimates() {
+        List<PropertyPredicate> predicates = Arrays.asList(
+                PropertyPredicate.eq("age", "18"), PropertyPredicate.eq("vip", "true"));
+        engine.plan(predicates);
+        engine.plan(predicates);
+        verify(userPropertiesMapper, times(2)).countPredicateMatches(any(), anyInt());
+    }
+
+    @Test
+    void skipsEstimateForSingleMatchOrExists() {
+        assertTrue(planOne(PropertyPredicate.exists("age")).isScanByUser());
+        assertFalse(planOne(PropertyPredicate.eq("age", "18")).isScanByUser());
+        verify(userPropertiesMapper, times(0)).countPredicateMatches(any(), anyInt());
+    }
+
+    @Test
+    void scansRangeDriverByUserWhenEstimateReachesCap() {
+        matches.put("age", 10000L);
+        assertTrue(planOne(PropertyPredicate.range("age", "18", "60")).isScanByUser());
+
+        matches.put("city", 300L);
+        PlannedPredicate selective = planOne(PropertyPredicate.prefix("city", "shang"));
+        assertFalse(selective.isScanByUser());
+        assertEquals(300L, selective.getEstimate());
+
+        matches.put("city", 0L);
+        assertNull(engine.plan(Collections.singletonList(PropertyPredicate.prefix("city", "nowhere"))));
+
+        // 多个条件时按排序后的驱动条件决定
+        matches.put("age", 10000L);
+        matches.put("vip", 10000L);
+        List<PlannedPredicate> planned = engine.plan(Arrays.asList(
+                PropertyPredicate.range("age", "18", "60"), PropertyPredicate.eq("vip", "true")));
+        assertEquals("vip", planned.get(0).getKey());
+        assertFalse(planned.get(0).isScanByUser());
+        assertFalse(planned.get(1).isScanByUser());
+    }
+
+    @Test
+    void searchUserIdsReturnsCursorOnlyWhenMoreRowsExist() {
+        when(userPropertiesMapper.selectUserIdsByPredicates(any(), any(), anyLong(), eq(3)))
+                .thenReturn(Arrays.asList(11L, 12L, 13L));
+        UserIdPageDTO page = engine.searchUserIds(
+                Collections.singletonList(PropertyPredicate.eq("age", "18")), null, 10L, 2);
+        assertEquals(Arrays.asList(11L, 12L), page.getUserIds());
+        assertEquals(Long.valueOf(12L), page.getNextLastId());
+
+        page = engine.searchUserIds(Collections.singletonList(PropertyPredicate.eq("age", "18")), null, 10L, 3);
+        assertEquals(Collections.emptyList(), page.getUserIds());
+        assertNull(page.getNextLastId());
+    }
+
+    private PlannedPredicate planOne(PropertyPredicate predicate) {
+        List<PlannedPredicate> planned = engine.plan(Collections.singletonList(predicate));
+        assertEquals(1, planned.size());
+        return planned.get(0);
+    }
+
+    private static List<String> keys(List<PlannedPredicate> planned) {
+        return Arrays.asList(planned.stream().map(PlannedPredicate::getKey).toArray(String[]::new));
+    }
+
+    private static long hash(String text) {
+        return ValueHashUtils.hash(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,123 @@
+package com.global.ums.service.impl;
+
+import com.global.ums.dto.BlobIngestDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BlobStoreServiceImpl 单元测试：未启用外部存储时的大小上限与文件丢失时的读取
+ */
+class BlobStoreServiceImplTest {
+
+    private BlobStoreServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path root = Files.createTempDirectory("blobs");
+        service = new BlobStoreServiceImpl();
+        ReflectionTestUtils.setField(service, "enabled", false);
+        ReflectionTestUtils.setField(service, "path", root.toString());
+        ReflectionTestUtils.setField(service, "threshold", 16);
+        ReflectionTestUtils.setField(service, "maxInlineSize", 64L);
+    }
+
+    @Test
+    void keepsSmallValueInlineWhenDisabled() throws Exception {
+        byte[] data = new byte[64];
+        BlobIngestDTO ingest = service.ingest(new ByteArrayInputStream(data), null);
+        assertFalse(ingest.isExceeded());
+        assertNull(ingest.getBlobRef());
+        assertArrayEquals(data, ingest.getValue());
+    }
+
+    @Test
+    void stopsReadingAtInlineCapacityWhenDisabled() throws Exception {
+        CountingStream in = new CountingStream(1 << 20);
+        BlobIngestDTO ingest = service.ingest(in, 1L << 30);
+        assertTrue(ingest.isExceeded());
+        assertEquals(64L, ingest.getLimit());
+        assertEquals(65L, ingest.getSize());
+        assertNull(ingest.getValue());
+        // 超出上限后立即停止读取，不会把整个上传内容读入内存
+        assertTrue(in.read < 64 + 8192 * 2, String.valueOf(in.read));
+    }
+
+    @Test
+    void keyLimitAppliesWhenSmallerThanCapacity() throws Exception {
+        BlobIngestDTO ingest = service.ingest(new ByteArrayInputStream(new byte[40]), 32L);
+        assertTrue(ingest.isExceeded());
+        assertEquals(32L, ingest.getLimit());
+    }
+
+    @Test
+    void offloadsLargeValueWhenEnabled() throws Exception {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        byte[] data = new byte[1000];
+        BlobIngestDTO ingest = service.ingest(new ByteArrayInputStream(data), null);
+        assertFalse(ingest.isExceeded());
+        assertNull(ingest.getValue());
+        assertArrayEquals(data, service.get(ingest.getBlobRef()));
+    }
+
+    @Test
+    void throwsWhenBlobFileIsMissing() {
+        String ref = "ab" + repeat('0', 62);
+        assertThrows(UncheckedIOException.class, () -> service.get(ref));
+        assertNull(service.get("not-a-ref"));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 记录已被读取字节数的输入流
+     */
+    private static final class CountingStream extends InputStream {
+
+        private final long length;
+
+        private long read;
+
+        CountingStream(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            if (read >= length) {
+                return -1;
+            }
+            read++;
+            return 'a';
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int len) {
+            if (read >= length) {
+                return -1;
+            }
+            int count = (int) Math.min(len, length - read);
+            read += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.global.ums.service.impl;
+
+import com.global.ums.dto.ChangeFeedDTO;
+import com.global.ums.entity.ChangeEvent;
+import com.global.ums.mapper.ChangeEventMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ChangeEventServiceImpl.read 单元测试：事件ID空洞的等待与加锁确认
+ */
+class ChangeEventServiceImplTest {
+
+    private ChangeEventMapper mapper;
+
+    private ChangeEventServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(ChangeEventMapper.class);
+        service = new ChangeEventServiceImpl();
+        ReflectionTestUtils.setField(service, "baseMapper", mapper);
+        ReflectionTestUtils.setField(service, "gapGraceSeconds", 1);
+        ReflectionTestUtils.setField(service, "retentionDays", 7);
+        service.init();
+    }
+
+    @Test
+    void returnsContiguousEventsWithoutLocking() {
+        when(mapper.selectAfter(eq(0L), anyInt())).thenReturn(Arrays.asList(event(1, 0), event(2, 0)));
+        ChangeFeedDTO feed = service.read(null, 10);
+        assertEquals(Arrays.asList(1L, 2L), ids(feed));
+        assertEquals(Long.valueOf(2L), feed.getCursor());
+        verify(mapper, times(0)).selectRangeLocked(anyLong(), anyLong());
+    }
+
+    @Test
+    void waitsBeforeCheckingRecentGap() {
+        when(mapper.selectAfter(eq(0L), anyInt())).thenReturn(Arrays.asList(event(1, 0), event(3, 0)));
+        ChangeFeedDTO feed = service.read(0L, 10);
+        assertEquals(Collections.singletonList(1L), ids(feed));
+        assertEquals(Long.valueOf(1L), feed.getCursor());
+        verify(mapper, times(0)).selectRangeLocked(anyLong(), anyLong());
+    }
+
+    @Test
+    void stopsAtGapHeldByOpenTransaction() {
+        when(mapper.selectAfter(eq(0L), anyInt())).thenReturn(Arrays.asList(event(1, 5000), event(3, 5000)));
+        when(mapper.selectRangeLocked(2L, 3L)).thenThrow(new CannotAcquireLockException("locked"));
+        // 事务迟迟不提交时一直停在空洞之前，不因等待时间耗尽而跳过
+        for (int i = 0; i < 3; i++) {
+            ChangeFeedDTO feed = service.read(0L, 10);
+            assertEquals(Collections.singletonList(1L), ids(feed));
+            assertEquals(Long.valueOf(1L), feed.getCursor());
+        }
+        verify(mapper, times(3)).selectRangeLocked(2L, 3L);
+    }
+
+    @Test
+    void deliversLateCommitsAndSkipsRolledBackIds() {
+        when(mapper.selectAfter(eq(1L), anyInt())).thenReturn(Arrays.asList(event(5, 5000), event(6, 5000)));
+        // 2、4 已回滚，3 在 selectAfter 之后才提交
+        when(mapper.selectRangeLocked(2L, 5L)).thenReturn(Collections.singletonList(event(3, 5000)));
+        ChangeFeedDTO feed = service.read(1L, 10);
+        assertEquals(Arrays.asList(3L, 5L, 6L), ids(feed));
+        assertEquals(Long.valueOf(6L), feed.getCursor());
+    }
+
+    @Test
+    void startsImmediatelyAfterPurgedRange() {
+        // 从头读取时最早的事件早已写入，空洞（已清理的ID）无需等待
+        when(mapper.selectAfter(eq(0L), anyInt())).thenReturn(Arrays.asList(event(1000, 86400000), event(1001, 86400000)));
+        when(mapper.selectRangeLocked(1L, 1000L)).thenReturn(Collections.emptyList());
+        ChangeFeedDTO feed = service.read(null, 10);
+        assertEquals(Arrays.asList(1000L, 1001L), ids(feed));
+    }
+
+    @Test
+    void respectsLimitWhenLateEventsFillThePage() {
+        when(mapper.selectAfter(eq(0L), anyInt())).thenReturn(Arrays.asList(event(4, 5000), event(5, 5000)));
+        when(mapper.selectRangeLocked(1L, 4L)).thenReturn(Arrays.asList(event(1, 5000), event(2, 5000), event(3, 5000)));
+        ChangeFeedDTO feed = service.read(0L, 2);
+        assertEquals(Arrays.asList(1L, 2L), ids(feed));
+        assertEquals(Long.valueOf(2L), feed.getCursor());
+    }
+
+    /**
+     * @param ageMillis 事件写入距今的时间
+     */
+    private static ChangeEvent event(long id, long ageMillis) {
+        ChangeEvent event = new ChangeEvent();
+        event.setId(id);
+        event.setCreateTime(new Date(System.currentTimeMillis() - ageMillis));
+        return event;
+    }
+
+    private static List<Long> ids(ChangeFeedDTO feed) {
+        List<Long> ids = new ArrayList<>();
+        for (ChangeEvent event : feed.getEvents()) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+}
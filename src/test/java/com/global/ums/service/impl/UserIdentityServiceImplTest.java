@@ -0,0 +1,163 @@
+package com.global.ums.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.global.ums.entity.UserIdentity;
+import com.global.ums.entity.UserProperties;
+import com.global.ums.mapper.UserIdentityMapper;
+import com.global.ums.mapper.UserPropertiesMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserIdentityServiceImpl.replaceIdentities 单元测试：身份标识被接管后再释放时恢复原用户的索引
+ * 以内存中的 external_id -> user_id 表和属性行模拟两张表
+ */
+class UserIdentityServiceImplTest {
+
+    private static final String PROVIDER = "ma_openid";
+
+    /**
+     * external_id -> user_id
+     */
+    private final Map<String, Long> index = new HashMap<>();
+
+    /**
+     * 当前属性行（key 均为 PROVIDER）
+     */
+    private final List<UserProperties> properties = new ArrayList<>();
+
+    /**
+     * 正在重建索引的用户
+     */
+    private Long currentUser;
+
+    private UserIdentityServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, UserIdentity.class);
+        TableInfoHelper.initTableInfo(assistant, UserProperties.class);
+
+        // 查询和删除的条件为“当前用户 + PROVIDER”
+        UserIdentityMapper identityMapper = mock(UserIdentityMapper.class);
+        when(identityMapper.selectList(any())).thenAnswer(invocation -> {
+            List<UserIdentity> owned = new ArrayList<>();
+            index.forEach((externalId, userId) -> {
+                if (userId.equals(currentUser)) {
+                    owned.add(identity(externalId, userId));
+                }
+            });
+            return owned;
+        });
+        when(identityMapper.delete(any())).thenAnswer(invocation -> {
+            int before = index.size();
+            index.values().removeIf(userId -> userId.equals(currentUser));
+            return before - index.size();
+        });
+        when(identityMapper.batchUpsert(any())).thenAnswer(invocation -> {
+            List<UserIdentity> list = invocation.getArgument(0);
+            list.forEach(identity -> index.put(identity.getExternalId(), identity.getUserId()));
+            return list.size();
+        });
+        // 按 value_hash 定位的候选行，按最近写入排序
+        UserPropertiesMapper propertiesMapper = mock(UserPropertiesMapper.class);
+        when(propertiesMapper.selectList(any())).thenAnswer(invocation -> {
+            List<UserProperties> latestFirst = new ArrayList<>(properties);
+            Collections.reverse(latestFirst);
+            return latestFirst;
+        });
+
+        service = new UserIdentityServiceImpl();
+        ReflectionTestUtils.setField(service, "baseMapper", identityMapper);
+        ReflectionTestUtils.setField(service, "userPropertiesMapper", propertiesMapper);
+    }
+
+    @Test
+    void restoresPreviousOwnerWhenTakeoverIsReleased() {
+        // A(1) 使用 openid X，B(2) 接管 X
+        setProperty(1L, "X");
+        replace(1L, "X");
+        setProperty(2L, "X");
+        replace(2L, "X");
+        assertEquals(Long.valueOf(2L), index.get("X"));
+
+        // B 改为 Y：X 恢复指向 A
+        setProperty(2L, "Y");
+        replace(2L, "Y");
+        assertEquals(Long.valueOf(1L), index.get("X"));
+        assertEquals(Long.valueOf(2L), index.get("Y"));
+
+        // B 删除属性：Y 没有其他使用者，索引删除
+        removeProperty(2L);
+        replace(2L, null);
+        assertNull(index.get("Y"));
+        assertEquals(Long.valueOf(1L), index.get("X"));
+    }
+
+    @Test
+    void dropsReleasedIdentityWithoutOtherOwner() {
+        setProperty(1L, "X");
+        replace(1L, "X");
+        removeProperty(1L);
+        replace(1L, null);
+        assertNull(index.get("X"));
+    }
+
+    @Test
+    void ignoresRowsWithSameHashButDifferentValue() {
+        setProperty(1L, "X");
+        replace(1L, "X");
+        // 哈希碰撞的行（模拟：值不同但被按哈希查出）
+        setProperty(3L, "Z");
+        removeProperty(1L);
+        replace(1L, null);
+        assertNull(index.get("X"));
+    }
+
+    private void replace(Long userId, String value) {
+        currentUser = userId;
+        service.replaceIdentities(userId, PROVIDER, value == null ? null
+                : Collections.singletonList(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void setProperty(Long userId, String value) {
+        removeProperty(userId);
+        UserProperties property = new UserProperties();
+        property.setId((long) properties.size() + 100);
+        property.setUserId(userId);
+        property.setKey(PROVIDER);
+        property.setValue(value.getBytes(StandardCharsets.UTF_8));
+        property.setBlobRef("");
+        property.setCompressed(false);
+        properties.add(property);
+    }
+
+    private void removeProperty(Long userId) {
+        properties.removeIf(property -> property.getUserId().equals(userId));
+    }
+
+    private static UserIdentity identity(String externalId, Long userId) {
+        UserIdentity identity = new UserIdentity();
+        identity.setProvider(PROVIDER);
+        identity.setExternalId(externalId);
+        identity.setUserId(userId);
+        return identity;
+    }
+}
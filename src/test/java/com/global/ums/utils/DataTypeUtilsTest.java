@@ -0,0 +1,161 @@
+package com.global.ums.utils;
+
+import com.global.ums.enums.DataType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DataTypeUtils.inferDataType 单元测试：与原先实现（LegacyDataTypeInference）逐一对照，
+ * 除 EXPECTED_DIFFERENCES 中列出的有意差异外推断结果必须一致
+ */
+class DataTypeUtilsTest {
+
+    /**
+     * 有意的差异：输入 -> 新实现的推断结果
+     */
+    private static final Map<String, DataType> EXPECTED_DIFFERENCES = new LinkedHashMap<>();
+
+    static {
+        // 原先按非 ASCII 字节占比超过 30% 判为二进制，多字节 UTF-8 文本现按合法 UTF-8 识别为字符串
+        EXPECTED_DIFFERENCES.put("上海市浦东新区", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("上海 Century Avenue 100 号", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("emoji 😀😀", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("Ünïcödé", DataType.STRING);
+        // fastjson 默认容忍的非标准写法（单引号、无引号键、末尾逗号、缺少或多余的逗号）不再识别为 JSON
+        EXPECTED_DIFFERENCES.put("{'a':1}", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("{a:1}", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("{\"a\":1,}", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("[1,2,]", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("[1 2]", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("[\"a\" \"b\"]", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("[,1]", DataType.STRING);
+        EXPECTED_DIFFERENCES.put("{,}", DataType.STRING);
+    }
+
+    private static final String[] TEXTS = {
+            // 整数与长整数边界
+            "0", "-1", "007", "  42  ", "2147483647", "2147483648", "-2147483648", "-2147483649",
+            "9223372036854775807", "-9223372036854775808", "9223372036854775808", "123L", "-5l",
+            // 浮点数
+            "3.14", "-0.5", "1.5f", "2.0d", "1.", ".5", "1e10",
+            // 布尔
+            "true", "FALSE", "True", "truex", "false ",
+            // 日期时间
+            "2024-05-01", "2024/05/01", "2024-05-01 12:30:00", "2024-05-0112:30:00", "2024-05-01 12:30",
+            "2024-13-45",
+            // 合法的 JSON
+            "{}", "[]", "{\"a\":1}", "[1,2,3]", "{\"a\":[{\"b\":null}]}", "[true, false, null]",
+            "{\"a\":\"}\"}", "{\"a\":\"x\\\"y\"}", " [ {\"id\" : 1} ] ", "[-1.5e3, 0, \"\"]",
+            // 不合法的 JSON
+            "{abc}", "[draft]", "{\"a\" \"b\"}", "[\"x\"] tail", "{\"a\":1", "[1,2]]", "{'a':1}", "{a:1}",
+            "{\"a\":1,}", "[1,2,]", "[1 2]", "{\"a\":1 \"b\":2}", "[\"a\" \"b\"]", "[,1]", "{,}", "[tru]", "[nulls]",
+            // 文本
+            "hello", "hello world", "上海市浦东新区", "上海 Century Avenue 100 号", "emoji 😀😀", "Ünïcödé"
+    };
+
+    @Test
+    void matchesLegacyInferenceExceptDocumentedDifferences() {
+        Map<String, byte[]> inputs = new LinkedHashMap<>();
+        for (String text : TEXTS) {
+            inputs.put(text, bytes(text));
+        }
+        inputs.put("<png>", new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A});
+        inputs.put("<control bytes>", new byte[]{'a', 0x01, 'b', 0x02});
+        byte[] random = new byte[1024];
+        new Random(42).nextBytes(random);
+        inputs.put("<random bytes>", random);
+
+        List<String> mismatches = new ArrayList<>();
+        for (Map.Entry<String, byte[]> input : inputs.entrySet()) {
+            DataType actual = DataTypeUtils.inferDataType(input.getValue());
+            DataType expected = EXPECTED_DIFFERENCES.getOrDefault(input.getKey(),
+                    LegacyDataTypeInference.inferDataType(input.getValue()));
+            if (actual != expected) {
+                mismatches.add(input.getKey() + ": expected " + expected + " but was " + actual);
+            }
+        }
+        assertTrue(mismatches.isEmpty(), String.join("\n", mismatches));
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        String[] malformed = {
+                "{abc}", "[draft]", "{\"a\" \"b\"}", "{\"a\":1,}", "[1,2,]", "[1 2]", "{\"a\":1 \"b\":2}",
+                "[\"a\" \"b\"]", "[,1]", "{,}", "[tru]", "[nulls]", "{\"a\":}", "{\"a\"}", "[1:2]", "{\"a\":1]",
+                "[\"unterminated]", "[{}{}]", "{\"a\":1}{\"b\":2}"
+        };
+        for (String text : malformed) {
+            assertEquals(DataType.STRING, DataTypeUtils.inferDataType(bytes(text)), text);
+        }
+    }
+
+    @Test
+    void acceptsWellFormedJson() {
+        String[] objects = {"{}", "{ }", "{\"a\":1}", "{\"a\":{\"b\":[1,{\"c\":null}]},\"d\":\"e\"}", "{\"\\\"\":\"\\\\\"}"};
+        for (String text : objects) {
+            assertEquals(DataType.JSON, DataTypeUtils.inferDataType(bytes(text)), text);
+        }
+        String[] arrays = {"[]", "[ ]", "[[]]", "[1,-2.5,3e-4]", "[\"a\",true,false,null,{}]", "[\n  1,\n  2\n]"};
+        for (String text : arrays) {
+            assertEquals(DataType.ARRAY, DataTypeUtils.inferDataType(bytes(text)), text);
+        }
+    }
+
+    @Test
+    void checksBracketsBeyondTrackedDepth() {
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            deep.append("[{\"a\":");
+        }
+        deep.append("1");
+        for (int i = 0; i < 100; i++) {
+            deep.append("}]");
+        }
+        assertEquals(DataType.ARRAY, DataTypeUtils.inferDataType(bytes(deep.toString())));
+        assertEquals(DataType.STRING, DataTypeUtils.inferDataType(bytes(deep.substring(0, deep.length() - 1))));
+    }
+
+    @Test
+    void rejectsInvalidUtf8AsBinary() {
+        byte[][] invalid = {
+                // 超长编码
+                {'a', (byte) 0xC0, (byte) 0x80},
+                {'a', (byte) 0xE0, (byte) 0x80, (byte) 0x80},
+                {'a', (byte) 0xF0, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+                // 代理区
+                {'a', (byte) 0xED, (byte) 0xA0, (byte) 0x80},
+                // 超出 U+10FFFF
+                {'a', (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+                // 孤立的后续字节、截断的序列
+                {'a', (byte) 0x80, 'b'},
+                {'a', (byte) 0xE4, (byte) 0xB8}
+        };
+        for (byte[] data : invalid) {
+            assertEquals(DataType.BINARY, DataTypeUtils.inferDataType(data), Arrays.toString(data));
+        }
+        // 边界上的合法序列：U+0800、U+D7FF、U+10000、U+10FFFF
+        byte[][] valid = {
+                {'a', (byte) 0xE0, (byte) 0xA0, (byte) 0x80},
+                {'a', (byte) 0xED, (byte) 0x9F, (byte) 0xBF},
+                {'a', (byte) 0xF0, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+                {'a', (byte) 0xF4, (byte) 0x8F, (byte) 0xBF, (byte) 0xBF}
+        };
+        for (byte[] data : valid) {
+            assertEquals(DataType.STRING, DataTypeUtils.inferDataType(data), Arrays.toString(data));
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package com.global.ums.utils;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.global.ums.enums.DataType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * DataTypeUtils.inferDataType 原先的实现：先整体解码为字符串，再依次尝试正则与 fastjson 解析
+ * 保留作为 DataTypeUtilsTest 差异对照与 DataTypeInferenceBenchmark 基准的参照
+ */
+public final class LegacyDataTypeInference {
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("^-?\\d+$");
+    private static final Pattern LONG_PATTERN = Pattern.compile("^-?\\d+[lL]?$");
+    private static final Pattern FLOAT_PATTERN = Pattern.compile("^-?\\d+\\.\\d+[fF]?$");
+    private static final Pattern DOUBLE_PATTERN = Pattern.compile("^-?\\d+\\.\\d+[dD]?$");
+    private static final Pattern BOOLEAN_PATTERN = Pattern.compile("^(true|false)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DATETIME_PATTERN = Pattern.compile(
+            "^(\\d{4}-\\d{2}-\\d{2}|\\d{4}/\\d{2}/\\d{2})\\s*(\\d{2}:\\d{2}:\\d{2})?$"
+    );
+
+    private LegacyDataTypeInference() {
+    }
+
+    public static DataType inferDataType(byte[] data) {
+        if (data == null || data.length == 0) {
+            return DataType.UNKNOWN;
+        }
+        if (isBinaryData(data)) {
+            return DataType.BINARY;
+        }
+        return inferDataTypeFromString(new String(data, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isBinaryData(byte[] data) {
+        if (isKnownFileType(data)) {
+            return true;
+        }
+        int checkLength = Math.min(data.length, 100);
+        for (int i = 0; i < checkLength; i++) {
+            byte b = data[i];
+            if (b < 32 && b != 9 && b != 10 && b != 13) {
+                return true;
+            }
+        }
+        int nonPrintableCount = 0;
+        for (int i = 0; i < checkLength; i++) {
+            byte b = data[i];
+            if (b < 32 || b > 126) {
+                nonPrintableCount++;
+            }
+        }
+        return (double) nonPrintableCount / checkLength > 0.3;
+    }
+
+    private static boolean isKnownFileType(byte[] data) {
+        if (data.length < 4) {
+            return false;
+        }
+        if (data[0] == (byte) 0xFF && data[1] == (byte) 0xD8 && data[2] == (byte) 0xFF) {
+            return true;
+        }
+        if (data[0] == (byte) 0x89 && data[1] == 0x50 && data[2] == 0x4E && data[3] == 0x47) {
+            return true;
+        }
+        if (data[0] == 0x47 && data[1] == 0x49 && data[2] == 0x46) {
+            return true;
+        }
+        if (data[0] == 0x25 && data[1] == 0x50 && data[2] == 0x44 && data[3] == 0x46) {
+            return true;
+        }
+        if (data[0] == 0x50 && data[1] == 0x4B) {
+            return true;
+        }
+        return data[0] == 0x52 && data[1] == 0x61 && data[2] == 0x72 && data[3] == 0x21;
+    }
+
+    private static DataType inferDataTypeFromString(String value) {
+        value = value.trim();
+        if (BOOLEAN_PATTERN.matcher(value).matches()) {
+            return DataType.BOOLEAN;
+        }
+        if (LONG_PATTERN.matcher(value).matches()) {
+            try {
+                long longValue = Long.parseLong(value.replaceAll("[lL]$", ""));
+                if (longValue > Integer.MAX_VALUE || longValue < Integer.MIN_VALUE) {
+                    return DataType.LONG;
+                }
+                return DataType.INTEGER;
+            } catch (NumberFormatException e) {
+                return DataType.LONG;
+            }
+        }
+        if (INTEGER_PATTERN.matcher(value).matches()) {
+            return DataType.INTEGER;
+        }
+        if (DOUBLE_PATTERN.matcher(value).matches()) {
+            return DataType.DOUBLE;
+        }
+        if (FLOAT_PATTERN.matcher(value).matches()) {
+            return DataType.FLOAT;
+        }
+        if (DATETIME_PATTERN.matcher(value).matches()) {
+            return DataType.DATETIME;
+        }
+        if (isValidJsonObject(value)) {
+            return DataType.JSON;
+        }
+        if (isValidJsonArray(value)) {
+            return DataType.ARRAY;
+        }
+        return DataType.STRING;
+    }
+
+    private static boolean isValidJsonObject(String value) {
+        try {
+            JSONObject.parseObject(value);
+            return value.startsWith("{") && value.endsWith("}");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean isValidJsonArray(String value) {
+        try {
+            JSONArray.parseArray(value);
+            return value.startsWith("[") && value.endsWith("]");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}